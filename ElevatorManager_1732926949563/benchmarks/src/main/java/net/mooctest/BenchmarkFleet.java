@@ -0,0 +1,62 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Fixtures shared by the benchmarks. Cars never run: they sit where they are placed on a SimulationClock
+// nobody advances, so every invocation sees the same fleet.
+final class BenchmarkFleet {
+    static final int FLOORS = 60;
+    static final int REQUEST_POOL = 1024; // Power of two, indexed with a mask
+
+    private BenchmarkFleet() {
+    }
+
+    // A quarter of the fleet idle, the rest moving up or down with a car call ahead of them
+    static List<Elevator> place(Scheduler scheduler, List<Elevator> elevators, int fleetSize, long seed) {
+        Random random = new Random(seed);
+        Clock clock = new SimulationClock();
+        for (int id = 1; id <= fleetSize; id++) {
+            Elevator elevator = new Elevator(id, scheduler, clock);
+            int floor = 2 + random.nextInt(FLOORS - 2);
+            elevator.setCurrentFloor(floor);
+            switch (id % 4) {
+                case 0:
+                    break;
+                case 1:
+                case 2:
+                    elevator.setDirection(Direction.UP);
+                    elevator.setStatus(ElevatorStatus.MOVING);
+                    elevator.addDestination(floor + 1 + random.nextInt(FLOORS - floor));
+                    break;
+                default:
+                    elevator.setDirection(Direction.DOWN);
+                    elevator.setStatus(ElevatorStatus.MOVING);
+                    elevator.addDestination(1 + random.nextInt(floor - 1));
+                    break;
+            }
+            elevators.add(elevator);
+        }
+        return elevators;
+    }
+
+    static PassengerRequest[] requests(long seed) {
+        Random random = new Random(seed);
+        PassengerRequest[] requests = new PassengerRequest[REQUEST_POOL];
+        for (int i = 0; i < requests.length; i++) {
+            int start = 1 + random.nextInt(FLOORS);
+            int destination;
+            do {
+                destination = 1 + random.nextInt(FLOORS);
+            } while (destination == start);
+            requests[i] = new PassengerRequest(start, destination, Priority.MEDIUM, RequestType.STANDARD, 0);
+        }
+        return requests;
+    }
+
+    // Schedulers log every dispatch. Handing the line to the logger is still measured, but its writer
+    // discards it instead of printing between JMH's own output.
+    static AsyncLogger discardingLogger() {
+        return new AsyncLogger(8192, line -> {
+        });
+    }
+}
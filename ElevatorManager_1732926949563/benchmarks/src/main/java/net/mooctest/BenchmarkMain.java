@@ -0,0 +1,36 @@
+package net.mooctest;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point of benchmarks.jar. Without arguments every benchmark runs once per thread count in
+// -Dthreads (default 1,2,4,8,16) with the GC profiler, so each result has its throughput next to its
+// allocation rate (gc.alloc.rate.norm, bytes per call); results also go to jmh-result-<threads>.json.
+// With arguments it behaves exactly like the plain JMH command line.
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        for (String threads : System.getProperty("threads", "1,2,4,8,16").split(",")) {
+            run(Integer.parseInt(threads.trim()));
+        }
+    }
+
+    private static void run(int threads) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(SchedulerBenchmark.class.getSimpleName())
+                .include(StrategyBenchmark.class.getSimpleName())
+                .include(FloorQueueBenchmark.class.getSimpleName())
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result-" + threads + ".json");
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package net.mooctest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Waiting-call queues: each call adds a passenger at a floor and then takes every passenger waiting there,
+// as a car boarding them would. The shared variants run every benchmark thread against the same floor, the
+// own variants give each thread its own. Floor keeps a locked queue per direction; HallCallRegistry, which
+// the scheduler uses, has lock-free queues and call bitmaps, so the pairs show what the registry buys.
+// A plain producer/consumer split is not used: lock-free producers outrun one consumer without bound.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FloorQueueBenchmark {
+    private static final int FLOOR = 7;
+
+    public abstract static class Queues {
+        Floor floor;
+        HallCallRegistry registry;
+        PassengerRequest up;
+
+        void reset() {
+            floor = new Floor(FLOOR);
+            registry = new HallCallRegistry(BenchmarkFleet.FLOORS);
+            up = new PassengerRequest(FLOOR, FLOOR + 5, Priority.MEDIUM, RequestType.STANDARD, 0);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedQueues extends Queues {
+        @Setup(Level.Iteration)
+        public void setUp() {
+            reset();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OwnQueues extends Queues {
+        @Setup(Level.Iteration)
+        public void setUp() {
+            reset();
+        }
+    }
+
+    @Benchmark
+    public List<PassengerRequest> floorShared(SharedQueues queues) {
+        return addAndGet(queues);
+    }
+
+    @Benchmark
+    public List<PassengerRequest> floorOwn(OwnQueues queues) {
+        return addAndGet(queues);
+    }
+
+    @Benchmark
+    public List<PassengerRequest> registryShared(SharedQueues queues) {
+        return addAndTake(queues);
+    }
+
+    @Benchmark
+    public List<PassengerRequest> registryOwn(OwnQueues queues) {
+        return addAndTake(queues);
+    }
+
+    private static List<PassengerRequest> addAndGet(Queues queues) {
+        queues.floor.addRequest(queues.up);
+        return queues.floor.getRequests(Direction.UP);
+    }
+
+    private static List<PassengerRequest> addAndTake(Queues queues) {
+        queues.registry.add(queues.up);
+        return queues.registry.take(FLOOR, Direction.UP);
+    }
+}
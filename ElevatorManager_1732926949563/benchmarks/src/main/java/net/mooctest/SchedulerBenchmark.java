@@ -0,0 +1,64 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Cost of Scheduler.submitRequest with many producers: registering the hall call, ranking the fleet and
+// queueing the stop on the chosen car. Run at several thread counts (BenchmarkMain does by default) to
+// see how the cost grows with contention.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchedulerBenchmark {
+    private static final int DRAIN_EVERY = 1024; // Calls per thread between drains, a power of two
+
+    @State(Scope.Benchmark)
+    public static class Building {
+        @Param({"4", "16", "64"})
+        public int fleetSize;
+
+        Scheduler scheduler;
+        AsyncLogger logger;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            List<Elevator> elevators = new ArrayList<>();
+            logger = BenchmarkFleet.discardingLogger();
+            scheduler = new Scheduler(elevators, BenchmarkFleet.FLOORS, new NearestElevatorStrategy(), logger);
+            BenchmarkFleet.place(scheduler, elevators, fleetSize, 42);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            logger.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Producer {
+        PassengerRequest[] requests;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            requests = BenchmarkFleet.requests(Thread.currentThread().getId());
+        }
+    }
+
+    @Benchmark
+    public void submitRequest(Building building, Producer producer) {
+        PassengerRequest request = producer.requests[producer.next++ & (BenchmarkFleet.REQUEST_POOL - 1)];
+        building.scheduler.submitRequest(request);
+        if ((producer.next & (DRAIN_EVERY - 1)) == 0) {
+            // Nothing boards in this benchmark, so waiting calls are cleared now and then to keep memory flat
+            HallCallRegistry hallCalls = building.scheduler.getHallCalls();
+            for (int floor = 1; floor <= BenchmarkFleet.FLOORS; floor++) {
+                hallCalls.take(floor, Direction.UP);
+                hallCalls.take(floor, Direction.DOWN);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Per-call cost of DispatchStrategy.selectElevator as the fleet grows. The fleet is static, so ETA
+// projections stay cached between calls as they do between car moves in a running building.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StrategyBenchmark {
+    @Param({"4", "16", "64", "256"})
+    public int fleetSize;
+
+    @Param({"nearest", "high-efficiency", "energy-saving", "predictive", "indexed-nearest"})
+    public String strategy;
+
+    private List<Elevator> elevators;
+    private DispatchStrategy dispatchStrategy;
+    private PassengerRequest[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        elevators = new ArrayList<>();
+        Scheduler scheduler = new Scheduler(elevators, BenchmarkFleet.FLOORS, new NearestElevatorStrategy(), null);
+        BenchmarkFleet.place(scheduler, elevators, fleetSize, 42);
+        dispatchStrategy = create(strategy, elevators);
+        requests = BenchmarkFleet.requests(7);
+    }
+
+    private static DispatchStrategy create(String name, List<Elevator> elevators) {
+        switch (name) {
+            case "nearest":
+                return new NearestElevatorStrategy();
+            case "high-efficiency":
+                return new HighEfficiencyStrategy();
+            case "energy-saving":
+                return new EnergySavingStrategy();
+            case "predictive":
+                return new PredictiveSchedulingStrategy();
+            case "indexed-nearest":
+                FleetIndex index = new FleetIndex();
+                for (Elevator elevator : elevators) {
+                    index.register(elevator);
+                }
+                return new IndexedDispatchStrategy(index, new NearestElevatorStrategy());
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + name);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Elevator selectElevator(Cursor cursor) {
+        return dispatchStrategy.selectElevator(elevators, requests[cursor.next++ & (BenchmarkFleet.REQUEST_POOL - 1)]);
+    }
+}
@@ -4,15 +4,26 @@ import java.util.*;
 import java.util.concurrent.*;
 
 public class AnalyticsEngine {
+    public static final long PEAK_HORIZON_MILLIS = 5 * 60 * 1000;
+    public static final double PEAK_ARRIVALS_PER_MINUTE = 10;
+
     private static volatile AnalyticsEngine instance;
-    private final List<ElevatorStatusReport> statusReports;
+    private final StatusTimeSeries statusHistory;
     private final Map<Integer, Integer> floorPassengerCounts;
     private final LogManager logManager;
+    private final TrafficModel trafficModel;
+    private final Clock clock;
 
     public AnalyticsEngine() {
-        this.statusReports = new CopyOnWriteArrayList<>();
+        this(RealTimeClock.getInstance(), SystemConfig.getInstance().getFloorCount());
+    }
+
+    public AnalyticsEngine(Clock clock, int floorCount) {
+        this.statusHistory = new StatusTimeSeries();
         this.floorPassengerCounts = new ConcurrentHashMap<>();
         this.logManager = LogManager.getInstance();
+        this.trafficModel = new TrafficModel(floorCount);
+        this.clock = clock;
     }
 
     public static AnalyticsEngine getInstance() {
@@ -26,17 +37,56 @@ public class AnalyticsEngine {
         return instance;
     }
 
+    // Recorded at the time it is received; history is bounded per car and rolled up by minute and hour
     public void processStatusReport(ElevatorStatusReport report) {
-        statusReports.add(report);
+        statusHistory.append(report, clock.currentTimeMillis());
+    }
+
+    public StatusTimeSeries getStatusHistory() {
+        return statusHistory;
     }
 
+    // Current number of passengers waiting at a floor; arrivals are counted by recordRequest
     public void updateFloorPassengerCount(int floorNumber, int count) {
         floorPassengerCounts.put(floorNumber, count);
     }
 
+    // Feeds a hall call into the traffic model at the time it was made
+    public void recordRequest(PassengerRequest request) {
+        trafficModel.recordArrival(request.getStartFloor(), request.getDirection(), request.getTimestamp());
+    }
+
+    // Expected calls at a floor, both directions, in the next horizonMillis
+    public double forecastArrivals(int floorNumber, long horizonMillis) {
+        long now = clock.currentTimeMillis();
+        trafficModel.advanceTo(now);
+        return trafficModel.forecast(floorNumber, now, horizonMillis);
+    }
+
+    public List<Integer> getHotFloors(long horizonMillis, double minArrivals) {
+        long now = clock.currentTimeMillis();
+        trafficModel.advanceTo(now);
+        return trafficModel.getHotFloors(now, horizonMillis, minArrivals);
+    }
+
+    // Peak when many passengers are already waiting or the building is forecast to get busy shortly
     public boolean isPeakHours() {
         int totalWaitingPassengers = floorPassengerCounts.values().stream().mapToInt(Integer::intValue).sum();
-        return totalWaitingPassengers > 50;
+        if (totalWaitingPassengers > 50) {
+            return true;
+        }
+        long now = clock.currentTimeMillis();
+        trafficModel.advanceTo(now);
+        double expected = trafficModel.forecastTotal(now, PEAK_HORIZON_MILLIS);
+        return expected / (PEAK_HORIZON_MILLIS / 60000.0) >= PEAK_ARRIVALS_PER_MINUTE;
+    }
+
+    public TrafficModel getTrafficModel() {
+        return trafficModel;
+    }
+
+    public Clock getClock() {
+        return clock;
     }
 
     public Report generatePerformanceReport() {
@@ -0,0 +1,324 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// EventBus that delivers on subscriber threads instead of the publisher's. Events are written into a
+// preallocated ring and every subscriber follows it with its own sequence cursor on its own thread, taking
+// all published events in one batch; a publisher only waits when the slowest subscriber is a full ring
+// behind. EMERGENCY events travel in a separate ring that subscribers check between normal-lane events
+// (between batches for batch listeners), so a storm of fault events cannot hold them back.
+public class AsyncEventBus extends EventBus {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Ring normalLane;
+    private final Ring emergencyLane;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final Map<EventListener, Subscriber> subscribers = new IdentityHashMap<>(); // Guarded by itself
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean running = true;
+
+    public AsyncEventBus() {
+        this(DEFAULT_CAPACITY, new SleepingWaitStrategy(), DEFAULT_BATCH_SIZE);
+    }
+
+    public AsyncEventBus(int capacity, WaitStrategy waitStrategy, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.normalLane = new Ring(capacity);
+        this.emergencyLane = new Ring(capacity);
+        this.waitStrategy = waitStrategy;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void subscribe(EventType eventType, EventListener listener) {
+        synchronized (subscribers) {
+            if (!running) {
+                throw new IllegalStateException("Event bus is closed");
+            }
+            Subscriber subscriber = subscribers.get(listener);
+            if (subscriber == null) {
+                // Types are set before the cursors are placed and the thread starts, so no event is skipped
+                subscriber = new Subscriber(listener, EnumSet.of(eventType));
+                subscribers.put(listener, subscriber);
+                subscriber.thread.start();
+                return;
+            }
+            EnumSet<EventType> types = EnumSet.copyOf(subscriber.types);
+            types.add(eventType);
+            subscriber.types = types; // Replaced rather than changed, so the subscriber reads it without locking
+        }
+    }
+
+    // Returns once the event is in its lane; listeners run later on their own threads
+    @Override
+    public void publish(Event event) {
+        if (!running) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+        (event.getType() == EventType.EMERGENCY ? emergencyLane : normalLane).publish(event);
+        waitStrategy.signalAll();
+    }
+
+    // Delivers everything already published, then stops the subscriber threads
+    public void close() throws InterruptedException {
+        List<Subscriber> stopping;
+        synchronized (subscribers) {
+            running = false;
+            stopping = new ArrayList<>(subscribers.values());
+        }
+        waitStrategy.signalAll();
+        for (Subscriber subscriber : stopping) {
+            subscriber.thread.join();
+        }
+    }
+
+    public int getSubscriberCount() {
+        synchronized (subscribers) {
+            return subscribers.size();
+        }
+    }
+
+    // Events published but not yet delivered to the slowest subscriber
+    public long getBacklog() {
+        return Math.max(normalLane.claimed.get() - normalLane.minimumCursor(),
+                emergencyLane.claimed.get() - emergencyLane.minimumCursor());
+    }
+
+    // Listener calls that threw; the subscriber carries on with the next event
+    public long getFailedCount() {
+        return failures.get();
+    }
+
+    // Multi-producer ring. A slot is readable once its available entry holds the slot's sequence number.
+    private static class Ring {
+        private final Event[] entries;
+        private final AtomicLongArray available;
+        private final int mask;
+        private final AtomicLong claimed = new AtomicLong(-1);
+        private final List<AtomicLong> cursors = new CopyOnWriteArrayList<>(); // One per subscriber
+
+        Ring(int requestedCapacity) {
+            int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+            this.entries = new Event[capacity];
+            this.available = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            for (int i = 0; i < capacity; i++) {
+                available.set(i, -1);
+            }
+        }
+
+        void publish(Event event) {
+            long sequence = claimed.incrementAndGet();
+            long wrapPoint = sequence - entries.length;
+            while (wrapPoint > minimumCursor()) {
+                LockSupport.parkNanos(1000L); // The slowest subscriber has not released the slot yet
+            }
+            int slot = (int) sequence & mask;
+            entries[slot] = event;
+            available.set(slot, sequence); // Volatile write publishes the entry
+        }
+
+        boolean isAvailable(long sequence) {
+            return available.get((int) sequence & mask) == sequence;
+        }
+
+        Event get(long sequence) {
+            return entries[(int) sequence & mask];
+        }
+
+        // Cursor of a new subscriber; it sees events published from now on
+        AtomicLong addCursor() {
+            AtomicLong cursor = new AtomicLong(claimed.get());
+            cursors.add(cursor);
+            return cursor;
+        }
+
+        long minimumCursor() {
+            long minimum = claimed.get();
+            for (AtomicLong cursor : cursors) {
+                minimum = Math.min(minimum, cursor.get());
+            }
+            return minimum;
+        }
+    }
+
+    private class Subscriber implements Runnable {
+        final EventListener listener;
+        volatile EnumSet<EventType> types;
+        final AtomicLong normalCursor;
+        final AtomicLong emergencyCursor;
+        final Thread thread;
+        final List<Event> batch = new ArrayList<>();
+
+        Subscriber(EventListener listener, EnumSet<EventType> types) {
+            this.listener = listener;
+            this.types = types;
+            this.normalCursor = normalLane.addCursor();
+            this.emergencyCursor = emergencyLane.addCursor();
+            this.thread = new Thread(this, "event-subscriber-" + listener.getClass().getSimpleName());
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (true) {
+                int delivered = drain(emergencyLane, emergencyCursor, Integer.MAX_VALUE);
+                delivered += drain(normalLane, normalCursor, batchSize);
+                if (delivered > 0) {
+                    idle = 0;
+                } else if (running) {
+                    waitStrategy.idle(idle++);
+                } else if (normalCursor.get() >= normalLane.claimed.get()
+                        && emergencyCursor.get() >= emergencyLane.claimed.get()) {
+                    return;
+                } else {
+                    Thread.yield(); // A publisher has claimed a slot but not filled it yet
+                }
+            }
+        }
+
+        // Claims up to max contiguous published events. A batch listener gets them in one call; any other
+        // listener gets them one by one, and a normal-lane run stops as soon as an emergency is waiting.
+        private int drain(Ring ring, AtomicLong cursor, int max) {
+            long next = cursor.get() + 1;
+            long last = next - 1;
+            while (last - next + 1 < max && ring.isAvailable(last + 1)) {
+                last++;
+            }
+            if (last < next) {
+                return 0;
+            }
+            Set<EventType> types = this.types;
+            if (listener instanceof BatchEventListener) {
+                for (long sequence = next; sequence <= last; sequence++) {
+                    Event event = ring.get(sequence);
+                    if (types.contains(event.getType())) {
+                        batch.add(event);
+                    }
+                }
+                try {
+                    if (!batch.isEmpty()) {
+                        ((BatchEventListener) listener).onBatch(batch);
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                } finally {
+                    batch.clear();
+                    cursor.lazySet(last); // Frees the slots for publishers
+                }
+                return (int) (last - next + 1);
+            }
+            boolean preemptible = ring != emergencyLane;
+            long sequence = next;
+            while (sequence <= last) {
+                Event event = ring.get(sequence);
+                if (types.contains(event.getType())) {
+                    try {
+                        listener.onEvent(event);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    }
+                }
+                cursor.lazySet(sequence++);
+                if (preemptible && emergencyLane.isAvailable(emergencyCursor.get() + 1)) {
+                    break;
+                }
+            }
+            return (int) (sequence - next);
+        }
+    }
+
+    // Listener that takes every batch in one call, e.g. to write it out together; the list is reused afterwards
+    public interface BatchEventListener extends EventListener {
+        void onBatch(List<Event> events);
+
+        @Override
+        default void onEvent(Event event) {
+            onBatch(Collections.singletonList(event));
+        }
+    }
+
+    // How an idle subscriber waits for the next event; signalAll is called after every publish
+    public interface WaitStrategy {
+        void idle(int idleCount);
+
+        default void signalAll() {
+        }
+    }
+
+    // Lowest latency, burns a core per subscriber
+    public static class BusySpinWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int idleCount) {
+        }
+    }
+
+    // Spins briefly, then yields the core to other threads
+    public static class YieldingWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount > 100) {
+                Thread.yield();
+            }
+        }
+    }
+
+    // Spins, yields, then parks for short periods; the default, cheap on CPU at some latency
+    public static class SleepingWaitStrategy implements WaitStrategy {
+        @Override
+        public void idle(int idleCount) {
+            if (idleCount > 200) {
+                LockSupport.parkNanos(100_000L);
+            } else if (idleCount > 100) {
+                Thread.yield();
+            }
+        }
+    }
+
+    // Sleeps on a condition until a publisher signals; lowest CPU use for rarely busy buses
+    public static class BlockingWaitStrategy implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        @Override
+        public void idle(int idleCount) {
+            lock.lock();
+            waiters.incrementAndGet();
+            try {
+                // Bounded wait: a publish between the subscriber's check and this await is not lost for long
+                published.await(1, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            if (waiters.get() > 0) { // Publishers skip the lock while every subscriber is busy
+                lock.lock();
+                try {
+                    published.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Moves log output off the calling thread. Messages go into a bounded lock-free queue and a background
+// thread hands them to the sink; when the queue is full the message is dropped and counted rather than
+// making the caller wait on console or disk I/O.
+public class AsyncLogger {
+    private final BoundedMpscQueue<String> queue;
+    private final Consumer<String> sink;
+    private final Thread writer;
+    private final AtomicLong written;
+    private final AtomicLong dropped;
+    private volatile boolean running;
+
+    public AsyncLogger(int capacity, Consumer<String> sink) {
+        this.queue = new BoundedMpscQueue<>(capacity);
+        this.sink = sink;
+        this.written = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "async-logger");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public AsyncLogger() {
+        this(8192, System.out::println);
+    }
+
+    public void log(String message) {
+        if (!queue.offer(message)) {
+            dropped.incrementAndGet();
+            return;
+        }
+        LockSupport.unpark(writer);
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            if (queue.drainTo(batch, 256) == 0) {
+                LockSupport.parkNanos(this, 1_000_000L);
+                continue;
+            }
+            for (String message : batch) {
+                sink.accept(message);
+            }
+            written.addAndGet(batch.size());
+            batch.clear();
+        }
+    }
+
+    // Writes out everything queued so far and stops the writer
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,91 @@
+package net.mooctest;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.*;
+
+// Bounded lock-free queue for many producers and a single consumer, on a preallocated ring. Each slot
+// carries a sequence number: a producer claims a slot by advancing the tail and publishes the element
+// by bumping the slot sequence, so offer() never blocks and fails fast when the ring is full.
+public class BoundedMpscQueue<E> {
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail;
+    private final AtomicLong head; // Written by the consumer only
+
+    public BoundedMpscQueue(int requestedCapacity) {
+        int size = 1;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.tail = new AtomicLong();
+        this.head = new AtomicLong();
+    }
+
+    // Returns false when the queue is full
+    public boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) (position & mask);
+            long difference = sequences.get(slot) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(slot, element);
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    // Consumer only; null when empty or when the next element is not yet published
+    public E poll() {
+        long position = head.get();
+        int slot = (int) (position & mask);
+        if (sequences.get(slot) != position + 1) {
+            return null;
+        }
+        E element = elements.get(slot);
+        elements.lazySet(slot, null);
+        sequences.lazySet(slot, position + capacity);
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    // Consumer only; moves up to max elements into the target and returns how many were moved
+    public int drainTo(Collection<? super E> target, int max) {
+        int count = 0;
+        E element;
+        while (count < max && (element = poll()) != null) {
+            target.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(capacity, size));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
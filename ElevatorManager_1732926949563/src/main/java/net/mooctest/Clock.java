@@ -0,0 +1,13 @@
+package net.mooctest;
+
+// Source of time for elevators, the scheduler and maintenance. RealTimeClock follows the wall clock,
+// SimulationClock replays timed events from a queue so long scenarios run in a fraction of real time.
+public interface Clock {
+    long currentTimeMillis();
+
+    // Blocks the caller for the given time
+    void sleep(long millis) throws InterruptedException;
+
+    // Runs the action once after the given delay
+    void schedule(long delayMillis, Runnable action);
+}
@@ -0,0 +1,312 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Group control for destination calls. Calls are collected for a short window and then assigned jointly:
+// passengers with the same origin and destination form one group, the Hungarian algorithm finds a
+// min-cost assignment of groups to car slots and a local search then moves single groups between cars
+// while the exact joint cost drops. A car's cost is the projected arrival time of every assigned
+// passenger at their destination plus the delay added to the car's existing route, so calls bound for
+// a floor a car already stops at tend to end up in that car. Assigned calls are reserved for their car
+// in the hall-call registry, so another car stopping at the origin leaves the group waiting for it.
+public class DestinationControlDispatcher {
+    public static final long SLOT_PENALTY_MILLIS = 2 * Elevator.DOOR_DWELL_MILLIS;
+    private static final double PASSENGER_WEIGHT = 70; // kg, as in Elevator
+    private static final double UNSERVABLE = 1e12;
+    private static final int MAX_SEARCH_ROUNDS = 10;
+
+    private final Scheduler scheduler;
+    private final Clock clock;
+    private final long windowMillis;
+    private final Queue<PassengerRequest> pending;
+    private final AtomicBoolean flushScheduled;
+    private final AtomicLong batches;
+    private final AtomicLong assigned;
+
+    public DestinationControlDispatcher(Scheduler scheduler, Clock clock, long windowMillis) {
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.windowMillis = windowMillis;
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.flushScheduled = new AtomicBoolean();
+        this.batches = new AtomicLong();
+        this.assigned = new AtomicLong();
+    }
+
+    // The first call of a window schedules the flush at the end of the window
+    public void submit(PassengerRequest request) {
+        pending.add(request);
+        if (flushScheduled.compareAndSet(false, true)) {
+            clock.schedule(windowMillis, () -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    // Assigns every collected call and returns the requests given to each car, by car id. Only that car
+    // boards them, unless it faults and the scheduler releases its calls to the rest of the fleet.
+    public synchronized Map<Integer, List<PassengerRequest>> flush() {
+        List<PassengerRequest> requests = new ArrayList<>();
+        PassengerRequest request;
+        while ((request = pending.poll()) != null) {
+            requests.add(request);
+        }
+        Map<Integer, List<PassengerRequest>> result = new LinkedHashMap<>();
+        if (requests.isEmpty()) {
+            return result;
+        }
+
+        // Groups are capped at what one car can carry
+        int groupLimit = Math.max(1, (int) (SystemConfig.getInstance().getMaxLoad() / PASSENGER_WEIGHT));
+        Map<String, CallGroup> openGroups = new HashMap<>();
+        List<CallGroup> groups = new ArrayList<>();
+        for (PassengerRequest call : requests) {
+            String key = call.getStartFloor() + ">" + call.getDestinationFloor();
+            CallGroup group = openGroups.get(key);
+            if (group == null || group.requests.size() >= groupLimit) {
+                group = new CallGroup(call.getStartFloor(), call.getDestinationFloor(), call.getDirection());
+                openGroups.put(key, group);
+                groups.add(group);
+            }
+            group.requests.add(call);
+        }
+
+        List<CarPlan> cars = new ArrayList<>();
+        for (Elevator elevator : scheduler.getElevators()) {
+            EtaEngine.CarProjection projection = EtaEngine.getInstance().project(elevator);
+            if (projection.getSnapshot().isInService()) {
+                cars.add(new CarPlan(elevator, projection));
+            }
+        }
+        batches.incrementAndGet();
+        if (cars.isEmpty()) {
+            for (PassengerRequest call : requests) {
+                scheduler.getHallCalls().add(call); // Unreserved, for whichever car comes next
+            }
+            return result;
+        }
+
+        int[] assignment = solve(groups, cars);
+        for (int g = 0; g < groups.size(); g++) {
+            CallGroup group = groups.get(g);
+            Elevator elevator = cars.get(assignment[g]).elevator;
+            for (PassengerRequest call : group.requests) {
+                scheduler.getHallCalls().add(call, elevator.getId());
+            }
+            elevator.addDestination(group.origin, group.direction);
+            List<PassengerRequest> carRequests = result.get(elevator.getId());
+            if (carRequests == null) {
+                carRequests = new ArrayList<>();
+                result.put(elevator.getId(), carRequests);
+            }
+            carRequests.addAll(group.requests);
+            assigned.addAndGet(group.requests.size());
+        }
+        return result;
+    }
+
+    // Returns the index of the car chosen for each group
+    int[] solve(List<CallGroup> groups, List<CarPlan> cars) {
+        int slots = (groups.size() + cars.size() - 1) / cars.size();
+        double[][] costs = new double[groups.size()][cars.size() * slots];
+        for (int g = 0; g < groups.size(); g++) {
+            CallGroup group = groups.get(g);
+            for (int c = 0; c < cars.size(); c++) {
+                double single = cars.get(c).cost(Collections.singletonList(group));
+                for (int s = 0; s < slots; s++) {
+                    costs[g][c * slots + s] = single + s * SLOT_PENALTY_MILLIS * group.requests.size();
+                }
+            }
+        }
+        int[] columns = hungarian(costs);
+        int[] assignment = new int[groups.size()];
+        for (int g = 0; g < groups.size(); g++) {
+            assignment[g] = columns[g] / slots;
+        }
+
+        // Refine with the exact joint cost, which sees shared stops between groups on the same car
+        List<List<CallGroup>> onCar = new ArrayList<>();
+        for (int c = 0; c < cars.size(); c++) {
+            onCar.add(new ArrayList<CallGroup>());
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            onCar.get(assignment[g]).add(groups.get(g));
+        }
+        double[] carCosts = new double[cars.size()];
+        for (int c = 0; c < cars.size(); c++) {
+            carCosts[c] = cars.get(c).cost(onCar.get(c));
+        }
+        for (int round = 0; round < MAX_SEARCH_ROUNDS; round++) {
+            boolean improved = false;
+            for (int g = 0; g < groups.size(); g++) {
+                int from = assignment[g];
+                CallGroup group = groups.get(g);
+                List<CallGroup> without = new ArrayList<>(onCar.get(from));
+                without.remove(group);
+                double fromCost = cars.get(from).cost(without);
+                for (int to = 0; to < cars.size(); to++) {
+                    if (to == from) {
+                        continue;
+                    }
+                    List<CallGroup> with = new ArrayList<>(onCar.get(to));
+                    with.add(group);
+                    double toCost = cars.get(to).cost(with);
+                    if (fromCost + toCost < carCosts[from] + carCosts[to] - 1e-6) {
+                        onCar.set(from, without);
+                        onCar.set(to, with);
+                        carCosts[from] = fromCost;
+                        carCosts[to] = toCost;
+                        assignment[g] = to;
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+        return assignment;
+    }
+
+    // Min-cost assignment of every row to a distinct column (rows <= columns), with row and column
+    // potentials in O(rows^2 * columns); returns the column chosen for each row
+    static int[] hungarian(double[][] costs) {
+        int n = costs.length;
+        int m = costs[0].length;
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] rowOfColumn = new int[m + 1];
+        int[] way = new int[m + 1];
+        for (int row = 1; row <= n; row++) {
+            rowOfColumn[0] = row;
+            int column = 0;
+            double[] minSlack = new double[m + 1];
+            Arrays.fill(minSlack, Double.POSITIVE_INFINITY);
+            boolean[] used = new boolean[m + 1];
+            do {
+                used[column] = true;
+                int currentRow = rowOfColumn[column];
+                double delta = Double.POSITIVE_INFINITY;
+                int nextColumn = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (!used[j]) {
+                        double slack = costs[currentRow - 1][j - 1] - u[currentRow] - v[j];
+                        if (slack < minSlack[j]) {
+                            minSlack[j] = slack;
+                            way[j] = column;
+                        }
+                        if (minSlack[j] < delta) {
+                            delta = minSlack[j];
+                            nextColumn = j;
+                        }
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[rowOfColumn[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minSlack[j] -= delta;
+                    }
+                }
+                column = nextColumn;
+            } while (rowOfColumn[column] != 0);
+            do {
+                int previous = way[column];
+                rowOfColumn[column] = rowOfColumn[previous];
+                column = previous;
+            } while (column != 0);
+        }
+        int[] result = new int[n];
+        for (int j = 1; j <= m; j++) {
+            if (rowOfColumn[j] != 0) {
+                result[rowOfColumn[j] - 1] = j - 1;
+            }
+        }
+        return result;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getAssignedCount() {
+        return assigned.get();
+    }
+
+    static class CallGroup {
+        private final int origin;
+        private final int destination;
+        private final Direction direction;
+        private final List<PassengerRequest> requests = new ArrayList<>();
+
+        CallGroup(int origin, int destination, Direction direction) {
+            this.origin = origin;
+            this.destination = destination;
+            this.direction = direction;
+        }
+    }
+
+    // State of one car captured at the start of a batch, from the shared ETA projection
+    static class CarPlan {
+        private final Elevator elevator;
+        private final int floor;
+        private final Direction direction;
+        private final BitSet upStops;
+        private final BitSet downStops;
+        private final double freeLoad;
+        private final int onboard;
+        private final long baseCompletion;
+
+        CarPlan(Elevator elevator, EtaEngine.CarProjection projection) {
+            ElevatorSnapshot snapshot = projection.getSnapshot();
+            this.elevator = elevator;
+            this.floor = snapshot.getCurrentFloor();
+            this.direction = snapshot.getDirection();
+            this.upStops = snapshot.upStops();
+            this.downStops = snapshot.downStops();
+            this.freeLoad = snapshot.getFreeLoad();
+            this.onboard = snapshot.getPassengerCount();
+            this.baseCompletion = projection.getRoute().getCompletionMillis();
+        }
+
+        double cost(List<CallGroup> groups) {
+            if (groups.isEmpty()) {
+                return 0;
+            }
+            int[] origins = new int[groups.size()];
+            Direction[] travel = new Direction[groups.size()];
+            int[] destinations = new int[groups.size()];
+            int passengers = 0;
+            for (int i = 0; i < groups.size(); i++) {
+                CallGroup group = groups.get(i);
+                origins[i] = group.origin;
+                travel[i] = group.direction;
+                destinations[i] = group.destination;
+                passengers += group.requests.size();
+            }
+            if (passengers * PASSENGER_WEIGHT > freeLoad) {
+                return UNSERVABLE;
+            }
+            RouteProjection route = RouteProjection.project(floor, direction, upStops, downStops,
+                    origins, travel, destinations);
+            double cost = (route.getCompletionMillis() - baseCompletion) * Math.max(1, onboard);
+            for (int i = 0; i < groups.size(); i++) {
+                long dropOff = route.getDropOffMillis(i);
+                if (dropOff < 0) {
+                    return UNSERVABLE;
+                }
+                cost += (double) dropOff * groups.get(i).requests.size();
+            }
+            return cost;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Replays the same traffic through one building per dispatch strategy on a SimulationClock and reports
+// the figures strategies are judged by: waiting time (call to boarding), journey time (call to arrival),
+// handling capacity (most passengers delivered in any five minutes) and energy used. Passengers still
+// waiting or riding at the end of the run count with their time so far, so a strategy cannot look better
+// by stranding its slowest calls. Runs are deterministic, so two strategies are compared on exactly the
+// same passengers.
+public class DispatchKpiHarness {
+    public static final long HANDLING_CAPACITY_WINDOW_MILLIS = 5 * 60 * 1000;
+
+    private final int floorCount;
+    private final int elevatorCount;
+
+    public DispatchKpiHarness(int floorCount, int elevatorCount) {
+        this.floorCount = floorCount;
+        this.elevatorCount = elevatorCount;
+    }
+
+    // Runs every strategy on the traffic; the report map keeps the order of the strategy map
+    public Map<String, KpiReport> compare(Map<String, DispatchStrategy> strategies, List<PassengerRequest> traffic,
+                                          long endMillis) {
+        Map<String, KpiReport> reports = new LinkedHashMap<>();
+        for (Map.Entry<String, DispatchStrategy> entry : strategies.entrySet()) {
+            reports.put(entry.getKey(), run(entry.getKey(), entry.getValue(), traffic, endMillis));
+        }
+        return reports;
+    }
+
+    public KpiReport run(String name, DispatchStrategy strategy, List<PassengerRequest> traffic, long endMillis) {
+        ElevatorSimulation simulation = new ElevatorSimulation(floorCount, elevatorCount, strategy);
+        simulation.getScheduler().setLogger(null); // A day of dispatch lines would only bury the report
+        Map<PassengerRequest, Long> boarded = new IdentityHashMap<>();
+        Set<PassengerRequest> delivered = Collections.newSetFromMap(new IdentityHashMap<PassengerRequest, Boolean>());
+        List<long[]> trips = new ArrayList<>(); // {wait, journey, arrival} of every delivered passenger
+        Elevator.PassengerListener listener = new Elevator.PassengerListener() {
+            @Override
+            public void onBoard(Elevator elevator, PassengerRequest request, long timeMillis) {
+                boarded.put(request, timeMillis);
+            }
+
+            @Override
+            public void onAlight(Elevator elevator, PassengerRequest request, long timeMillis) {
+                Long boardedAt = boarded.remove(request);
+                if (boardedAt != null) {
+                    delivered.add(request);
+                    trips.add(new long[]{boardedAt - request.getTimestamp(), timeMillis - request.getTimestamp(),
+                            timeMillis});
+                }
+            }
+        };
+        for (Elevator elevator : simulation.getElevators()) {
+            elevator.setPassengerListener(listener);
+        }
+        for (PassengerRequest request : traffic) {
+            simulation.submit(request);
+        }
+        simulation.runUntil(endMillis);
+        // {wait, journey} so far of every call made by the end but not delivered
+        List<long[]> unfinished = new ArrayList<>();
+        for (PassengerRequest request : traffic) {
+            if (request.getTimestamp() <= endMillis && !delivered.contains(request)) {
+                Long boardedAt = boarded.get(request);
+                long waited = (boardedAt != null ? boardedAt : endMillis) - request.getTimestamp();
+                unfinished.add(new long[]{waited, endMillis - request.getTimestamp()});
+            }
+        }
+        double energy = 0;
+        for (Elevator elevator : simulation.getElevators()) {
+            energy += elevator.getEnergyConsumption();
+        }
+        return new KpiReport(name, traffic.size(), trips, unfinished, energy);
+    }
+
+    public static class KpiReport {
+        private final String strategy;
+        private final int passengers;
+        private final int delivered;
+        private final int undelivered;
+        private final double averageWaitMillis;
+        private final long p95WaitMillis;
+        private final double averageJourneyMillis;
+        private final long p95JourneyMillis;
+        private final int handlingCapacity;
+        private final double energyConsumption;
+
+        // Wait and journey figures cover the unfinished trips too; handling capacity only counts arrivals
+        KpiReport(String strategy, int passengers, List<long[]> trips, List<long[]> unfinished,
+                  double energyConsumption) {
+            this.strategy = strategy;
+            this.passengers = passengers;
+            this.delivered = trips.size();
+            this.undelivered = unfinished.size();
+            long[] waits = new long[delivered + undelivered];
+            long[] journeys = new long[delivered + undelivered];
+            long[] arrivals = new long[delivered];
+            for (int i = 0; i < delivered; i++) {
+                waits[i] = trips.get(i)[0];
+                journeys[i] = trips.get(i)[1];
+                arrivals[i] = trips.get(i)[2];
+            }
+            for (int i = 0; i < undelivered; i++) {
+                waits[delivered + i] = unfinished.get(i)[0];
+                journeys[delivered + i] = unfinished.get(i)[1];
+            }
+            this.averageWaitMillis = average(waits);
+            this.p95WaitMillis = percentile(waits, 0.95);
+            this.averageJourneyMillis = average(journeys);
+            this.p95JourneyMillis = percentile(journeys, 0.95);
+            this.handlingCapacity = busiestWindow(arrivals);
+            this.energyConsumption = energyConsumption;
+        }
+
+        private static double average(long[] values) {
+            long sum = 0;
+            for (long value : values) {
+                sum += value;
+            }
+            return values.length == 0 ? 0 : (double) sum / values.length;
+        }
+
+        // Nearest-rank percentile; sorts the array
+        private static long percentile(long[] values, double fraction) {
+            if (values.length == 0) {
+                return 0;
+            }
+            Arrays.sort(values);
+            return values[Math.max(0, (int) Math.ceil(fraction * values.length) - 1)];
+        }
+
+        // Most arrivals in any window of HANDLING_CAPACITY_WINDOW_MILLIS; sorts the array
+        private static int busiestWindow(long[] arrivals) {
+            Arrays.sort(arrivals);
+            int best = 0;
+            int from = 0;
+            for (int to = 0; to < arrivals.length; to++) {
+                while (arrivals[to] - arrivals[from] >= HANDLING_CAPACITY_WINDOW_MILLIS) {
+                    from++;
+                }
+                best = Math.max(best, to - from + 1);
+            }
+            return best;
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public int getPassengers() {
+            return passengers;
+        }
+
+        public int getDelivered() {
+            return delivered;
+        }
+
+        // Passengers who had called by the end of the run but not yet arrived
+        public int getUndelivered() {
+            return undelivered;
+        }
+
+        public double getAverageWaitMillis() {
+            return averageWaitMillis;
+        }
+
+        public long getP95WaitMillis() {
+            return p95WaitMillis;
+        }
+
+        public double getAverageJourneyMillis() {
+            return averageJourneyMillis;
+        }
+
+        public long getP95JourneyMillis() {
+            return p95JourneyMillis;
+        }
+
+        // Passengers delivered in the busiest five minutes
+        public int getHandlingCapacity() {
+            return handlingCapacity;
+        }
+
+        public double getEnergyConsumption() {
+            return energyConsumption;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d/%d delivered, %d undelivered, wait avg %.1fs p95 %.1fs, journey avg %.1fs p95 %.1fs, "
+                            + "%d per 5 min, energy %.1f", strategy, delivered, passengers, undelivered,
+                    averageWaitMillis / 1000, p95WaitMillis / 1000.0, averageJourneyMillis / 1000,
+                    p95JourneyMillis / 1000.0, handlingCapacity, energyConsumption);
+        }
+    }
+}
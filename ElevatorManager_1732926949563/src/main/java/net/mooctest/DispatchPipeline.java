@@ -0,0 +1,173 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Staged request intake in front of the Scheduler. Producers only offer to a bounded lock-free queue;
+// a single dispatcher thread drains it in micro-batches, assigns each batch against one copy of the
+// fleet using the scheduler's strategy and hands log lines to an AsyncLogger. A full queue rejects the
+// request instead of blocking the producer, and the rejections are counted as backpressure.
+public class DispatchPipeline {
+    private final Scheduler scheduler;
+    private final BoundedMpscQueue<PendingRequest> intake;
+    private final int maxBatchSize;
+    private final AsyncLogger logger;
+    private final Thread dispatcher;
+    private volatile boolean running;
+    private volatile boolean idle;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong unassigned = new AtomicLong();
+    private final AtomicLong invalid = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private volatile int maxQueueDepth;
+
+    public DispatchPipeline(Scheduler scheduler, int capacity, int maxBatchSize, AsyncLogger logger) {
+        this.scheduler = scheduler;
+        this.intake = new BoundedMpscQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.logger = logger;
+        this.dispatcher = new Thread(this::dispatchLoop, "dispatch-pipeline");
+        this.dispatcher.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        dispatcher.start();
+    }
+
+    // Dispatches whatever is still queued, then stops the dispatcher thread
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        dispatcher.join();
+    }
+
+    // Returns false, without blocking, when the intake queue is full or the request names a floor the
+    // building does not have
+    public boolean submit(PassengerRequest request) {
+        if (!scheduler.isServiceable(request)) {
+            invalid.incrementAndGet();
+            return false;
+        }
+        if (!intake.offer(new PendingRequest(request, System.nanoTime()))) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        submitted.incrementAndGet();
+        int depth = intake.size();
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth; // Racy high-water mark, good enough for monitoring
+        }
+        if (idle) {
+            LockSupport.unpark(dispatcher);
+        }
+        return true;
+    }
+
+    private void dispatchLoop() {
+        List<PendingRequest> batch = new ArrayList<>(maxBatchSize);
+        while (running || !intake.isEmpty()) {
+            if (intake.drainTo(batch, maxBatchSize) == 0) {
+                idle = true;
+                if (intake.isEmpty() && running) {
+                    LockSupport.parkNanos(this, 1_000_000L);
+                }
+                idle = false;
+                continue;
+            }
+            dispatchBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void dispatchBatch(List<PendingRequest> batch) {
+        List<Elevator> fleet = new ArrayList<>(scheduler.getElevators());
+        DispatchStrategy strategy = scheduler.getDispatchStrategy();
+        long now = System.nanoTime();
+        for (PendingRequest pending : batch) {
+            PassengerRequest request = pending.request;
+            queueWaitNanos.addAndGet(now - pending.enqueuedNanos);
+            try {
+                scheduler.getHallCalls().add(request);
+                Elevator elevator = strategy.selectElevator(fleet, request);
+                if (elevator != null) {
+                    elevator.addDestination(request.getStartFloor(), request.getDirection());
+                    dispatched.incrementAndGet();
+                    logger.log("Elevator " + elevator.getId() + " dispatched for request: " + request);
+                } else {
+                    unassigned.incrementAndGet();
+                    logger.log("No available elevators for request: " + request);
+                }
+            } catch (RuntimeException e) {
+                // One bad request must not kill the dispatcher thread or the rest of the batch
+                failed.incrementAndGet();
+                logger.log("Dispatch failed for request: " + request + ": " + e.getMessage());
+            }
+        }
+        batches.incrementAndGet();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+
+    public long getUnassignedCount() {
+        return unassigned.get();
+    }
+
+    // Requests refused by submit because a floor is outside the building
+    public long getInvalidCount() {
+        return invalid.get();
+    }
+
+    // Requests whose dispatch threw; the rest of their batch is still dispatched
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public int getQueueDepth() {
+        return intake.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public int getCapacity() {
+        return intake.getCapacity();
+    }
+
+    // Average time a request spent in the intake queue before it was dispatched
+    public double getAverageQueueWaitMillis() {
+        long processed = dispatched.get() + unassigned.get();
+        return processed > 0 ? queueWaitNanos.get() / 1e6 / processed : 0;
+    }
+
+    private static class PendingRequest {
+        private final PassengerRequest request;
+        private final long enqueuedNanos;
+
+        PendingRequest(PassengerRequest request, long enqueuedNanos) {
+            this.request = request;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -10,4 +10,11 @@ public interface DispatchStrategy {
      * @return 选定的电梯，若没有合适的电梯返回 null
      */
     Elevator selectElevator(List<Elevator> elevators, PassengerRequest request);
+
+    /**
+     * 估算候选电梯接客与送达时间的 ETA 引擎，所有策略共用
+     */
+    default EtaEngine getEtaEngine() {
+        return EtaEngine.getInstance();
+    }
 }
@@ -1,15 +1,22 @@
 package net.mooctest;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.*;
+import java.util.function.Consumer;
 
 public class Elevator extends Observable implements Runnable {
+    public static final long DOOR_DWELL_MILLIS = 500;
+    public static final long FLOOR_TRAVEL_MILLIS = 1000;
+    public static final long EMERGENCY_FLOOR_MILLIS = 800;
+    public static final long LEFT_BEHIND_RETRY_MILLIS = 5000;
+
     private final int id;
     private volatile int currentFloor;
     private volatile Direction direction;
     private volatile ElevatorStatus status;
     private final List<PassengerRequest> passengerList;
-    private final Set<Integer> destinationSet;
+    private final LookStateMachine stops;
     private final ReentrantLock lock;
     private final Condition condition;
     private final double maxLoad; // Maximum load in kg
@@ -18,14 +25,30 @@ public class Elevator extends Observable implements Runnable {
     private final List<Observer> observers;
     private volatile double energyConsumption;
     private volatile ElevatorMode mode;
+    private final Clock clock;
+    private volatile Runnable wakeUpListener;
+    private volatile Thread runner;
+    private long version; // Guarded by lock
+    private long tripCount; // Guarded by lock
+    private long doorCycleCount; // Guarded by lock
+    private volatile ElevatorSnapshot snapshot;
+    private final List<Consumer<ElevatorSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+    private final List<PassengerRequest> leftBehind = new ArrayList<>(); // Did not fit; guarded by lock
+    private volatile PassengerListener passengerListener;
+    volatile EtaEngine.CarProjection etaProjection; // Cached by EtaEngine for the state version it was built from
 
     public Elevator(int id, Scheduler scheduler) {
+        this(id, scheduler, RealTimeClock.getInstance());
+    }
+
+    public Elevator(int id, Scheduler scheduler, Clock clock) {
         this.id = id;
         this.currentFloor = 1;
         this.direction = Direction.UP;
         this.status = ElevatorStatus.IDLE;
         this.passengerList = new ArrayList<>();
-        this.destinationSet = new TreeSet<>();
+        this.stops = new LookStateMachine(scheduler != null && scheduler.getFloorCount() > 0
+                ? scheduler.getFloorCount() : SystemConfig.getInstance().getFloorCount());
         this.lock = new ReentrantLock();
         this.condition = lock.newCondition();
         this.maxLoad = SystemConfig.getInstance().getMaxLoad();
@@ -34,6 +57,9 @@ public class Elevator extends Observable implements Runnable {
         this.mode = ElevatorMode.NORMAL;
         this.observers = new ArrayList<>();
         this.currentLoad = 0.0;
+        this.clock = clock;
+        this.snapshot = new ElevatorSnapshot(id, 0, currentFloor, direction, status, mode, currentLoad, maxLoad, 0,
+                energyConsumption, 0, 0, new BitSet(), new BitSet());
     }
 
     public int getId() {
@@ -56,6 +82,46 @@ public class Elevator extends Observable implements Runnable {
         return new ArrayList<>(passengerList);
     }
 
+    public int getPassengerCount() {
+        lock.lock();
+        try {
+            return passengerList.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStateVersion() {
+        return snapshot.getVersion();
+    }
+
+    // Latest consistent state of the car; never blocks
+    public ElevatorSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Publishes the current state as a new snapshot; called with the lock held after every change, so
+    // listeners see the snapshots of one car in version order
+    private void publish() {
+        stops.drain(currentFloor, direction);
+        ElevatorSnapshot published = new ElevatorSnapshot(id, ++version, currentFloor, direction, status, mode,
+                currentLoad, maxLoad, passengerList.size(), energyConsumption, tripCount, doorCycleCount,
+                stops.getStops(Direction.UP), stops.getStops(Direction.DOWN));
+        snapshot = published;
+        for (Consumer<ElevatorSnapshot> listener : snapshotListeners) {
+            listener.accept(published);
+        }
+    }
+
+    // Listeners run on the publishing thread with the car lock held and must not call back into the car
+    public void addSnapshotListener(Consumer<ElevatorSnapshot> listener) {
+        snapshotListeners.add(listener);
+    }
+
+    public void removeSnapshotListener(Consumer<ElevatorSnapshot> listener) {
+        snapshotListeners.remove(listener);
+    }
+
     public double getEnergyConsumption() {
         return energyConsumption;
     }
@@ -70,116 +136,277 @@ public class Elevator extends Observable implements Runnable {
         }
     }
 
+    // Blocking driver for a dedicated thread; the lock is only held while a step changes state, never
+    // while the car is travelling or dwelling, so callers adding destinations are not held up
     @Override
     public void run() {
-        while (true) {
-            try {
-                lock.lock();
-                while (status == ElevatorStatus.IDLE || destinationSet.isEmpty()) {
-                    condition.await();
+        runner = Thread.currentThread();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!hasPendingWork()) {
+                    LockSupport.park(this);
+                    continue;
                 }
-                if (status == ElevatorStatus.EMERGENCY) {
-                    moveToFirstFloor();
-                } else {
-                    move();
+                long duration = step();
+                if (duration > 0) {
+                    clock.sleep(duration);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } finally {
-                lock.unlock();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            runner = null;
         }
     }
 
     public void move() throws InterruptedException {
-        status = ElevatorStatus.MOVING;
-        updateDirection();
+        long duration = step();
+        if (duration > 0) {
+            clock.sleep(duration);
+        }
+    }
 
-        if (direction == Direction.UP) {
-            currentFloor++;
-        } else if (direction == Direction.DOWN) {
-            currentFloor--;
+    public void openDoor() throws InterruptedException {
+        List<PassengerRequest> retry;
+        lock.lock();
+        try {
+            serveFloor(direction);
+            publish();
+        } finally {
+            retry = takeLeftBehind();
+            lock.unlock();
         }
+        redispatch(retry);
+        clock.sleep(DOOR_DWELL_MILLIS); // Simulate door open time
+    }
 
+    // Performs one action of the LOOK state machine without blocking and returns how long it takes in
+    // milliseconds, or -1 when the car has nothing to do. Clock-driven runtimes call this instead of run().
+    public long step() {
+        long duration;
+        List<PassengerRequest> retry;
+        lock.lock();
+        try {
+            duration = advance();
+        } finally {
+            publish();
+            retry = takeLeftBehind();
+            lock.unlock();
+        }
+        redispatch(retry);
+        return duration;
+    }
+
+    // One LOOK action; called with the lock held
+    private long advance() {
+        if (status == ElevatorStatus.EMERGENCY) {
+            if (currentFloor == 1) {
+                stops.clear();
+                status = ElevatorStatus.IDLE;
+                return -1;
+            }
+            currentFloor += currentFloor > 1 ? -1 : 1;
+            energyConsumption += 1.0;
+            return EMERGENCY_FLOOR_MILLIS;
+        }
+        stops.drain(currentFloor, direction);
+        if (!stops.hasStops()) {
+            if (status == ElevatorStatus.MOVING || status == ElevatorStatus.STOPPED) {
+                status = ElevatorStatus.IDLE; // Out-of-service statuses are kept while the car rests
+            }
+            return -1;
+        }
+
+        direction = stops.chooseDirection(currentFloor, direction);
+        if (stops.isStop(currentFloor, direction)) {
+            serveFloor(direction); // Call at the floor the car is waiting on
+            return DOOR_DWELL_MILLIS;
+        }
+
+        if (status != ElevatorStatus.MOVING) {
+            tripCount++;
+        }
+        status = ElevatorStatus.MOVING;
+        currentFloor += direction == Direction.UP ? 1 : -1;
         energyConsumption += 1.0; // Example energy consumption calculation
 
-        if (destinationSet.contains(currentFloor)) {
-            openDoor();
-            destinationSet.remove(currentFloor);
+        Direction leaving = stops.stopDirection(currentFloor, direction);
+        if (leaving == null) {
+            return FLOOR_TRAVEL_MILLIS;
         }
+        serveFloor(leaving);
+        return FLOOR_TRAVEL_MILLIS + DOOR_DWELL_MILLIS;
+    }
 
-        if (destinationSet.isEmpty()) {
-            status = ElevatorStatus.IDLE;
+    private List<PassengerRequest> takeLeftBehind() {
+        if (leftBehind.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<PassengerRequest> retry = new ArrayList<>(leftBehind);
+        leftBehind.clear();
+        return retry;
+    }
+
+    // Passengers a full car could not take are already back at their floor; another car is sent for them
+    // once this car's lock is released, retrying while every car is busy or full
+    private void redispatch(List<PassengerRequest> retry) {
+        for (PassengerRequest request : retry) {
+            if (scheduler.getHallCalls().hasCall(request.getStartFloor(), request.getDirection())
+                    && !scheduler.dispatchElevator(request)) {
+                clock.schedule(LEFT_BEHIND_RETRY_MILLIS, () -> redispatch(Collections.singletonList(request)));
+            }
         }
     }
 
-    public void openDoor() throws InterruptedException {
+    // Opens the door at the current floor for passengers travelling in the given direction
+    private void serveFloor(Direction leaving) {
+        direction = leaving;
         status = ElevatorStatus.STOPPED;
+        doorCycleCount++;
+        stops.serve(currentFloor, leaving);
         unloadPassengers();
         loadPassengers();
-        Thread.sleep(500); // Simulate door open time
+        stops.drain(currentFloor, direction);
+        if (!stops.hasStops() && !continueToNextCall()) {
+            status = ElevatorStatus.IDLE;
+        }
+    }
+
+    // At the end of its run the car carries on to the nearest waiting call further along in its direction,
+    // found in the registry's call bitmap, so a call no car was sent for is still collected. The sweep only
+    // ever moves on in one direction, so it ends at the last call or the top or bottom floor.
+    private boolean continueToNextCall() {
+        if (mode != ElevatorMode.NORMAL && mode != ElevatorMode.ENERGY_SAVING || currentLoad >= maxLoad) {
+            return false;
+        }
+        int from = currentFloor + (direction == Direction.UP ? 1 : -1);
+        int next = scheduler.getHallCalls().nextCall(from, direction);
+        if (next < 1) {
+            return false;
+        }
+        stops.request(next, direction);
+        return true;
+    }
+
+    public boolean hasPendingWork() {
+        lock.lock();
+        try {
+            return stops.hasStops() || stops.hasPendingRequests()
+                    || (status == ElevatorStatus.EMERGENCY && currentFloor != 1);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void unloadPassengers() {
-        passengerList.removeIf(request -> request.getDestinationFloor() == currentFloor);
+        PassengerListener listener = passengerListener;
+        Iterator<PassengerRequest> riders = passengerList.iterator();
+        while (riders.hasNext()) {
+            PassengerRequest request = riders.next();
+            if (request.getDestinationFloor() == currentFloor) {
+                riders.remove();
+                if (listener != null) {
+                    listener.onAlight(this, request, clock.currentTimeMillis());
+                }
+            }
+        }
         currentLoad = passengerList.size() * 70; // Assuming each passenger weighs 70 kg
     }
 
     public void loadPassengers() {
-        List<PassengerRequest> requests = scheduler.getRequestsAtFloor(currentFloor, direction);
+        PassengerListener listener = passengerListener;
+        List<PassengerRequest> requests = scheduler.getRequestsAtFloor(currentFloor, direction, id);
         for (PassengerRequest request : requests) {
             if (currentLoad < maxLoad) {
                 passengerList.add(request);
-                destinationSet.add(request.getDestinationFloor());
+                stops.request(request.getDestinationFloor(), null);
                 currentLoad += 70;
+                if (listener != null) {
+                    listener.onBoard(this, request, clock.currentTimeMillis());
+                }
+            } else {
+                scheduler.getHallCalls().add(request); // Waits for the next car instead of being lost
+                leftBehind.add(request);
             }
         }
     }
 
     public void updateDirection() {
-        if (destinationSet.isEmpty()) {
-            status = ElevatorStatus.IDLE;
-        } else if (Collections.min(destinationSet) > currentFloor) {
-            direction = Direction.UP;
-        } else {
-            direction = Direction.DOWN;
-        }
-    }
-
-    public void addDestination(int floor) {
         lock.lock();
         try {
-            destinationSet.add(floor);
-            condition.signalAll();
+            stops.drain(currentFloor, direction);
+            if (!stops.hasStops()) {
+                status = ElevatorStatus.IDLE;
+            } else {
+                direction = stops.chooseDirection(currentFloor, direction);
+            }
+            publish();
         } finally {
             lock.unlock();
         }
     }
 
-    public void moveToFirstFloor() throws InterruptedException {
-        while (currentFloor != 1) {
-            if (direction == Direction.UP) currentFloor++;
-            else currentFloor--;
+    // Car call; lock-free so dispatch never waits on a moving car
+    public void addDestination(int floor) {
+        addDestination(floor, null);
+    }
 
-            energyConsumption += 1.0;
-            Thread.sleep(800); // Fast travel in emergency
+    // Hall call for passengers travelling in the given direction, or a car call when direction is null
+    public void addDestination(int floor, Direction direction) {
+        stops.request(floor, direction);
+        if (lock.tryLock()) {
+            try {
+                publish();
+            } finally {
+                lock.unlock();
+            }
+        } // Otherwise the holder publishes the new stop when it finishes or on the car's next step
+        fireWakeUp();
+    }
+
+    public void moveToFirstFloor() throws InterruptedException {
+        while (true) {
+            lock.lock();
+            try {
+                if (currentFloor == 1) {
+                    status = ElevatorStatus.IDLE;
+                    publish();
+                    return;
+                }
+                currentFloor += currentFloor > 1 ? -1 : 1;
+                energyConsumption += 1.0;
+                publish();
+            } finally {
+                lock.unlock();
+            }
+            clock.sleep(EMERGENCY_FLOOR_MILLIS); // Fast travel in emergency
         }
-        status = ElevatorStatus.IDLE;
     }
 
     public void handleEmergency() {
         lock.lock();
         try {
             status = ElevatorStatus.EMERGENCY;
-            destinationSet.clear();
+            stops.clear();
             passengerList.clear();
-            destinationSet.add(1);
+            publish();
             condition.signalAll();
             notifyObservers(ElevatorStatus.EMERGENCY);
         } finally {
             lock.unlock();
         }
+        fireWakeUp();
+    }
+
+    private void fireWakeUp() {
+        Thread thread = runner;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        Runnable listener = wakeUpListener;
+        if (listener != null) {
+            listener.run();
+        }
     }
 
     public List<PassengerRequest> clearAllRequests() {
@@ -187,7 +414,8 @@ public class Elevator extends Observable implements Runnable {
         try {
             List<PassengerRequest> pendingRequests = new ArrayList<>(passengerList);
             passengerList.clear();
-            destinationSet.clear();
+            stops.clear();
+            publish();
             condition.signalAll();
             return pendingRequests;
         } finally {
@@ -196,19 +424,55 @@ public class Elevator extends Observable implements Runnable {
     }
 
     public void setCurrentFloor(int currentFloor) {
-        this.currentFloor = currentFloor;
+        lock.lock();
+        try {
+            this.currentFloor = currentFloor;
+            publish();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void setDirection(Direction direction) {
-        this.direction = direction;
+        lock.lock();
+        try {
+            this.direction = direction;
+            publish();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public void setStatus(ElevatorStatus status) {
-        this.status = status;
+        lock.lock();
+        try {
+            this.status = status;
+            publish();
+        } finally {
+            lock.unlock();
+        }
     }
 
+    // Snapshot of the floors the car will stop at
     public Set<Integer> getDestinationSet() {
-        return destinationSet;
+        lock.lock();
+        try {
+            stops.drain(currentFloor, direction);
+            return stops.getStops();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Snapshot of the floors the car will stop at while travelling in the given direction
+    public BitSet getStops(Direction direction) {
+        lock.lock();
+        try {
+            stops.drain(currentFloor, this.direction);
+            return stops.getStops(direction);
+        } finally {
+            lock.unlock();
+        }
     }
 
     public ReentrantLock getLock() {
@@ -228,7 +492,13 @@ public class Elevator extends Observable implements Runnable {
     }
 
     public void setCurrentLoad(double currentLoad) {
-        this.currentLoad = currentLoad;
+        lock.lock();
+        try {
+            this.currentLoad = currentLoad;
+            publish();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public Scheduler getScheduler() {
@@ -240,7 +510,13 @@ public class Elevator extends Observable implements Runnable {
     }
 
     public void setEnergyConsumption(double energyConsumption) {
-        this.energyConsumption = energyConsumption;
+        lock.lock();
+        try {
+            this.energyConsumption = energyConsumption;
+            publish();
+        } finally {
+            lock.unlock();
+        }
     }
 
     public ElevatorMode getMode() {
@@ -248,6 +524,32 @@ public class Elevator extends Observable implements Runnable {
     }
 
     public void setMode(ElevatorMode mode) {
-        this.mode = mode;
+        lock.lock();
+        try {
+            this.mode = mode;
+            publish();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    // Called outside the elevator lock whenever the car receives new work
+    public void setWakeUpListener(Runnable wakeUpListener) {
+        this.wakeUpListener = wakeUpListener;
+    }
+
+    public void setPassengerListener(PassengerListener passengerListener) {
+        this.passengerListener = passengerListener;
+    }
+
+    // Told when riders board and alight; called with the car lock held
+    public interface PassengerListener {
+        void onBoard(Elevator elevator, PassengerRequest request, long timeMillis);
+
+        void onAlight(Elevator elevator, PassengerRequest request, long timeMillis);
     }
 }
@@ -0,0 +1,52 @@
+package net.mooctest;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Drives one elevator from a clock instead of a dedicated thread: each run performs one step and
+// schedules the next one after the time that step takes. An idle car is parked and woken up again
+// when a destination is added.
+public class ElevatorDriver implements Runnable {
+    private final Elevator elevator;
+    private final Clock clock;
+    private final AtomicBoolean active;
+
+    public ElevatorDriver(Elevator elevator, Clock clock) {
+        this.elevator = elevator;
+        this.clock = clock;
+        this.active = new AtomicBoolean();
+        elevator.setWakeUpListener(this::wakeUp);
+    }
+
+    public void wakeUp() {
+        if (active.compareAndSet(false, true)) {
+            clock.schedule(0, this);
+        }
+    }
+
+    // A step that throws still releases the driver, so one failure cannot park the car for good
+    @Override
+    public void run() {
+        long duration = -1;
+        try {
+            duration = elevator.step();
+        } finally {
+            if (duration >= 0) {
+                clock.schedule(duration, this);
+            } else {
+                active.set(false);
+                // A destination added between the step and the reset above must not be lost
+                if (elevator.hasPendingWork()) {
+                    wakeUp();
+                }
+            }
+        }
+    }
+
+    public boolean isActive() {
+        return active.get();
+    }
+
+    public Elevator getElevator() {
+        return elevator;
+    }
+}
@@ -1,5 +1,5 @@
 package net.mooctest;
 
 public enum ElevatorMode {
-    NORMAL, ENERGY_SAVING, EMERGENCY
+    NORMAL, ENERGY_SAVING, EMERGENCY, MAINTENANCE
 }
@@ -0,0 +1,87 @@
+package net.mooctest;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs any number of elevators on a fixed set of event loops instead of one blocking thread per car.
+// Each car is bound to one loop and advanced by an ElevatorDriver, so door dwell and floor travel are
+// scheduled on the loop rather than slept. Loops can run on virtual threads when the JDK provides them.
+public class ElevatorRuntime {
+    private final List<EventLoopClock> loops;
+    private final List<ElevatorDriver> drivers;
+    private final boolean virtualThreads;
+    private final AtomicInteger nextLoop;
+
+    public ElevatorRuntime(int loopCount, boolean preferVirtualThreads) {
+        ThreadFactory factory = preferVirtualThreads ? virtualThreadFactory() : null;
+        this.virtualThreads = factory != null;
+        if (factory == null) {
+            factory = new PlatformThreadFactory();
+        }
+        this.loops = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, loopCount); i++) {
+            loops.add(new EventLoopClock(factory));
+        }
+        this.drivers = new CopyOnWriteArrayList<>();
+        this.nextLoop = new AtomicInteger();
+    }
+
+    public ElevatorRuntime() {
+        this(Runtime.getRuntime().availableProcessors(), false);
+    }
+
+    // Binds the car to the next loop and starts it if it already has work
+    public ElevatorDriver register(Elevator elevator) {
+        EventLoopClock loop = loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+        ElevatorDriver driver = new ElevatorDriver(elevator, loop);
+        drivers.add(driver);
+        if (elevator.hasPendingWork()) {
+            driver.wakeUp();
+        }
+        return driver;
+    }
+
+    public List<ElevatorDriver> getDrivers() {
+        return Collections.unmodifiableList(drivers);
+    }
+
+    public int getLoopCount() {
+        return loops.size();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void shutdown() {
+        for (EventLoopClock loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    // Thread.ofVirtual().factory() on JDKs that have it; looked up reflectively to keep building on Java 8
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method name = builderType.getMethod("name", String.class, long.class);
+            builder = name.invoke(builder, "elevator-loop-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static class PlatformThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "elevator-loop-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Building simulation on a SimulationClock. Requests are submitted at their timestamps, each car is
+// advanced by an ElevatorDriver and maintenance is polled from the same clock, so a day of traffic
+// replays in seconds and every run with the same input produces the same result.
+public class ElevatorSimulation {
+    private final SimulationClock clock;
+    private final Scheduler scheduler;
+    private final List<Elevator> elevators;
+    private final List<ElevatorDriver> drivers;
+    private final MaintenanceManager maintenanceManager;
+    private final AnalyticsEngine analyticsEngine;
+    private ParkingPolicy parkingPolicy;
+
+    public ElevatorSimulation(int floorCount, int elevatorCount, DispatchStrategy strategy) {
+        this.clock = new SimulationClock();
+        this.elevators = new ArrayList<>();
+        this.drivers = new ArrayList<>();
+        this.scheduler = new Scheduler(elevators, floorCount, strategy);
+        for (int i = 1; i <= elevatorCount; i++) {
+            Elevator elevator = new Elevator(i, scheduler, clock);
+            elevators.add(elevator);
+            drivers.add(new ElevatorDriver(elevator, clock));
+        }
+        this.maintenanceManager = new MaintenanceManager(clock);
+        this.analyticsEngine = new AnalyticsEngine(clock, floorCount);
+    }
+
+    // Submits the request at its timestamp; every call also trains the traffic forecast. A call for a floor
+    // the building does not have is rejected now rather than when it comes due.
+    public void submit(PassengerRequest request) {
+        scheduler.checkServiceable(request);
+        clock.scheduleAt(request.getTimestamp(), () -> {
+            analyticsEngine.recordRequest(request);
+            scheduler.submitRequest(request);
+        });
+    }
+
+    // Moves idle cars to the floors the forecast expects to get busy
+    public ParkingPolicy enableParking() {
+        if (parkingPolicy == null) {
+            parkingPolicy = new ParkingPolicy(elevators, analyticsEngine, clock);
+            parkingPolicy.start();
+        }
+        return parkingPolicy;
+    }
+
+    // Plans preventive maintenance windows from car usage and the learned traffic forecast
+    public PredictiveMaintenancePlanner enablePredictiveMaintenance(PredictiveMaintenancePlanner.UsageLimits limits,
+                                                                   long windowMillis, int maxConcurrent) {
+        PredictiveMaintenancePlanner planner = new PredictiveMaintenancePlanner(elevators, maintenanceManager,
+                analyticsEngine.getTrafficModel(), clock, limits, windowMillis, maxConcurrent);
+        planner.start();
+        return planner;
+    }
+
+    // Takes a car out of service at the given time: its passengers are redistributed and a repair is scheduled
+    public void injectFault(long timeMillis, int elevatorId) {
+        clock.scheduleAt(timeMillis, () -> {
+            Elevator elevator = elevators.get(elevatorId - 1);
+            scheduler.redistributeRequests(elevator);
+            maintenanceManager.scheduleMaintenance(elevator);
+        });
+    }
+
+    public void runUntil(long endMillis) {
+        clock.runUntil(endMillis);
+    }
+
+    public SimulationClock getClock() {
+        return clock;
+    }
+
+    public Scheduler getScheduler() {
+        return scheduler;
+    }
+
+    public List<Elevator> getElevators() {
+        return Collections.unmodifiableList(elevators);
+    }
+
+    public List<ElevatorDriver> getDrivers() {
+        return Collections.unmodifiableList(drivers);
+    }
+
+    public MaintenanceManager getMaintenanceManager() {
+        return maintenanceManager;
+    }
+
+    public AnalyticsEngine getAnalyticsEngine() {
+        return analyticsEngine;
+    }
+}
@@ -0,0 +1,123 @@
+package net.mooctest;
+
+import java.util.BitSet;
+
+// Immutable state of one car at one version. The car publishes a new snapshot through a single volatile
+// reference after every state change, so readers get floor, direction, status, load and stops that
+// belong together without taking the car's lock.
+public class ElevatorSnapshot {
+    private final int elevatorId;
+    private final long version;
+    private final int currentFloor;
+    private final Direction direction;
+    private final ElevatorStatus status;
+    private final ElevatorMode mode;
+    private final double currentLoad;
+    private final double maxLoad;
+    private final int passengerCount;
+    private final double energyConsumption;
+    private final long tripCount;
+    private final long doorCycleCount;
+    private final BitSet upStops;   // Never modified after construction
+    private final BitSet downStops;
+
+    ElevatorSnapshot(int elevatorId, long version, int currentFloor, Direction direction, ElevatorStatus status,
+                     ElevatorMode mode, double currentLoad, double maxLoad, int passengerCount,
+                     double energyConsumption, long tripCount, long doorCycleCount, BitSet upStops,
+                     BitSet downStops) {
+        this.elevatorId = elevatorId;
+        this.version = version;
+        this.currentFloor = currentFloor;
+        this.direction = direction;
+        this.status = status;
+        this.mode = mode;
+        this.currentLoad = currentLoad;
+        this.maxLoad = maxLoad;
+        this.passengerCount = passengerCount;
+        this.energyConsumption = energyConsumption;
+        this.tripCount = tripCount;
+        this.doorCycleCount = doorCycleCount;
+        this.upStops = upStops;
+        this.downStops = downStops;
+    }
+
+    public int getElevatorId() {
+        return elevatorId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getCurrentFloor() {
+        return currentFloor;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public ElevatorStatus getStatus() {
+        return status;
+    }
+
+    public ElevatorMode getMode() {
+        return mode;
+    }
+
+    public double getCurrentLoad() {
+        return currentLoad;
+    }
+
+    public double getMaxLoad() {
+        return maxLoad;
+    }
+
+    public double getFreeLoad() {
+        return maxLoad - currentLoad;
+    }
+
+    public int getPassengerCount() {
+        return passengerCount;
+    }
+
+    public double getEnergyConsumption() {
+        return energyConsumption;
+    }
+
+    // Times the car has set off from rest
+    public long getTripCount() {
+        return tripCount;
+    }
+
+    public long getDoorCycleCount() {
+        return doorCycleCount;
+    }
+
+    // Cars out of service take no calls, nor do cars finishing their trips before maintenance
+    public boolean isInService() {
+        return status != ElevatorStatus.FAULT && status != ElevatorStatus.MAINTENANCE
+                && status != ElevatorStatus.EMERGENCY && mode != ElevatorMode.MAINTENANCE;
+    }
+
+    public boolean hasStop(int floor, Direction direction) {
+        return (direction == Direction.DOWN ? downStops : upStops).get(floor);
+    }
+
+    public boolean hasStops() {
+        return !upStops.isEmpty() || !downStops.isEmpty();
+    }
+
+    public BitSet getStops(Direction direction) {
+        return (BitSet) (direction == Direction.DOWN ? downStops : upStops).clone();
+    }
+
+    // Shared without copying for callers that only read, such as route projections
+    BitSet upStops() {
+        return upStops;
+    }
+
+    BitSet downStops() {
+        return downStops;
+    }
+}
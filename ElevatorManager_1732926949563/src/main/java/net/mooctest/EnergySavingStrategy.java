@@ -3,23 +3,36 @@ package net.mooctest;
 import java.util.List;
 
 public class EnergySavingStrategy implements DispatchStrategy {
+    public static final long NEARBY_PICKUP_MILLIS = 5 * Elevator.FLOOR_TRAVEL_MILLIS;
 
     @Override
     public Elevator selectElevator(List<Elevator> elevators, PassengerRequest request) {
+        Elevator selected = null;
+        long leastAddedTravel = Long.MAX_VALUE;
         for (Elevator elevator : elevators) {
-            if (elevator.getStatus() == ElevatorStatus.IDLE) {
-                return elevator; // 优先选择空闲的电梯
+            if (elevator.getSnapshot().getStatus() == ElevatorStatus.IDLE) {
+                long added = getEtaEngine().estimate(elevator, request).getAddedRouteMillis();
+                if (added < leastAddedTravel) {
+                    leastAddedTravel = added; // 优先选择空闲的电梯，其中新增行程最短者
+                    selected = elevator;
+                }
             }
         }
+        if (selected != null) {
+            return selected;
+        }
 
-        // 若无空闲电梯，则选择在该方向上接近的电梯
+        // 若无空闲电梯，则选择在该方向上很快能接到乘客、新增行程最短的电梯
         for (Elevator elevator : elevators) {
-            if (elevator.getDirection() == request.getDirection() &&
-                Math.abs(elevator.getCurrentFloor() - request.getStartFloor()) < 5) {
-                return elevator;
+            if (elevator.getSnapshot().getDirection() == request.getDirection()) {
+                EtaEngine.Eta eta = getEtaEngine().estimate(elevator, request);
+                if (eta.getPickupMillis() < NEARBY_PICKUP_MILLIS && eta.getAddedRouteMillis() < leastAddedTravel) {
+                    leastAddedTravel = eta.getAddedRouteMillis();
+                    selected = elevator;
+                }
             }
         }
 
-        return null; // 若无合适电梯，则返回 null
+        return selected; // 若无合适电梯，则返回 null
     }
 }
@@ -0,0 +1,112 @@
+package net.mooctest;
+
+// Estimates when a car would pick up and deliver a passenger by projecting its remaining LOOK route with
+// RouteProjection, including every queued stop, door dwell and the car's free capacity. Projections are
+// built from the car's published snapshot, so no car lock is taken, and the projection of the current
+// route is cached on the car until a newer snapshot appears.
+public class EtaEngine {
+    private static final double PASSENGER_WEIGHT = 70; // kg, as in Elevator
+    private static volatile EtaEngine instance;
+
+    public static EtaEngine getInstance() {
+        if (instance == null) {
+            synchronized (EtaEngine.class) {
+                if (instance == null) {
+                    instance = new EtaEngine();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Current route of the car, rebuilt only when the car has changed since the cached one
+    public CarProjection project(Elevator elevator) {
+        ElevatorSnapshot snapshot = elevator.getSnapshot();
+        CarProjection cached = elevator.etaProjection;
+        if (cached != null && cached.snapshot == snapshot) {
+            return cached;
+        }
+        CarProjection projection = new CarProjection(snapshot);
+        elevator.etaProjection = projection;
+        return projection;
+    }
+
+    public Eta estimate(Elevator elevator, PassengerRequest request) {
+        return project(elevator).estimate(request.getStartFloor(), request.getDestinationFloor(), request.getDirection());
+    }
+
+    // A car snapshot and the projection of its current route
+    public static class CarProjection {
+        private final ElevatorSnapshot snapshot;
+        private final RouteProjection route;
+
+        CarProjection(ElevatorSnapshot snapshot) {
+            this.snapshot = snapshot;
+            this.route = RouteProjection.project(snapshot.getCurrentFloor(), snapshot.getDirection(),
+                    snapshot.upStops(), snapshot.downStops());
+        }
+
+        public Eta estimate(int origin, int destination, Direction travel) {
+            if (!snapshot.isInService() || snapshot.getFreeLoad() < PASSENGER_WEIGHT) {
+                return Eta.UNAVAILABLE;
+            }
+            // Called for every car on every dispatch, so the candidate route is replayed on per-thread scratch
+            RouteProjection.Trip candidate = RouteProjection.projectTrip(snapshot.getCurrentFloor(),
+                    snapshot.getDirection(), snapshot.upStops(), snapshot.downStops(), origin, travel, destination);
+            long pickup = candidate.getPickupMillis();
+            long arrival = candidate.getDropOffMillis();
+            if (arrival < 0) {
+                return Eta.UNAVAILABLE;
+            }
+            return new Eta(pickup, arrival, candidate.getCompletionMillis() - route.getCompletionMillis(),
+                    snapshot.getPassengerCount());
+        }
+
+        public ElevatorSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        public RouteProjection getRoute() {
+            return route;
+        }
+    }
+
+    // Estimate for one call on one car; times are milliseconds from now
+    public static class Eta {
+        public static final Eta UNAVAILABLE = new Eta(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 0);
+
+        private final long pickupMillis;
+        private final long arrivalMillis;
+        private final long addedRouteMillis;
+        private final int passengerCount;
+
+        public Eta(long pickupMillis, long arrivalMillis, long addedRouteMillis, int passengerCount) {
+            this.pickupMillis = pickupMillis;
+            this.arrivalMillis = arrivalMillis;
+            this.addedRouteMillis = addedRouteMillis;
+            this.passengerCount = passengerCount;
+        }
+
+        public boolean isAvailable() {
+            return this != UNAVAILABLE;
+        }
+
+        public long getPickupMillis() {
+            return pickupMillis;
+        }
+
+        public long getArrivalMillis() {
+            return arrivalMillis;
+        }
+
+        // Extra time the call adds to the car's existing route
+        public long getAddedRouteMillis() {
+            return addedRouteMillis;
+        }
+
+        // Time to destination plus the delay imposed on passengers already in the car
+        public double getCost() {
+            return isAvailable() ? arrivalMillis + (double) addedRouteMillis * passengerCount : Double.MAX_VALUE;
+        }
+    }
+}
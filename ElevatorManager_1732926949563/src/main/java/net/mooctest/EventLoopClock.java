@@ -0,0 +1,40 @@
+package net.mooctest;
+
+import java.util.concurrent.*;
+
+// Real-time clock backed by a single event-loop thread. Everything scheduled on it runs on that thread,
+// in due-time order, so the cars bound to one loop never run concurrently with each other.
+public class EventLoopClock implements Clock {
+    private final ScheduledThreadPoolExecutor loop;
+
+    public EventLoopClock(ThreadFactory threadFactory) {
+        this.loop = new ScheduledThreadPoolExecutor(1, threadFactory);
+        this.loop.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    // Blocks the calling thread; code running on the loop should schedule instead
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        if (!loop.isShutdown()) {
+            loop.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public int getQueuedTaskCount() {
+        return loop.getQueue().size();
+    }
+
+    public void shutdown() {
+        loop.shutdownNow();
+    }
+}
@@ -0,0 +1,210 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+// Spatial index of a fleet keyed by (zone, direction, floor). Every zone keeps one sorted map of idle
+// cars and one per travel direction, ordered by floor, and each car moves between them as it publishes
+// snapshots, so the index never rescans the fleet. Finding the k nearest cars that can reach a floor
+// costs O(log n + k) instead of a pass over every car. Cars that are out of service are not indexed.
+public class FleetIndex {
+    private static final int IDLE = 0;
+    private static final int UP = 1;
+    private static final int DOWN = 2;
+
+    private final ConcurrentNavigableMap<Integer, Integer> zoneByLowestFloor = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Zone> zones = new ConcurrentHashMap<>();
+    private final Map<Integer, Placement> placements = new ConcurrentHashMap<>();
+    private final Map<Integer, Consumer<ElevatorSnapshot>> listeners = new ConcurrentHashMap<>();
+
+    public FleetIndex() {
+        zoneByLowestFloor.put(Integer.MIN_VALUE, 0); // Single zone until zones are defined
+    }
+
+    // Floors from lowestFloor up to the next defined zone belong to the given zone
+    public void defineZone(int zone, int lowestFloor) {
+        zoneByLowestFloor.put(lowestFloor, zone);
+    }
+
+    public int zoneOf(int floor) {
+        return zoneByLowestFloor.floorEntry(floor).getValue();
+    }
+
+    public void register(Elevator elevator) {
+        register(elevator, zoneOf(elevator.getSnapshot().getCurrentFloor()));
+    }
+
+    public void register(Elevator elevator, int zone) {
+        Consumer<ElevatorSnapshot> listener = snapshot -> place(elevator, zone, snapshot);
+        if (listeners.putIfAbsent(elevator.getId(), listener) != null) {
+            throw new IllegalArgumentException("Elevator " + elevator.getId() + " is already indexed");
+        }
+        elevator.addSnapshotListener(listener);
+        place(elevator, zone, elevator.getSnapshot());
+    }
+
+    public void unregister(Elevator elevator) {
+        Consumer<ElevatorSnapshot> listener = listeners.remove(elevator.getId());
+        if (listener != null) {
+            elevator.removeSnapshotListener(listener);
+            Placement removed = placements.remove(elevator.getId());
+            if (removed != null) {
+                removed.unlink();
+            }
+        }
+    }
+
+    // Moves a car to the bucket of its latest snapshot; stale snapshots are ignored
+    private void place(Elevator elevator, int zone, ElevatorSnapshot snapshot) {
+        placements.compute(elevator.getId(), (id, current) -> {
+            if (current != null && current.version >= snapshot.getVersion()) {
+                return current;
+            }
+            Placement next = new Placement(elevator, zone, bucketOf(snapshot),
+                    key(snapshot.getCurrentFloor(), id), snapshot.getVersion());
+            if (current != null && current.sameSlot(next)) {
+                current.version = next.version;
+                return current;
+            }
+            if (current != null) {
+                current.unlink();
+            }
+            next.link();
+            return next;
+        });
+    }
+
+    private static int bucketOf(ElevatorSnapshot snapshot) {
+        if (!snapshot.isInService()) {
+            return -1;
+        }
+        switch (snapshot.getStatus()) {
+            case IDLE:
+                return IDLE;
+            case MOVING:
+            case STOPPED:
+                return snapshot.getDirection() == Direction.DOWN ? DOWN : UP;
+            default:
+                return -1; // Fault, maintenance and emergency cars take no calls
+        }
+    }
+
+    private static long key(int floor, int elevatorId) {
+        return ((long) floor << 32) | (elevatorId & 0xffffffffL);
+    }
+
+    private static int floorOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    public List<Elevator> nearest(int floor, Direction direction, int k) {
+        return nearest(zoneOf(floor), floor, direction, k);
+    }
+
+    // Up to k cars of the zone ordered by floor distance: idle cars anywhere, and cars already travelling
+    // in the call's direction that have not passed the floor yet. A null direction accepts both.
+    public List<Elevator> nearest(int zone, int floor, Direction direction, int k) {
+        List<Elevator> result = new ArrayList<>(Math.max(0, k));
+        Zone cars = zones.get(zone);
+        if (cars == null || k <= 0) {
+            return result;
+        }
+        List<Iterator<Map.Entry<Long, Elevator>>> sources = new ArrayList<>(4);
+        sources.add(cars.buckets[IDLE].headMap(key(floor, -1), true).descendingMap().entrySet().iterator());
+        sources.add(cars.buckets[IDLE].tailMap(key(floor + 1, 0), true).entrySet().iterator());
+        if (direction != Direction.DOWN) {
+            sources.add(cars.buckets[UP].headMap(key(floor, -1), true).descendingMap().entrySet().iterator());
+        }
+        if (direction != Direction.UP) {
+            sources.add(cars.buckets[DOWN].tailMap(key(floor, 0), true).entrySet().iterator());
+        }
+
+        // k-way merge of the sorted walks away from the floor
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Map.Entry<Long, Elevator>[] heads = new Map.Entry[sources.size()];
+        for (int i = 0; i < heads.length; i++) {
+            heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+        }
+        while (result.size() < k) {
+            int best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null) {
+                    int distance = Math.abs(floorOf(heads[i].getKey()) - floor);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = i;
+                    }
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            Elevator elevator = heads[best].getValue();
+            if (!result.contains(elevator)) { // A car moving between buckets can be seen twice
+                result.add(elevator);
+            }
+            heads[best] = sources.get(best).hasNext() ? sources.get(best).next() : null;
+        }
+        return result;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Placement placement : placements.values()) {
+            if (placement.bucket >= 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public int getRegisteredCount() {
+        return listeners.size();
+    }
+
+    private static class Zone {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        final ConcurrentSkipListMap<Long, Elevator>[] buckets = new ConcurrentSkipListMap[]{
+                new ConcurrentSkipListMap<Long, Elevator>(),
+                new ConcurrentSkipListMap<Long, Elevator>(),
+                new ConcurrentSkipListMap<Long, Elevator>()};
+    }
+
+    // Where a car currently sits in the index
+    private class Placement {
+        final Elevator elevator;
+        final int zone;
+        final int bucket;
+        final long key;
+        long version;
+
+        Placement(Elevator elevator, int zone, int bucket, long key, long version) {
+            this.elevator = elevator;
+            this.zone = zone;
+            this.bucket = bucket;
+            this.key = key;
+            this.version = version;
+        }
+
+        boolean sameSlot(Placement other) {
+            return zone == other.zone && bucket == other.bucket && key == other.key;
+        }
+
+        void link() {
+            if (bucket >= 0) {
+                zones.computeIfAbsent(zone, z -> new Zone()).buckets[bucket].put(key, elevator);
+            }
+        }
+
+        void unlink() {
+            Zone cars = zones.get(zone);
+            if (bucket >= 0 && cars != null) {
+                cars.buckets[bucket].remove(key);
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package net.mooctest;
 import java.util.*;
 import java.util.concurrent.locks.*;
 
+// Superseded by HallCallRegistry; kept as the baseline FloorQueueBenchmark measures the registry against
+@Deprecated
 public class Floor {
     private final int floorNumber;
     private final Map<Direction, Queue<PassengerRequest>> requestQueues;
@@ -0,0 +1,194 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Waiting passengers by floor and direction. Each floor has a lock-free queue per direction, and the
+// up/down bitmaps mark floors with waiting passengers so a car finds the next call in its direction
+// one 64-floor word at a time. Submitting never blocks. A producer enqueues before it sets the bit, so
+// a set bit may briefly outlive its passengers, but a waiting passenger never lacks a bit. A call may be
+// reserved for one car; other cars stopping at the floor leave it waiting for that car.
+public class HallCallRegistry {
+    private final int floorCount;
+    private final Queue<PassengerRequest>[] upQueues;
+    private final Queue<PassengerRequest>[] downQueues;
+    private final AtomicLongArray upCalls;
+    private final AtomicLongArray downCalls;
+    private final Map<PassengerRequest, Integer> reservations; // Car id by reserved call
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HallCallRegistry(int floorCount) {
+        this.floorCount = floorCount;
+        this.upQueues = new Queue[floorCount + 1];
+        this.downQueues = new Queue[floorCount + 1];
+        for (int floor = 1; floor <= floorCount; floor++) {
+            upQueues[floor] = new ConcurrentLinkedQueue<>();
+            downQueues[floor] = new ConcurrentLinkedQueue<>();
+        }
+        int words = (floorCount >> 6) + 1;
+        this.upCalls = new AtomicLongArray(words);
+        this.downCalls = new AtomicLongArray(words);
+        this.reservations = new ConcurrentHashMap<>();
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    public void add(PassengerRequest request) {
+        checkFloor(request.getStartFloor());
+        checkFloor(request.getDestinationFloor()); // The car that boards the passenger stops there
+        queues(request.getDirection())[request.getStartFloor()].add(request);
+        setBit(calls(request.getDirection()), request.getStartFloor());
+    }
+
+    // Registers a call only the given car may pick up; reserved before it is queued, so no car sees it
+    // unreserved
+    public void add(PassengerRequest request, int elevatorId) {
+        checkFloor(request.getStartFloor());
+        checkFloor(request.getDestinationFloor());
+        reservations.put(request, elevatorId);
+        add(request);
+    }
+
+    private void checkFloor(int floor) {
+        if (floor < 1 || floor > floorCount) {
+            throw new IllegalArgumentException("Floor " + floor + " is outside 1.." + floorCount);
+        }
+    }
+
+    // Removes and returns every passenger waiting at the floor to travel in the direction, reserved or not
+    public List<PassengerRequest> take(int floor, Direction direction) {
+        List<PassengerRequest> requests = drain(floor, direction);
+        if (!reservations.isEmpty()) {
+            for (PassengerRequest request : requests) {
+                reservations.remove(request);
+            }
+        }
+        return requests;
+    }
+
+    // Removes and returns the passengers at the floor the car may pick up: unreserved calls and calls
+    // reserved for it. Calls reserved for other cars go back to the queue.
+    public List<PassengerRequest> take(int floor, Direction direction, int elevatorId) {
+        List<PassengerRequest> waiting = drain(floor, direction);
+        if (reservations.isEmpty()) {
+            return waiting;
+        }
+        List<PassengerRequest> requests = new ArrayList<>(waiting.size());
+        for (PassengerRequest request : waiting) {
+            Integer owner = reservations.get(request);
+            if (owner == null || owner == elevatorId) {
+                if (owner != null) {
+                    reservations.remove(request);
+                }
+                requests.add(request);
+            } else {
+                add(request);
+            }
+        }
+        return requests;
+    }
+
+    // Drops the car's reservations so any car may pick those calls up; returns the released calls
+    public List<PassengerRequest> release(int elevatorId) {
+        List<PassengerRequest> released = new ArrayList<>();
+        Iterator<Map.Entry<PassengerRequest, Integer>> entries = reservations.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<PassengerRequest, Integer> entry = entries.next();
+            if (entry.getValue() == elevatorId) {
+                released.add(entry.getKey());
+                entries.remove();
+            }
+        }
+        return released;
+    }
+
+    private List<PassengerRequest> drain(int floor, Direction direction) {
+        if (floor < 1 || floor > floorCount) {
+            return new ArrayList<>();
+        }
+        clearBit(calls(direction), floor); // Cleared first: a request added during the drain sets it again
+        Queue<PassengerRequest> queue = queues(direction)[floor];
+        List<PassengerRequest> requests = new ArrayList<>();
+        PassengerRequest request;
+        while ((request = queue.poll()) != null) {
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    public boolean hasCall(int floor, Direction direction) {
+        return floor >= 1 && floor <= floorCount && (calls(direction).get(floor >> 6) & (1L << floor)) != 0;
+    }
+
+    public int getWaitingCount(int floor, Direction direction) {
+        return floor >= 1 && floor <= floorCount ? queues(direction)[floor].size() : 0;
+    }
+
+    // Nearest floor at or beyond fromFloor, in the direction of travel, with passengers waiting to travel
+    // that way; -1 if there is none
+    public int nextCall(int fromFloor, Direction direction) {
+        if (direction == Direction.UP) {
+            int from = Math.max(fromFloor, 0);
+            for (int word = from >> 6; word < upCalls.length(); word++) {
+                long bits = upCalls.get(word);
+                if (word == from >> 6) {
+                    bits &= -1L << (from & 63);
+                }
+                if (bits != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            return -1;
+        }
+        int from = Math.min(fromFloor, floorCount);
+        for (int word = from >> 6; word >= 0 && from >= 0; word--) {
+            long bits = downCalls.get(word);
+            if (word == from >> 6) {
+                bits &= -1L >>> (63 - (from & 63));
+            }
+            if (bits != 0) {
+                return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    public boolean isEmpty() {
+        for (int word = 0; word < upCalls.length(); word++) {
+            if ((upCalls.get(word) | downCalls.get(word)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Queue<PassengerRequest>[] queues(Direction direction) {
+        return direction == Direction.UP ? upQueues : downQueues;
+    }
+
+    private AtomicLongArray calls(Direction direction) {
+        return direction == Direction.UP ? upCalls : downCalls;
+    }
+
+    private static void setBit(AtomicLongArray bitmap, int floor) {
+        int word = floor >> 6;
+        long bit = 1L << floor;
+        long current;
+        do {
+            current = bitmap.get(word);
+        } while ((current & bit) == 0 && !bitmap.compareAndSet(word, current, current | bit));
+    }
+
+    private static void clearBit(AtomicLongArray bitmap, int floor) {
+        int word = floor >> 6;
+        long bit = 1L << floor;
+        long current;
+        do {
+            current = bitmap.get(word);
+        } while ((current & bit) != 0 && !bitmap.compareAndSet(word, current, current & ~bit));
+    }
+}
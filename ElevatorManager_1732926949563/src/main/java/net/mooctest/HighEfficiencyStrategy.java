@@ -7,10 +7,16 @@ public class HighEfficiencyStrategy implements DispatchStrategy {
     @Override
     public Elevator selectElevator(List<Elevator> elevators, PassengerRequest request) {
         Elevator selectedElevator = null;
+        double minCost = Double.MAX_VALUE;
 
+        // One estimate per candidate; a car that cannot reach the call is never chosen
         for (Elevator elevator : elevators) {
-            if (elevator.getStatus() == ElevatorStatus.IDLE || elevator.getDirection() == request.getDirection()) {
-                if (selectedElevator == null || isCloser(elevator, selectedElevator, request)) {
+            ElevatorSnapshot state = elevator.getSnapshot();
+            if (state.isInService()
+                    && (state.getStatus() == ElevatorStatus.IDLE || state.getDirection() == request.getDirection())) {
+                EtaEngine.Eta eta = getEtaEngine().estimate(elevator, request);
+                if (eta.isAvailable() && eta.getCost() < minCost) {
+                    minCost = eta.getCost();
                     selectedElevator = elevator;
                 }
             }
@@ -19,8 +25,9 @@ public class HighEfficiencyStrategy implements DispatchStrategy {
         return selectedElevator;
     }
 
+    // Compares the projected arrival at the destination plus the delay imposed on riders already aboard
     public boolean isCloser(Elevator candidate, Elevator current, PassengerRequest request) {
-        return Math.abs(candidate.getCurrentFloor() - request.getStartFloor()) <
-               Math.abs(current.getCurrentFloor() - request.getStartFloor());
+        return getEtaEngine().estimate(candidate, request).getCost() <
+               getEtaEngine().estimate(current, request).getCost();
     }
 }
@@ -0,0 +1,52 @@
+package net.mooctest;
+
+import java.util.List;
+
+// Lets any strategy run against a large bank: the fleet index narrows the bank to the k nearest cars that
+// can reach the call, and the wrapped strategy ranks only those. When none of them is acceptable the
+// wrapped strategy falls back to the full list, so a call is never refused that it would have accepted.
+public class IndexedDispatchStrategy implements DispatchStrategy {
+    public static final int DEFAULT_CANDIDATES = 8;
+
+    private final FleetIndex index;
+    private final DispatchStrategy delegate;
+    private final int candidateCount;
+
+    public IndexedDispatchStrategy(FleetIndex index, DispatchStrategy delegate) {
+        this(index, delegate, DEFAULT_CANDIDATES);
+    }
+
+    public IndexedDispatchStrategy(FleetIndex index, DispatchStrategy delegate, int candidateCount) {
+        if (candidateCount <= 0) {
+            throw new IllegalArgumentException("candidateCount must be positive");
+        }
+        this.index = index;
+        this.delegate = delegate;
+        this.candidateCount = candidateCount;
+    }
+
+    @Override
+    public Elevator selectElevator(List<Elevator> elevators, PassengerRequest request) {
+        List<Elevator> candidates = index.nearest(request.getStartFloor(), request.getDirection(), candidateCount);
+        if (!candidates.isEmpty()) {
+            Elevator selected = delegate.selectElevator(candidates, request);
+            if (selected != null) {
+                return selected;
+            }
+        }
+        return delegate.selectElevator(elevators, request);
+    }
+
+    @Override
+    public EtaEngine getEtaEngine() {
+        return delegate.getEtaEngine();
+    }
+
+    public FleetIndex getIndex() {
+        return index;
+    }
+
+    public DispatchStrategy getDelegate() {
+        return delegate;
+    }
+}
@@ -1,15 +1,49 @@
 package net.mooctest;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
 
 public class LogManager {
     private static volatile LogManager instance;
-    private final List<SystemLog> logs;
+    private final SegmentedLogStore store;
+    private final Map<Integer, String> elevatorSources; // Avoids building the source name on every event
 
+    // Keeps the log in SystemConfig's log directory when one is set. Otherwise the log lives in a temporary
+    // directory that is deleted when the JVM exits, so short-lived processes leave no segments behind.
     public LogManager() {
-        logs = new CopyOnWriteArrayList<>();
+        this(createDefaultStore());
+    }
+
+    public LogManager(SegmentedLogStore store) {
+        this.store = store;
+        this.elevatorSources = new ConcurrentHashMap<>();
+    }
+
+    private static SegmentedLogStore createDefaultStore() {
+        Path configured = SystemConfig.getInstance().getLogDirectory();
+        if (configured != null) {
+            return new SegmentedLogStore(configured);
+        }
+        SegmentedLogStore store;
+        try {
+            store = new SegmentedLogStore(Files.createTempDirectory("elevator-logs"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.delete();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (UncheckedIOException e) {
+                // The JVM is exiting; a leftover temporary file is all that is lost
+            }
+        }, "log-cleanup"));
+        return store;
     }
 
     public static LogManager getInstance() {
@@ -24,22 +58,25 @@ public class LogManager {
     }
 
     public void recordElevatorEvent(int elevatorId, String event) {
-        logs.add(new SystemLog("Elevator " + elevatorId, event, System.currentTimeMillis()));
+        String source = elevatorSources.computeIfAbsent(elevatorId, id -> "Elevator " + id);
+        store.append(source, event, System.currentTimeMillis());
     }
 
     public void recordSchedulerEvent(String event) {
-        logs.add(new SystemLog("Scheduler", event, System.currentTimeMillis()));
+        store.append("Scheduler", event, System.currentTimeMillis());
     }
     public void recordEvent(String source, String message) {
-        logs.add(new SystemLog(source, message, System.currentTimeMillis()));
+        store.append(source, message, System.currentTimeMillis());
     }
 
+    // Sees every event recorded before the call
     public List<SystemLog> queryLogs(String source, long startTime, long endTime) {
-        return logs.stream()
-                .filter(log -> log.getSource().equals(source)
-                        && log.getTimestamp() >= startTime
-                        && log.getTimestamp() <= endTime)
-                .collect(Collectors.toList());
+        store.flush();
+        return store.query(source, startTime, endTime);
+    }
+
+    public SegmentedLogStore getStore() {
+        return store;
     }
 
     public static class SystemLog {
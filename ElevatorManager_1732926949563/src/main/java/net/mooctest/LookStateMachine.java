@@ -0,0 +1,200 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// LOOK stop planning for one car. Stops are kept in two floor bitsets: floors to stop at while travelling
+// up and floors to stop at while travelling down, so the next stop in either direction is a
+// nextSetBit/previousSetBit lookup. New stops arrive through a lock-free inbox of atomic bit words that
+// any thread may write; only the car's owner drains the inbox and touches the bitsets.
+public class LookStateMachine {
+    private final int floorCount;
+    private final AtomicLongArray upInbox;
+    private final AtomicLongArray downInbox;
+    private final AtomicLongArray carInbox; // Car calls, sorted into a direction when drained
+    private final BitSet upStops;
+    private final BitSet downStops;
+
+    public LookStateMachine(int floorCount) {
+        this.floorCount = floorCount;
+        int words = (floorCount >> 6) + 1;
+        this.upInbox = new AtomicLongArray(words);
+        this.downInbox = new AtomicLongArray(words);
+        this.carInbox = new AtomicLongArray(words);
+        this.upStops = new BitSet(floorCount + 1);
+        this.downStops = new BitSet(floorCount + 1);
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    // Lock-free; a hall call carries the direction the passenger wants to travel, a car call passes null
+    public void request(int floor, Direction direction) {
+        if (floor < 1 || floor > floorCount) {
+            throw new IllegalArgumentException("Floor " + floor + " is outside 1.." + floorCount);
+        }
+        AtomicLongArray inbox = direction == null ? carInbox : direction == Direction.UP ? upInbox : downInbox;
+        int word = floor >> 6;
+        long bit = 1L << floor;
+        long current;
+        do {
+            current = inbox.get(word);
+        } while ((current & bit) == 0 && !inbox.compareAndSet(word, current, current | bit));
+    }
+
+    public boolean hasPendingRequests() {
+        for (int word = 0; word < carInbox.length(); word++) {
+            if ((upInbox.get(word) | downInbox.get(word) | carInbox.get(word)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Moves inbox requests into the stop sets. Car calls above the car are stops on the way up, calls below
+    // are stops on the way down and a call at the current floor is served in the current direction.
+    public void drain(int currentFloor, Direction direction) {
+        for (int word = 0; word < carInbox.length(); word++) {
+            drainWord(upInbox, word, upStops);
+            drainWord(downInbox, word, downStops);
+            long cars = carInbox.get(word) != 0 ? carInbox.getAndSet(word, 0) : 0;
+            while (cars != 0) {
+                int floor = (word << 6) + Long.numberOfTrailingZeros(cars);
+                cars &= cars - 1;
+                if (floor > currentFloor) {
+                    upStops.set(floor);
+                } else if (floor < currentFloor) {
+                    downStops.set(floor);
+                } else {
+                    stops(direction).set(floor);
+                }
+            }
+        }
+    }
+
+    private static void drainWord(AtomicLongArray inbox, int word, BitSet stops) {
+        long bits = inbox.get(word) != 0 ? inbox.getAndSet(word, 0) : 0;
+        while (bits != 0) {
+            stops.set((word << 6) + Long.numberOfTrailingZeros(bits));
+            bits &= bits - 1;
+        }
+    }
+
+    public boolean hasStops() {
+        return !upStops.isEmpty() || !downStops.isEmpty();
+    }
+
+    public boolean isStop(int floor, Direction direction) {
+        return stops(direction).get(floor);
+    }
+
+    // Whether any stop, in either set, lies strictly beyond the floor in the given direction
+    public boolean hasStopsAhead(int floor, Direction direction) {
+        return hasStopsAhead(upStops, downStops, floor, direction);
+    }
+
+    // LOOK: keep going while there is work ahead or a stop here for this direction, otherwise reverse
+    public Direction chooseDirection(int floor, Direction direction) {
+        return chooseDirection(upStops, downStops, floor, direction);
+    }
+
+    // Direction the car leaves the floor in if it stops here, or null if it should pass the floor
+    public Direction stopDirection(int floor, Direction direction) {
+        return stopDirection(upStops, downStops, floor, direction);
+    }
+
+    public void serve(int floor, Direction direction) {
+        stops(direction).clear(floor);
+    }
+
+    // Next floor the car will stop at, or -1 when it has no stops
+    public int nextStop(int floor, Direction direction) {
+        return nextStop(upStops, downStops, floor, direction);
+    }
+
+    // The LOOK rules below work on any pair of stop sets, so route projections can replay them on copies
+
+    static boolean hasStopsAhead(BitSet up, BitSet down, int floor, Direction direction) {
+        if (direction == Direction.UP) {
+            return up.nextSetBit(floor + 1) >= 0 || down.nextSetBit(floor + 1) >= 0;
+        }
+        return floor > 1 && (up.previousSetBit(floor - 1) >= 0 || down.previousSetBit(floor - 1) >= 0);
+    }
+
+    static Direction chooseDirection(BitSet up, BitSet down, int floor, Direction direction) {
+        if (hasStopsAhead(up, down, floor, direction) || stops(up, down, direction).get(floor)) {
+            return direction;
+        }
+        Direction reverse = opposite(direction);
+        if (hasStopsAhead(up, down, floor, reverse) || stops(up, down, reverse).get(floor)) {
+            return reverse;
+        }
+        return direction;
+    }
+
+    static Direction stopDirection(BitSet up, BitSet down, int floor, Direction direction) {
+        if (stops(up, down, direction).get(floor)) {
+            return direction;
+        }
+        Direction reverse = opposite(direction);
+        if (!hasStopsAhead(up, down, floor, direction) && stops(up, down, reverse).get(floor)) {
+            return reverse; // Turnaround floor
+        }
+        return null;
+    }
+
+    static int nextStop(BitSet up, BitSet down, int floor, Direction direction) {
+        Direction heading = chooseDirection(up, down, floor, direction);
+        if (stops(up, down, heading).get(floor)) {
+            return floor;
+        }
+        if (heading == Direction.UP) {
+            int next = up.nextSetBit(floor + 1);
+            return next >= 0 ? next : down.length() - 1 > floor ? down.length() - 1 : -1;
+        }
+        int next = floor > 1 ? down.previousSetBit(floor - 1) : -1;
+        if (next >= 0) {
+            return next;
+        }
+        int lowest = up.nextSetBit(0);
+        return lowest >= 0 && lowest < floor ? lowest : -1;
+    }
+
+    private static BitSet stops(BitSet up, BitSet down, Direction direction) {
+        return direction == Direction.DOWN ? down : up;
+    }
+
+    public void clear() {
+        for (int word = 0; word < carInbox.length(); word++) {
+            upInbox.set(word, 0);
+            downInbox.set(word, 0);
+            carInbox.set(word, 0);
+        }
+        upStops.clear();
+        downStops.clear();
+    }
+
+    public SortedSet<Integer> getStops() {
+        SortedSet<Integer> floors = new TreeSet<>();
+        for (int floor = upStops.nextSetBit(0); floor >= 0; floor = upStops.nextSetBit(floor + 1)) {
+            floors.add(floor);
+        }
+        for (int floor = downStops.nextSetBit(0); floor >= 0; floor = downStops.nextSetBit(floor + 1)) {
+            floors.add(floor);
+        }
+        return floors;
+    }
+
+    public BitSet getStops(Direction direction) {
+        return (BitSet) stops(direction).clone();
+    }
+
+    private BitSet stops(Direction direction) {
+        return direction == Direction.DOWN ? downStops : upStops;
+    }
+
+    public static Direction opposite(Direction direction) {
+        return direction == Direction.UP ? Direction.DOWN : Direction.UP;
+    }
+}
@@ -1,19 +1,33 @@
 package net.mooctest;
 
 import java.util.*;
-import java.util.concurrent.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.Consumer;
 
 public class MaintenanceManager implements EventBus.EventListener {
+    public static final long POLL_INTERVAL_MILLIS = 1000;
+    public static final long DRAIN_CHECK_MILLIS = 1000;
+
     private static volatile MaintenanceManager instance;
     private final Queue<MaintenanceTask> taskQueue;
     private final List<MaintenanceRecord> maintenanceRecords;
-    private final ExecutorService executorService;
+    private final List<Consumer<MaintenanceTask>> completionListeners;
+    private final Clock clock;
+    private long wakeUpTime = Long.MAX_VALUE; // Earliest pending clock callback; guarded by this
 
     public MaintenanceManager() {
-        this.taskQueue = new LinkedList<>();
-        this.maintenanceRecords = new ArrayList<>();
-        this.executorService = Executors.newSingleThreadExecutor();
-        this.executorService.submit(this::processTasks);
+        this(RealTimeClock.getInstance());
+    }
+
+    // Tasks wait in a queue ordered by due time, and the clock wakes the manager when the earliest one is
+    // due instead of polling, so a SimulationClock drives maintenance in simulated time. Tasks may be
+    // scheduled from any thread.
+    public MaintenanceManager(Clock clock) {
+        this.taskQueue = new PriorityBlockingQueue<>(16, Comparator.comparingLong(MaintenanceTask::getScheduledTime));
+        this.maintenanceRecords = new CopyOnWriteArrayList<>();
+        this.completionListeners = new CopyOnWriteArrayList<>();
+        this.clock = clock;
     }
 
     public static MaintenanceManager getInstance() {
@@ -36,33 +50,101 @@ public class MaintenanceManager implements EventBus.EventListener {
     }
 
     public void scheduleMaintenance(Elevator elevator) {
-        MaintenanceTask task = new MaintenanceTask(elevator.getId(), System.currentTimeMillis(), "Fault repair");
+        scheduleMaintenance(new MaintenanceTask(elevator.getId(), clock.currentTimeMillis(), "Fault repair"));
+    }
+
+    public void scheduleMaintenance(MaintenanceTask task) {
         taskQueue.add(task);
         notifyMaintenancePersonnel(task);
+        wakeUpAt(task.getScheduledTime());
     }
 
+    private synchronized void wakeUpAt(long time) {
+        if (time < wakeUpTime) {
+            wakeUpTime = time;
+            clock.schedule(Math.max(0, time - clock.currentTimeMillis()), this::runDueTasks);
+        }
+    }
+
+    // The clock now wakes the manager when a task is due, so there is no loop to run; kept for callers
+    // that still start it on a thread of their own
+    @Deprecated
     public void processTasks() {
-        while (true) {
-            MaintenanceTask task = taskQueue.poll();
-            if (task != null) {
-                performMaintenance(task);
-            }
-            try {
-                Thread.sleep(1000); // Sleep to reduce busy waiting
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        runDueTasks();
+    }
+
+    // Performs every task that is due and arranges to be woken for the next one
+    public void runDueTasks() {
+        synchronized (this) {
+            wakeUpTime = Long.MAX_VALUE;
+        }
+        MaintenanceTask task;
+        while ((task = pollDue()) != null) {
+            performMaintenance(task);
+        }
+        MaintenanceTask next = taskQueue.peek();
+        if (next != null) {
+            wakeUpAt(next.getScheduledTime());
         }
     }
 
+    private synchronized MaintenanceTask pollDue() {
+        MaintenanceTask head = taskQueue.peek();
+        return head != null && head.getScheduledTime() <= clock.currentTimeMillis() ? taskQueue.poll() : null;
+    }
+
     public void performMaintenance(MaintenanceTask task) {
+        if (task.getElevator() == null) {
+            System.out.println("Performing maintenance on Elevator " + task.getElevatorId());
+            recordMaintenanceResult(task.getElevatorId(), "Maintenance complete.");
+            notifyCompleted(task);
+            return;
+        }
+        // Planned window: the car stops taking calls but delivers its riders and serves its queued stops
+        // before going out of service, so nobody is stranded and other cars absorb new calls gradually
+        task.getElevator().setMode(ElevatorMode.MAINTENANCE);
+        awaitDrained(task);
+    }
+
+    private void awaitDrained(MaintenanceTask task) {
+        Elevator elevator = task.getElevator();
+        ElevatorSnapshot state = elevator.getSnapshot();
+        if (state.getPassengerCount() > 0 || state.hasStops() || elevator.hasPendingWork()) {
+            clock.schedule(DRAIN_CHECK_MILLIS, () -> awaitDrained(task));
+            return;
+        }
+        elevator.setStatus(ElevatorStatus.MAINTENANCE);
         System.out.println("Performing maintenance on Elevator " + task.getElevatorId());
-        recordMaintenanceResult(task.getElevatorId(), "Maintenance complete.");
+        clock.schedule(task.getDurationMillis(), () -> {
+            elevator.setStatus(ElevatorStatus.IDLE);
+            elevator.setMode(ElevatorMode.NORMAL);
+            recordMaintenanceResult(task.getElevatorId(), task.getDescription() + " complete.");
+            notifyCompleted(task);
+        });
+    }
+
+    private void notifyCompleted(MaintenanceTask task) {
+        for (Consumer<MaintenanceTask> listener : completionListeners) {
+            listener.accept(task);
+        }
+    }
+
+    public void addCompletionListener(Consumer<MaintenanceTask> listener) {
+        completionListeners.add(listener);
     }
 
     public void recordMaintenanceResult(int elevatorId, String result) {
-        maintenanceRecords.add(new MaintenanceRecord(elevatorId, System.currentTimeMillis(), result));
+        maintenanceRecords.add(new MaintenanceRecord(elevatorId, clock.currentTimeMillis(), result));
+    }
+
+    public List<MaintenanceRecord> getMaintenanceRecords() {
+        return new ArrayList<>(maintenanceRecords);
+    }
+
+    public List<MaintenanceTask> getPendingTasks() {
+        List<MaintenanceTask> pending = new ArrayList<>(taskQueue);
+        pending.sort(Comparator.comparingLong(MaintenanceTask::getScheduledTime));
+        return pending;
     }
 
     public void notifyMaintenancePersonnel(MaintenanceTask task) {
@@ -73,11 +155,23 @@ public class MaintenanceManager implements EventBus.EventListener {
         private final int elevatorId;
         private final long scheduledTime;
         private final String description;
+        private final Elevator elevator;     // Set for planned windows that take the car out of service
+        private final long durationMillis;
 
         public MaintenanceTask(int elevatorId, long scheduledTime, String description) {
             this.elevatorId = elevatorId;
             this.scheduledTime = scheduledTime;
             this.description = description;
+            this.elevator = null;
+            this.durationMillis = 0;
+        }
+
+        public MaintenanceTask(Elevator elevator, long scheduledTime, long durationMillis, String description) {
+            this.elevatorId = elevator.getId();
+            this.scheduledTime = scheduledTime;
+            this.description = description;
+            this.elevator = elevator;
+            this.durationMillis = durationMillis;
         }
 
         public int getElevatorId() {
@@ -91,6 +185,14 @@ public class MaintenanceManager implements EventBus.EventListener {
         public String getDescription() {
             return description;
         }
+
+        public Elevator getElevator() {
+            return elevator;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
     }
 
     public static class MaintenanceRecord {
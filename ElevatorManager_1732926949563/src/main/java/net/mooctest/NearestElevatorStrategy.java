@@ -7,13 +7,14 @@ public class NearestElevatorStrategy implements DispatchStrategy {
     @Override
     public Elevator selectElevator(List<Elevator> elevators, PassengerRequest request) {
         Elevator nearestElevator = null;
-        int minDistance = Integer.MAX_VALUE;
+        long minPickup = Long.MAX_VALUE;
 
+        // Nearest in time: queued stops and door dwell count, not just the floor distance
         for (Elevator elevator : elevators) {
             if (isEligible(elevator, request)) {
-                int distance = Math.abs(elevator.getCurrentFloor() - request.getStartFloor());
-                if (distance < minDistance) {
-                    minDistance = distance;
+                long pickup = getEtaEngine().estimate(elevator, request).getPickupMillis();
+                if (pickup < minPickup) {
+                    minPickup = pickup;
                     nearestElevator = elevator;
                 }
             }
@@ -23,8 +24,9 @@ public class NearestElevatorStrategy implements DispatchStrategy {
     }
 
     public boolean isEligible(Elevator elevator, PassengerRequest request) {
-        return (elevator.getStatus() == ElevatorStatus.IDLE) ||
-               (elevator.getStatus() == ElevatorStatus.MOVING &&
-                elevator.getDirection() == request.getDirection());
+        ElevatorSnapshot state = elevator.getSnapshot(); // Status and direction from the same moment
+        return (state.getStatus() == ElevatorStatus.IDLE) ||
+               (state.getStatus() == ElevatorStatus.MOVING &&
+                state.getDirection() == request.getDirection());
     }
 }
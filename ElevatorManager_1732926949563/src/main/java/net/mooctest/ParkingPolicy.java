@@ -0,0 +1,109 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Sends idle cars ahead of demand. Every interval the traffic forecast names the floors expected to get
+// calls in the next few minutes, and idle empty cars are moved to the busiest of them, one car for every
+// few expected calls, nearest car first. Cars that are busy or already parked where they are needed stay put.
+public class ParkingPolicy {
+    public static final long DEFAULT_INTERVAL_MILLIS = 30 * 1000;
+    public static final long DEFAULT_HORIZON_MILLIS = 5 * 60 * 1000;
+    public static final double MIN_ARRIVALS = 1.0;      // Forecast calls that make a floor worth parking at
+    public static final double ARRIVALS_PER_CAR = 4.0;  // Forecast calls one parked car is expected to absorb
+
+    private final List<Elevator> elevators;
+    private final AnalyticsEngine analytics;
+    private final Clock clock;
+    private final long intervalMillis;
+    private final long horizonMillis;
+    private final Map<Integer, Integer> enRoute = new HashMap<>(); // Car id -> floor it was sent to; guarded by this
+    private volatile boolean running;
+    private long parkedCount; // Guarded by this
+
+    public ParkingPolicy(List<Elevator> elevators, AnalyticsEngine analytics, Clock clock) {
+        this(elevators, analytics, clock, DEFAULT_INTERVAL_MILLIS, DEFAULT_HORIZON_MILLIS);
+    }
+
+    public ParkingPolicy(List<Elevator> elevators, AnalyticsEngine analytics, Clock clock,
+                         long intervalMillis, long horizonMillis) {
+        this.elevators = elevators;
+        this.analytics = analytics;
+        this.clock = clock;
+        this.intervalMillis = intervalMillis;
+        this.horizonMillis = horizonMillis;
+    }
+
+    public void start() {
+        running = true;
+        clock.schedule(intervalMillis, this::tick);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    private void tick() {
+        if (!running) {
+            return;
+        }
+        reposition();
+        clock.schedule(intervalMillis, this::tick);
+    }
+
+    // Sends idle cars to forecast hot floors and returns how many were sent
+    public synchronized int reposition() {
+        List<Integer> hotFloors = analytics.getHotFloors(horizonMillis, MIN_ARRIVALS);
+        if (hotFloors.isEmpty()) {
+            enRoute.clear();
+            return 0;
+        }
+
+        // Free cars are idle and empty; cars already at a hot floor or still heading to one cover it
+        Map<Integer, Integer> covered = new HashMap<>();
+        List<ElevatorSnapshot> free = new ArrayList<>();
+        Map<Integer, Elevator> byId = new HashMap<>();
+        for (Elevator elevator : elevators) {
+            ElevatorSnapshot state = elevator.getSnapshot();
+            Integer target = enRoute.get(state.getElevatorId());
+            if (target != null && state.isInService() && state.getPassengerCount() == 0
+                    && (state.hasStop(target, Direction.UP) || state.hasStop(target, Direction.DOWN))) {
+                covered.merge(target, 1, Integer::sum);
+                continue;
+            }
+            enRoute.remove(state.getElevatorId());
+            if (state.isInService() && state.getStatus() == ElevatorStatus.IDLE && !state.hasStops()
+                    && state.getPassengerCount() == 0) {
+                if (hotFloors.contains(state.getCurrentFloor())) {
+                    covered.merge(state.getCurrentFloor(), 1, Integer::sum);
+                } else {
+                    free.add(state);
+                    byId.put(state.getElevatorId(), elevator);
+                }
+            }
+        }
+
+        int sent = 0;
+        for (int floor : hotFloors) {
+            int wanted = (int) Math.ceil(analytics.forecastArrivals(floor, horizonMillis) / ARRIVALS_PER_CAR);
+            int missing = wanted - covered.getOrDefault(floor, 0);
+            while (missing-- > 0 && !free.isEmpty()) {
+                ElevatorSnapshot nearest = free.get(0);
+                for (ElevatorSnapshot candidate : free) {
+                    if (Math.abs(candidate.getCurrentFloor() - floor) < Math.abs(nearest.getCurrentFloor() - floor)) {
+                        nearest = candidate;
+                    }
+                }
+                free.remove(nearest);
+                enRoute.put(nearest.getElevatorId(), floor);
+                byId.get(nearest.getElevatorId()).addDestination(floor);
+                sent++;
+            }
+        }
+        parkedCount += sent;
+        return sent;
+    }
+
+    public synchronized long getParkedCount() {
+        return parkedCount;
+    }
+}
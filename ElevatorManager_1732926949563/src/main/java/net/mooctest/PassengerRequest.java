@@ -10,12 +10,17 @@ public class PassengerRequest {
     private final SpecialNeeds specialNeeds;
 
     public PassengerRequest(int startFloor, int destinationFloor, Priority priority, RequestType requestType) {
+        this(startFloor, destinationFloor, priority, requestType, System.currentTimeMillis());
+    }
+
+    public PassengerRequest(int startFloor, int destinationFloor, Priority priority, RequestType requestType,
+                            long timestamp) {
         this.startFloor = startFloor;
         this.destinationFloor = destinationFloor;
         this.direction = startFloor < destinationFloor ? Direction.UP : Direction.DOWN;
         this.priority = priority;
         this.requestType = requestType;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
         this.specialNeeds = SpecialNeeds.NONE;
     }
 
@@ -0,0 +1,177 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Plans preventive maintenance from usage instead of waiting for faults. Each car's trips, door cycles and
+// energy since its last service are compared with per-service limits; once the most worn of the three
+// passes PLAN_AT_WEAR, the car gets a window in the quietest period the traffic forecast sees ahead, with
+// at most maxConcurrent cars out at once. An overdue car is fitted into the next few hours instead.
+public class PredictiveMaintenancePlanner {
+    public static final long DEFAULT_WINDOW_MILLIS = 60 * 60 * 1000;
+    public static final long PLANNING_INTERVAL_MILLIS = 15 * 60 * 1000;
+    public static final long PLANNING_HORIZON_MILLIS = 24L * 60 * 60 * 1000;
+    public static final long OVERDUE_HORIZON_MILLIS = 2 * 60 * 60 * 1000;
+    public static final double PLAN_AT_WEAR = 0.8;
+
+    private final List<Elevator> elevators;
+    private final MaintenanceManager maintenanceManager;
+    private final TrafficModel trafficModel;
+    private final Clock clock;
+    private final UsageLimits limits;
+    private final long windowMillis;
+    private final int maxConcurrent;
+    private final Map<Integer, ElevatorSnapshot> lastService = new HashMap<>(); // Usage at the last service
+    private final Map<Integer, MaintenanceManager.MaintenanceTask> planned = new HashMap<>();
+    private volatile boolean running;
+
+    public PredictiveMaintenancePlanner(List<Elevator> elevators, MaintenanceManager maintenanceManager,
+                                        TrafficModel trafficModel, Clock clock) {
+        this(elevators, maintenanceManager, trafficModel, clock, new UsageLimits(), DEFAULT_WINDOW_MILLIS, 1);
+    }
+
+    public PredictiveMaintenancePlanner(List<Elevator> elevators, MaintenanceManager maintenanceManager,
+                                        TrafficModel trafficModel, Clock clock, UsageLimits limits,
+                                        long windowMillis, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("maxConcurrent must be positive");
+        }
+        this.elevators = elevators;
+        this.maintenanceManager = maintenanceManager;
+        this.trafficModel = trafficModel;
+        this.clock = clock;
+        this.limits = limits;
+        this.windowMillis = windowMillis;
+        this.maxConcurrent = maxConcurrent;
+        maintenanceManager.addCompletionListener(this::serviced);
+    }
+
+    public void start() {
+        running = true;
+        clock.schedule(PLANNING_INTERVAL_MILLIS, this::tick);
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    private void tick() {
+        if (!running) {
+            return;
+        }
+        plan();
+        clock.schedule(PLANNING_INTERVAL_MILLIS, this::tick);
+    }
+
+    // Plans a window for every worn car that has none yet and returns the new tasks
+    public synchronized List<MaintenanceManager.MaintenanceTask> plan() {
+        long now = clock.currentTimeMillis();
+        trafficModel.advanceTo(now);
+        List<MaintenanceManager.MaintenanceTask> tasks = new ArrayList<>();
+        for (Elevator elevator : elevators) {
+            if (planned.containsKey(elevator.getId())) {
+                continue;
+            }
+            double wear = getWear(elevator);
+            if (wear < PLAN_AT_WEAR) {
+                continue;
+            }
+            long start = findWindow(now, wear >= 1 ? OVERDUE_HORIZON_MILLIS : PLANNING_HORIZON_MILLIS);
+            MaintenanceManager.MaintenanceTask task = new MaintenanceManager.MaintenanceTask(elevator, start,
+                    windowMillis, String.format("Preventive maintenance (wear %.0f%%)", wear * 100));
+            planned.put(elevator.getId(), task);
+            maintenanceManager.scheduleMaintenance(task);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // Start of the window with the fewest forecast calls that still has room for another car, earliest
+    // first on ties; after every planned window if the horizon is fully booked
+    long findWindow(long now, long horizonMillis) {
+        long step = trafficModel.getBucketMillis();
+        long best = -1;
+        double bestDemand = Double.MAX_VALUE;
+        for (long start = now; start <= now + horizonMillis; start = (start / step + 1) * step) {
+            if (overlapping(start, start + windowMillis) >= maxConcurrent) {
+                continue;
+            }
+            double demand = trafficModel.forecastTotal(start, windowMillis);
+            if (demand < bestDemand) {
+                bestDemand = demand;
+                best = start;
+            }
+        }
+        if (best >= 0) {
+            return best;
+        }
+        long latestEnd = now;
+        for (MaintenanceManager.MaintenanceTask task : planned.values()) {
+            latestEnd = Math.max(latestEnd, task.getScheduledTime() + task.getDurationMillis());
+        }
+        return latestEnd;
+    }
+
+    private int overlapping(long start, long end) {
+        int count = 0;
+        for (MaintenanceManager.MaintenanceTask task : planned.values()) {
+            if (task.getScheduledTime() < end && start < task.getScheduledTime() + task.getDurationMillis()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Share of the service interval used up by the most worn of trips, door cycles and energy
+    public synchronized double getWear(Elevator elevator) {
+        ElevatorSnapshot now = elevator.getSnapshot();
+        ElevatorSnapshot base = lastService.get(elevator.getId());
+        long trips = now.getTripCount() - (base == null ? 0 : base.getTripCount());
+        long doorCycles = now.getDoorCycleCount() - (base == null ? 0 : base.getDoorCycleCount());
+        double energy = now.getEnergyConsumption() - (base == null ? 0 : base.getEnergyConsumption());
+        return Math.max((double) trips / limits.getTripsPerService(),
+                Math.max((double) doorCycles / limits.getDoorCyclesPerService(),
+                        energy / limits.getEnergyPerService()));
+    }
+
+    private synchronized void serviced(MaintenanceManager.MaintenanceTask task) {
+        if (task.getElevator() != null && planned.get(task.getElevatorId()) == task) {
+            planned.remove(task.getElevatorId());
+            lastService.put(task.getElevatorId(), task.getElevator().getSnapshot());
+        }
+    }
+
+    public synchronized List<MaintenanceManager.MaintenanceTask> getPlannedTasks() {
+        List<MaintenanceManager.MaintenanceTask> tasks = new ArrayList<>(planned.values());
+        tasks.sort(Comparator.comparingLong(MaintenanceManager.MaintenanceTask::getScheduledTime));
+        return tasks;
+    }
+
+    // Usage a car may accumulate between services
+    public static class UsageLimits {
+        private final long tripsPerService;
+        private final long doorCyclesPerService;
+        private final double energyPerService;
+
+        public UsageLimits() {
+            this(5000, 10000, 50000);
+        }
+
+        public UsageLimits(long tripsPerService, long doorCyclesPerService, double energyPerService) {
+            this.tripsPerService = tripsPerService;
+            this.doorCyclesPerService = doorCyclesPerService;
+            this.energyPerService = energyPerService;
+        }
+
+        public long getTripsPerService() {
+            return tripsPerService;
+        }
+
+        public long getDoorCyclesPerService() {
+            return doorCyclesPerService;
+        }
+
+        public double getEnergyPerService() {
+            return energyPerService;
+        }
+    }
+}
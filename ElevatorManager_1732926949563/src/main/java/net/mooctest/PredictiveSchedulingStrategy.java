@@ -23,9 +23,13 @@ public class PredictiveSchedulingStrategy implements DispatchStrategy {
     }
 
     public double calculatePredictedCost(Elevator elevator, PassengerRequest request) {
-        int distance = Math.abs(elevator.getCurrentFloor() - request.getStartFloor());
-        double loadFactor = elevator.getPassengerList().size() / elevator.getMaxLoad();
+        EtaEngine.Eta eta = getEtaEngine().estimate(elevator, request);
+        if (!eta.isAvailable()) {
+            return Double.MAX_VALUE;
+        }
+        ElevatorSnapshot state = elevator.getSnapshot();
+        double loadFactor = state.getCurrentLoad() / state.getMaxLoad(); // 载重比例，0 到 1
 
-        return distance + loadFactor * 10; // 简化预测公式
+        return eta.getCost() / 1000.0 + loadFactor * 10; // 以秒计的送达代价加上载重惩罚
     }
 }
@@ -0,0 +1,49 @@
+package net.mooctest;
+
+import java.util.concurrent.*;
+
+public class RealTimeClock implements Clock {
+    private static volatile RealTimeClock instance;
+    private volatile ScheduledExecutorService timer;
+
+    public static RealTimeClock getInstance() {
+        if (instance == null) {
+            synchronized (RealTimeClock.class) {
+                if (instance == null) {
+                    instance = new RealTimeClock();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public void sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        getTimer().schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private ScheduledExecutorService getTimer() {
+        if (timer == null) {
+            synchronized (this) {
+                if (timer == null) {
+                    timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread thread = new Thread(r, "real-time-clock");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return timer;
+    }
+}
@@ -0,0 +1,217 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Replays the LOOK rules over a car's stop sets to predict when it reaches each stop. Times are relative
+// to now and use the car's floor travel and door dwell times, matching Elevator.step(). Candidate trips
+// can be added: the origin becomes a hall call and, as in the real car, the destination only becomes a
+// stop once the passenger has boarded.
+public class RouteProjection {
+    private static final int[] NO_FLOORS = new int[0];
+    private static final Direction[] NO_DIRECTIONS = new Direction[0];
+    private static final ThreadLocal<Trip> TRIPS = ThreadLocal.withInitial(Trip::new);
+
+    private final int[] floors;
+    private final Direction[] leaving;
+    private final long[] arrivals;
+    private final long completionMillis;
+    private final long[] pickups;
+    private final long[] dropOffs;
+
+    private RouteProjection(int[] floors, Direction[] leaving, long[] arrivals, long completionMillis,
+                            long[] pickups, long[] dropOffs) {
+        this.floors = floors;
+        this.leaving = leaving;
+        this.arrivals = arrivals;
+        this.completionMillis = completionMillis;
+        this.pickups = pickups;
+        this.dropOffs = dropOffs;
+    }
+
+    // The stop sets are copied, not modified
+    public static RouteProjection project(int floor, Direction direction, BitSet upStops, BitSet downStops) {
+        return project(floor, direction, upStops, downStops, NO_FLOORS, NO_DIRECTIONS, NO_FLOORS);
+    }
+
+    // Projects the route with extra trips: trip i boards at origins[i] travelling travel[i] and rides
+    // to destinations[i]
+    public static RouteProjection project(int floor, Direction direction, BitSet upStops, BitSet downStops,
+                                          int[] origins, Direction[] travel, int[] destinations) {
+        BitSet up = (BitSet) upStops.clone();
+        BitSet down = (BitSet) downStops.clone();
+        long[] pickups = new long[origins.length];
+        long[] dropOffs = new long[origins.length];
+        Stops stops = new Stops(up.cardinality() + down.cardinality() + origins.length + destinations.length);
+        long completion = replay(floor, direction, up, down, origins, travel, destinations, pickups, dropOffs, stops);
+        return new RouteProjection(Arrays.copyOf(stops.floors, stops.count), Arrays.copyOf(stops.leaving, stops.count),
+                Arrays.copyOf(stops.arrivals, stops.count), completion, pickups, dropOffs);
+    }
+
+    // Projects a single candidate trip without keeping the route; the same replay as project, but run on
+    // per-thread scratch so estimating a call against every car allocates nothing. The returned Trip is
+    // reused by the next call on this thread, so read it before projecting again
+    public static Trip projectTrip(int floor, Direction direction, BitSet upStops, BitSet downStops,
+                                   int origin, Direction travel, int destination) {
+        Trip trip = TRIPS.get();
+        trip.up.clear();
+        trip.up.or(upStops);
+        trip.down.clear();
+        trip.down.or(downStops);
+        trip.origins[0] = origin;
+        trip.travel[0] = travel;
+        trip.destinations[0] = destination;
+        trip.completionMillis = replay(floor, direction, trip.up, trip.down, trip.origins, trip.travel,
+                trip.destinations, trip.pickups, trip.dropOffs, null);
+        return trip;
+    }
+
+    // Runs the LOOK rules until up and down are empty, consuming both, and returns the completion time.
+    // Each stop is added to stops unless it is null
+    private static long replay(int floor, Direction direction, BitSet up, BitSet down, int[] origins,
+                               Direction[] travel, int[] destinations, long[] pickups, long[] dropOffs,
+                               Stops stops) {
+        for (int i = 0; i < origins.length; i++) {
+            (travel[i] == Direction.UP ? up : down).set(origins[i]);
+        }
+        Arrays.fill(pickups, -1);
+        Arrays.fill(dropOffs, -1);
+        long time = 0;
+        int current = floor;
+        Direction heading = direction;
+        while (!up.isEmpty() || !down.isEmpty()) {
+            heading = LookStateMachine.chooseDirection(up, down, current, heading);
+            int next = LookStateMachine.nextStop(up, down, current, heading);
+            if (next < 0) {
+                break; // Not reachable under LOOK; cannot happen for stops inside the building
+            }
+            time += Math.abs(next - current) * Elevator.FLOOR_TRAVEL_MILLIS;
+            current = next;
+            Direction leave = LookStateMachine.stopDirection(up, down, current, heading);
+            if (leave == null) {
+                leave = heading;
+                up.clear(current);
+                down.clear(current);
+            } else {
+                (leave == Direction.UP ? up : down).clear(current);
+            }
+            if (stops != null) {
+                stops.add(current, leave, time);
+            }
+
+            for (int i = 0; i < origins.length; i++) {
+                if (pickups[i] >= 0 && dropOffs[i] < 0 && destinations[i] == current) {
+                    dropOffs[i] = time;
+                } else if (pickups[i] < 0 && origins[i] == current && travel[i] == leave) {
+                    pickups[i] = time;
+                    if (destinations[i] > current) {
+                        up.set(destinations[i]); // Car call pressed on boarding
+                    } else if (destinations[i] < current) {
+                        down.set(destinations[i]);
+                    }
+                }
+            }
+            time += Elevator.DOOR_DWELL_MILLIS;
+            heading = leave;
+        }
+        return time;
+    }
+
+    // Time until the car has served every stop
+    public long getCompletionMillis() {
+        return completionMillis;
+    }
+
+    public int getStopCount() {
+        return floors.length;
+    }
+
+    public int getStopFloor(int index) {
+        return floors[index];
+    }
+
+    public Direction getLeavingDirection(int index) {
+        return leaving[index];
+    }
+
+    public long getArrivalMillis(int index) {
+        return arrivals[index];
+    }
+
+    // First arrival at the floor no earlier than notBefore, leaving in the given direction (null for
+    // either); -1 if the route does not stop there
+    public long getArrivalMillis(int floor, Direction direction, long notBefore) {
+        for (int i = 0; i < floors.length; i++) {
+            if (floors[i] == floor && arrivals[i] >= notBefore && (direction == null || leaving[i] == direction)) {
+                return arrivals[i];
+            }
+        }
+        return -1;
+    }
+
+    // Boarding time of candidate trip i, or -1 if the route never picks it up
+    public long getPickupMillis(int trip) {
+        return pickups[trip];
+    }
+
+    // Arrival time of candidate trip i at its destination, or -1 if it is never delivered
+    public long getDropOffMillis(int trip) {
+        return dropOffs[trip];
+    }
+
+    // Growable record of the stops a replay makes
+    private static class Stops {
+        int[] floors;
+        Direction[] leaving;
+        long[] arrivals;
+        int count;
+
+        Stops(int capacity) {
+            capacity = Math.max(capacity, 1);
+            floors = new int[capacity];
+            leaving = new Direction[capacity];
+            arrivals = new long[capacity];
+        }
+
+        void add(int floor, Direction leave, long arrival) {
+            if (count == floors.length) {
+                floors = Arrays.copyOf(floors, count * 2);
+                leaving = Arrays.copyOf(leaving, count * 2);
+                arrivals = Arrays.copyOf(arrivals, count * 2);
+            }
+            floors[count] = floor;
+            leaving[count] = leave;
+            arrivals[count] = arrival;
+            count++;
+        }
+    }
+
+    // Outcome of projectTrip, along with the scratch it was computed on
+    public static class Trip {
+        private final BitSet up = new BitSet();
+        private final BitSet down = new BitSet();
+        private final int[] origins = new int[1];
+        private final Direction[] travel = new Direction[1];
+        private final int[] destinations = new int[1];
+        private final long[] pickups = new long[1];
+        private final long[] dropOffs = new long[1];
+        private long completionMillis;
+
+        private Trip() {
+        }
+
+        // Boarding time of the trip, or -1 if the route never picks it up
+        public long getPickupMillis() {
+            return pickups[0];
+        }
+
+        // Arrival time at the destination, or -1 if the trip is never delivered
+        public long getDropOffMillis() {
+            return dropOffs[0];
+        }
+
+        // Time until the car has served every stop, the trip included
+        public long getCompletionMillis() {
+            return completionMillis;
+        }
+    }
+}
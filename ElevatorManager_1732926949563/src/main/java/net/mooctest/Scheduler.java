@@ -1,25 +1,38 @@
 package net.mooctest;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.*;
 
 public class Scheduler implements Observer {
     private static volatile Scheduler instance;
     private final List<Elevator> elevatorList;
-    private final Map<Integer, Floor> floors;
-    private DispatchStrategy dispatchStrategy;
+    private final HallCallRegistry hallCalls;
+    private final int floorCount;
+    private volatile DispatchStrategy dispatchStrategy;
+    private volatile DestinationControlDispatcher destinationControl;
     private final Queue<PassengerRequest> highPriorityQueue;
     private final ReentrantLock lock;
+    private volatile AsyncLogger logger;
 
     public Scheduler(List<Elevator> elevatorList, int floorCount, DispatchStrategy strategy) {
+        this(elevatorList, floorCount, strategy, ConsoleLog.LOGGER);
+    }
+
+    // Dispatch decisions are logged through the logger's own thread; null logs nothing
+    public Scheduler(List<Elevator> elevatorList, int floorCount, DispatchStrategy strategy, AsyncLogger logger) {
         this.elevatorList = elevatorList;
-        this.floors = new HashMap<>();
-        for (int i = 1; i <= floorCount; i++) {
-            floors.put(i, new Floor(i));
-        }
+        this.hallCalls = new HallCallRegistry(floorCount);
+        this.floorCount = floorCount;
         this.dispatchStrategy = strategy;
-        this.highPriorityQueue = new LinkedList<>();
+        this.highPriorityQueue = new ConcurrentLinkedQueue<>();
         this.lock = new ReentrantLock();
+        this.logger = logger;
+    }
+
+    // One console logger shared by every scheduler built without its own, started on first use
+    private static class ConsoleLog {
+        static final AsyncLogger LOGGER = new AsyncLogger();
     }
 
     public static Scheduler getInstance(List<Elevator> elevatorList, int floorCount, DispatchStrategy strategy) {
@@ -45,34 +58,65 @@ public class Scheduler implements Observer {
     }
 
 
+    // Lock-free: the call is registered at its floor and the strategy only reads car state
     public void submitRequest(PassengerRequest request) {
-        lock.lock();
-        try {
-            if (request.getPriority() == Priority.HIGH) {
-                highPriorityQueue.add(request);
-            } else {
-                Floor floor = floors.get(request.getStartFloor());
-                floor.addRequest(request);
-            }
-            dispatchElevator(request);
-        } finally {
-            lock.unlock();
+        checkServiceable(request);
+        DestinationControlDispatcher groupControl = destinationControl;
+        if (groupControl != null && request.getRequestType() == RequestType.DESTINATION_CONTROL) {
+            groupControl.submit(request); // Assigned with the rest of its window
+            return;
+        }
+        if (request.getPriority() == Priority.HIGH) {
+            highPriorityQueue.add(request);
+        } else {
+            hallCalls.add(request);
+        }
+        dispatchElevator(request);
+    }
+
+    // Both floors must exist: a destination outside the building would fail the car that picks the call up
+    public boolean isServiceable(PassengerRequest request) {
+        return request.getStartFloor() >= 1 && request.getStartFloor() <= floorCount
+                && request.getDestinationFloor() >= 1 && request.getDestinationFloor() <= floorCount;
+    }
+
+    public void checkServiceable(PassengerRequest request) {
+        if (!isServiceable(request)) {
+            throw new IllegalArgumentException("Request " + request + " is outside floors 1.." + floorCount);
         }
     }
 
-    public void dispatchElevator(PassengerRequest request) {
+    // Returns whether a car was sent
+    public boolean dispatchElevator(PassengerRequest request) {
         Elevator selectedElevator = dispatchStrategy.selectElevator(elevatorList, request);
         if (selectedElevator != null) {
-            selectedElevator.addDestination(request.getStartFloor());
-            System.out.println("Elevator " + selectedElevator.getId() + " dispatched for request: " + request);
+            selectedElevator.addDestination(request.getStartFloor(), request.getDirection());
+            log("Elevator " + selectedElevator.getId() + " dispatched for request: " + request);
+            return true;
         } else {
-            System.out.println("No available elevators for request: " + request);
+            log("No available elevators for request: " + request);
+            return false;
+        }
+    }
+
+    private void log(String message) {
+        AsyncLogger current = logger;
+        if (current != null) {
+            current.log(message);
         }
     }
 
     public List<PassengerRequest> getRequestsAtFloor(int floorNumber, Direction direction) {
-        Floor floor = floors.get(floorNumber);
-        return floor.getRequests(direction);
+        return hallCalls.take(floorNumber, direction);
+    }
+
+    // Only the calls the car may board: unreserved ones and those reserved for it
+    public List<PassengerRequest> getRequestsAtFloor(int floorNumber, Direction direction, int elevatorId) {
+        return hallCalls.take(floorNumber, direction, elevatorId);
+    }
+
+    public HallCallRegistry getHallCalls() {
+        return hallCalls;
     }
 
     @Override
@@ -89,6 +133,7 @@ public class Scheduler implements Observer {
         lock.lock();
         try {
             List<PassengerRequest> pendingRequests = faultyElevator.clearAllRequests();
+            pendingRequests.addAll(hallCalls.release(faultyElevator.getId())); // Still waiting at their floors
             for (PassengerRequest request : pendingRequests) {
                 dispatchElevator(request);
             }
@@ -108,6 +153,27 @@ public class Scheduler implements Observer {
         }
     }
 
+    public List<Elevator> getElevators() {
+        return Collections.unmodifiableList(elevatorList);
+    }
+
+    public DispatchStrategy getDispatchStrategy() {
+        return dispatchStrategy;
+    }
+
+    // Destination calls are batched by the dispatcher when set; null assigns them one at a time
+    public void setDestinationControl(DestinationControlDispatcher destinationControl) {
+        this.destinationControl = destinationControl;
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    public void setLogger(AsyncLogger logger) {
+        this.logger = logger;
+    }
+
     public void setDispatchStrategy(DispatchStrategy strategy) {
         lock.lock();
         try {
@@ -10,10 +10,15 @@ public class SecurityMonitor implements EventBus.EventListener {
     private final LogManager logManager;
 
     public SecurityMonitor() {
+        this(EventBus.getInstance());
+    }
+
+    // With an AsyncEventBus emergencies are handled on the bus's subscriber thread, not the reporter's
+    public SecurityMonitor(EventBus eventBus) {
         this.securityEvents = new CopyOnWriteArrayList<>();
         this.executorService = Executors.newSingleThreadExecutor();
         this.logManager = LogManager.getInstance();
-        EventBus.getInstance().subscribe(EventType.EMERGENCY, this);
+        eventBus.subscribe(EventType.EMERGENCY, this);
     }
 
     public static SecurityMonitor getInstance() {
@@ -48,6 +53,10 @@ public class SecurityMonitor implements EventBus.EventListener {
         Scheduler.getInstance().executeEmergencyProtocol();
     }
 
+    public List<SecurityEvent> getSecurityEvents() {
+        return new ArrayList<>(securityEvents);
+    }
+
     public static class SecurityEvent {
         private final String description;
         private final long timestamp;
@@ -0,0 +1,459 @@
+package net.mooctest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Append-only log kept in memory-mapped segment files. Writers intern the source into an id and put the
+// record into a bounded lock-free queue; a single background thread encodes records into the active
+// segment and adds them to the time index of their source, which stays sorted so a range query is a
+// binary search followed by reads of the matching records only. Segments whose newest record is older
+// than the retention period are deleted as a whole. Opening a directory that already holds segments
+// recovers them: new segments are numbered after the highest existing one, and the old records are
+// indexed and queryable and fall under retention like any others.
+//
+// Record layout: int length of the message, long timestamp, int source id, UTF-8 message bytes. A -1
+// length marks the end of the written records in a segment. Source names are appended to the sources
+// file, as int length and UTF-8 bytes, before the first record that uses them.
+public class SegmentedLogStore {
+    public static final int DEFAULT_SEGMENT_BYTES = 8 * 1024 * 1024;
+    public static final long DEFAULT_RETENTION_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16384;
+    private static final int RECORD_HEADER_BYTES = 4 + 8 + 4;
+    private static final int END_OF_RECORDS = -1;
+    private static final String SOURCES_FILE = "sources";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long retentionMillis;
+    private final Clock clock;
+    private final BoundedMpscQueue<Entry> queue;
+    private final Map<String, Integer> sourceIds = new ConcurrentHashMap<>();
+    private final List<String> sourceNames = new CopyOnWriteArrayList<>();
+    private final List<SourceIndex> indexes = new CopyOnWriteArrayList<>();
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong backpressure = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running;
+    private volatile RuntimeException failure; // Why the writer stopped early, if it did
+    private volatile Segment active; // Written by the writer thread only
+    private int nextSegmentId;  // Writer thread only
+    private int persistedSources; // Writer thread only; source names already in the sources file
+
+    public SegmentedLogStore(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_RETENTION_MILLIS, DEFAULT_QUEUE_CAPACITY,
+                RealTimeClock.getInstance());
+    }
+
+    public SegmentedLogStore(Path directory, int segmentBytes, long retentionMillis, int queueCapacity, Clock clock) {
+        if (segmentBytes <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.retentionMillis = retentionMillis;
+        this.clock = clock;
+        this.queue = new BoundedMpscQueue<>(queueCapacity);
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        enforceRetention();
+        this.running = true;
+        this.writer = new Thread(this::writeLoop, "log-segment-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Reloads the source names and indexes the records of the segments already in the directory
+    private void recover() throws IOException {
+        Path sources = directory.resolve(SOURCES_FILE);
+        if (Files.exists(sources)) {
+            ByteBuffer names = ByteBuffer.wrap(Files.readAllBytes(sources));
+            while (names.remaining() >= 4) {
+                int length = names.getInt();
+                if (length < 0 || length > names.remaining()) {
+                    break; // Torn final name
+                }
+                byte[] name = new byte[length];
+                names.get(name);
+                intern(new String(name, StandardCharsets.UTF_8));
+            }
+        }
+        persistedSources = sourceNames.size();
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path path : stream) {
+                if (path.getFileName().toString().matches("\\d{10}\\.seg")) {
+                    files.add(path);
+                }
+            }
+        }
+        for (Path path : files) {
+            String name = path.getFileName().toString();
+            int id = Integer.parseInt(name.substring(0, name.length() - 4));
+            Segment segment;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                segment = new Segment(id, path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            ByteBuffer view = segment.buffer.duplicate();
+            while (view.remaining() >= RECORD_HEADER_BYTES) {
+                int position = view.position();
+                int length = view.getInt();
+                long timestamp = view.getLong();
+                int sourceId = view.getInt();
+                if (length < 0 || length > view.remaining() || sourceId < 0 || sourceId >= sourceNames.size()) {
+                    break;
+                }
+                view.position(view.position() + length);
+                segment.include(timestamp);
+                indexes.get(sourceId).add(timestamp, ((long) id << 32) | position);
+            }
+            segments.put(id, segment);
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+    }
+
+    // Id of a source name; assigned once, so records and indexes never compare source strings
+    public int intern(String source) {
+        Integer id = sourceIds.get(source);
+        if (id != null) {
+            return id;
+        }
+        synchronized (sourceNames) {
+            id = sourceIds.get(source);
+            if (id == null) {
+                id = sourceNames.size();
+                sourceNames.add(source);
+                indexes.add(new SourceIndex());
+                sourceIds.put(source, id);
+            }
+            return id;
+        }
+    }
+
+    // Never drops a record: when the queue is full the caller waits for the writer to catch up. Throws
+    // once the writer has failed, since nothing would ever be written again.
+    public void append(String source, String message, long timestamp) {
+        checkWriter();
+        Entry entry = new Entry(intern(source), message, timestamp);
+        while (!queue.offer(entry)) {
+            if (!running) {
+                throw new IllegalStateException("Log store is closed");
+            }
+            if (!writer.isAlive()) {
+                checkWriter();
+                throw new IllegalStateException("Log writer has stopped");
+            }
+            backpressure.incrementAndGet();
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, 100_000L);
+        }
+        appended.incrementAndGet();
+        LockSupport.unpark(writer);
+    }
+
+    // Waits until every record appended before the call is written and indexed
+    public void flush() {
+        long target = appended.get();
+        while (written.get() < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(this, 100_000L);
+        }
+        checkWriter();
+    }
+
+    private void checkWriter() {
+        RuntimeException cause = failure;
+        if (cause != null) {
+            throw new IllegalStateException("Log writer failed", cause);
+        }
+    }
+
+    // Records of a source with startTime <= timestamp <= endTime in time order; only written records are seen
+    public List<LogManager.SystemLog> query(String source, long startTime, long endTime) {
+        Integer id = sourceIds.get(source);
+        if (id == null) {
+            return new ArrayList<>();
+        }
+        long[] locations = indexes.get(id).find(startTime, endTime);
+        List<LogManager.SystemLog> result = new ArrayList<>(locations.length);
+        for (long location : locations) {
+            Segment segment = segments.get((int) (location >>> 32));
+            if (segment != null) { // Deleted by retention after the index lookup
+                result.add(segment.read((int) location, sourceNames));
+            }
+        }
+        return result;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        try {
+            while (running || !queue.isEmpty()) {
+                if (queue.drainTo(batch, 256) == 0) {
+                    LockSupport.parkNanos(this, 1_000_000L);
+                    continue;
+                }
+                for (Entry entry : batch) {
+                    write(entry);
+                }
+                written.addAndGet(batch.size());
+                batch.clear();
+            }
+        } catch (RuntimeException e) {
+            failure = e; // Reported to appenders and flushers instead of leaving them waiting
+        }
+    }
+
+    private void write(Entry entry) {
+        byte[] message = entry.message.getBytes(StandardCharsets.UTF_8);
+        int maxMessage = segmentBytes - RECORD_HEADER_BYTES;
+        if (message.length > maxMessage) {
+            message = Arrays.copyOf(message, maxMessage); // Oversized records are cut to fit one segment
+        }
+        if (active == null || active.buffer.remaining() < RECORD_HEADER_BYTES + message.length) {
+            roll();
+        }
+        if (entry.sourceId >= persistedSources) {
+            persistSources();
+        }
+        MappedByteBuffer buffer = active.buffer;
+        int position = buffer.position();
+        buffer.putInt(message.length).putLong(entry.timestamp).putInt(entry.sourceId).put(message);
+        markEnd(buffer);
+        active.include(entry.timestamp);
+        indexes.get(entry.sourceId).add(entry.timestamp, ((long) active.id << 32) | position);
+    }
+
+    // Lets recovery find where the written records stop without relying on the file being zeroed
+    private static void markEnd(MappedByteBuffer buffer) {
+        if (buffer.remaining() >= 4) {
+            buffer.putInt(buffer.position(), END_OF_RECORDS);
+        }
+    }
+
+    // Appends the names interned since the last call, so every record's source survives a restart
+    private void persistSources() {
+        int count = sourceNames.size();
+        List<byte[]> encoded = new ArrayList<>();
+        int size = 0;
+        for (int id = persistedSources; id < count; id++) {
+            byte[] name = sourceNames.get(id).getBytes(StandardCharsets.UTF_8);
+            encoded.add(name);
+            size += 4 + name.length;
+        }
+        ByteBuffer names = ByteBuffer.allocate(size);
+        for (byte[] name : encoded) {
+            names.putInt(name.length).put(name);
+        }
+        names.flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(SOURCES_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (names.hasRemaining()) {
+                channel.write(names);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        persistedSources = count;
+    }
+
+    private void roll() {
+        int id = nextSegmentId++;
+        Path path = directory.resolve(String.format("%010d.seg", id));
+        // CREATE_NEW: ids continue after the recovered segments, so an existing file is never overwritten
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        markEnd(active.buffer);
+        segments.put(id, active);
+        enforceRetention();
+    }
+
+    // Deletes closed segments whose newest record is past retention, oldest first; returns how many
+    public synchronized int enforceRetention() {
+        long cutoff = clock.currentTimeMillis() - retentionMillis;
+        int deleted = 0;
+        for (Segment segment : segments.values()) {
+            if (segment == active || segment.maxTimestamp >= cutoff) {
+                break;
+            }
+            segments.remove(segment.id);
+            for (SourceIndex index : indexes) {
+                index.removeSegment(segment.id);
+            }
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // Writes out everything queued so far and stops the writer; written records stay queryable
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join();
+    }
+
+    // Stops the writer and deletes every segment, the sources file and then the directory itself
+    public void delete() throws InterruptedException {
+        close();
+        for (Segment segment : segments.values()) {
+            segments.remove(segment.id);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(SOURCES_FILE));
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public int getSourceCount() {
+        return sourceNames.size();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    // Times a writer had to wait because the queue was full
+    public long getBackpressureCount() {
+        return backpressure.get();
+    }
+
+    private static class Entry {
+        final int sourceId;
+        final String message;
+        final long timestamp;
+
+        Entry(int sourceId, String message, long timestamp) {
+            this.sourceId = sourceId;
+            this.message = message;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static class Segment {
+        final int id;
+        final Path path;
+        final MappedByteBuffer buffer; // Position is only moved by the writer; readers use duplicates
+        volatile long maxTimestamp = Long.MIN_VALUE;
+
+        Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        void include(long timestamp) {
+            if (timestamp > maxTimestamp) {
+                maxTimestamp = timestamp;
+            }
+        }
+
+        LogManager.SystemLog read(int position, List<String> sourceNames) {
+            ByteBuffer view = buffer.duplicate();
+            view.position(position);
+            int length = view.getInt();
+            long timestamp = view.getLong();
+            int sourceId = view.getInt();
+            byte[] message = new byte[length];
+            view.get(message);
+            return new LogManager.SystemLog(sourceNames.get(sourceId), new String(message, StandardCharsets.UTF_8),
+                    timestamp);
+        }
+    }
+
+    // Record locations (segment id << 32 | position) of one source sorted by timestamp. Writers on different
+    // threads can enqueue slightly out of order, so an entry is inserted from the end like insertion sort,
+    // which costs O(1) for records that arrive in order.
+    private static class SourceIndex {
+        private long[] timestamps = new long[64];
+        private long[] locations = new long[64];
+        private int size;
+
+        synchronized void add(long timestamp, long location) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                locations = Arrays.copyOf(locations, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && timestamps[i - 1] > timestamp) {
+                timestamps[i] = timestamps[i - 1];
+                locations[i] = locations[i - 1];
+                i--;
+            }
+            timestamps[i] = timestamp;
+            locations[i] = location;
+        }
+
+        synchronized long[] find(long startTime, long endTime) {
+            int from = lowerBound(startTime);
+            int to = endTime == Long.MAX_VALUE ? size : lowerBound(endTime + 1);
+            return from < to ? Arrays.copyOfRange(locations, from, to) : new long[0];
+        }
+
+        private int lowerBound(long timestamp) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[mid] < timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        synchronized void removeSegment(int segmentId) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if ((int) (locations[i] >>> 32) != segmentId) {
+                    timestamps[kept] = timestamps[i];
+                    locations[kept] = locations[i];
+                    kept++;
+                }
+            }
+            size = kept;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Discrete-event clock. Scheduled actions are kept in a priority queue ordered by due time and then by
+// insertion order, and run() jumps the clock straight to the next due action, so a run is deterministic
+// and independent of wall time. The clock is single-threaded: actions must be scheduled from the thread
+// that runs it.
+public class SimulationClock implements Clock {
+    private final PriorityQueue<TimedEvent> events;
+    private long now;
+    private long sequence;
+    private long processedEvents;
+
+    public SimulationClock() {
+        this(0);
+    }
+
+    public SimulationClock(long startMillis) {
+        this.events = new PriorityQueue<>();
+        this.now = startMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    // There is nothing to wait for in simulated time, so sleeping just moves the clock forward
+    @Override
+    public void sleep(long millis) {
+        now += Math.max(0, millis);
+    }
+
+    @Override
+    public void schedule(long delayMillis, Runnable action) {
+        events.add(new TimedEvent(now + Math.max(0, delayMillis), sequence++, action));
+    }
+
+    public void scheduleAt(long timeMillis, Runnable action) {
+        schedule(timeMillis - now, action);
+    }
+
+    // Runs the next due action; returns false when nothing is scheduled
+    public boolean runNext() {
+        TimedEvent event = events.poll();
+        if (event == null) {
+            return false;
+        }
+        now = Math.max(now, event.time);
+        processedEvents++;
+        event.action.run();
+        return true;
+    }
+
+    // Runs every action due at or before endMillis and leaves the clock at endMillis
+    public void runUntil(long endMillis) {
+        while (!events.isEmpty() && events.peek().time <= endMillis) {
+            runNext();
+        }
+        now = Math.max(now, endMillis);
+    }
+
+    public int getPendingEventCount() {
+        return events.size();
+    }
+
+    public long getProcessedEventCount() {
+        return processedEvents;
+    }
+
+    private static class TimedEvent implements Comparable<TimedEvent> {
+        private final long time;
+        private final long sequence;
+        private final Runnable action;
+
+        TimedEvent(long time, long sequence, Runnable action) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(TimedEvent other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
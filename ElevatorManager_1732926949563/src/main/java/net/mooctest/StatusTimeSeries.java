@@ -0,0 +1,391 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Bounded history of ElevatorStatusReports. Every car has a ring of raw samples kept column by column in
+// primitive arrays, plus minute and hour rollups that are updated as samples arrive, so the oldest raw
+// samples can be overwritten while their aggregates live on. Appending is O(1) and allocation-free, and a
+// range query binary-searches the ring for its first sample.
+public class StatusTimeSeries {
+    public static final int DEFAULT_RAW_CAPACITY = 3600;     // One hour at one report per second
+    public static final int DEFAULT_MINUTE_CAPACITY = 1440;  // One day
+    public static final int DEFAULT_HOUR_CAPACITY = 720;     // Thirty days
+    public static final long MINUTE_MILLIS = 60 * 1000;
+    public static final long HOUR_MILLIS = 60 * MINUTE_MILLIS;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final ElevatorStatus[] STATUSES = ElevatorStatus.values();
+
+    private final int rawCapacity;
+    private final int minuteCapacity;
+    private final int hourCapacity;
+    private final Map<Integer, CarSeries> cars = new ConcurrentHashMap<>();
+
+    public StatusTimeSeries() {
+        this(DEFAULT_RAW_CAPACITY, DEFAULT_MINUTE_CAPACITY, DEFAULT_HOUR_CAPACITY);
+    }
+
+    public StatusTimeSeries(int rawCapacity, int minuteCapacity, int hourCapacity) {
+        if (rawCapacity <= 0 || minuteCapacity <= 0 || hourCapacity <= 0) {
+            throw new IllegalArgumentException("Capacities must be positive");
+        }
+        this.rawCapacity = rawCapacity;
+        this.minuteCapacity = minuteCapacity;
+        this.hourCapacity = hourCapacity;
+    }
+
+    // Reports of one car are expected in time order; an earlier timestamp is recorded at the latest time
+    public void append(ElevatorStatusReport report, long timeMillis) {
+        CarSeries series = cars.get(report.getElevatorId());
+        if (series == null) {
+            series = cars.computeIfAbsent(report.getElevatorId(), id -> new CarSeries());
+        }
+        series.append(report, timeMillis);
+    }
+
+    public Set<Integer> getCarIds() {
+        return new TreeSet<>(cars.keySet());
+    }
+
+    public ElevatorStatusReport getLatest(int elevatorId) {
+        CarSeries series = cars.get(elevatorId);
+        return series == null ? null : series.latest(elevatorId);
+    }
+
+    // Raw samples of a car with fromMillis <= time < toMillis that are still in the ring
+    public Samples query(int elevatorId, long fromMillis, long toMillis) {
+        CarSeries series = cars.get(elevatorId);
+        return series == null ? Samples.EMPTY : series.query(fromMillis, toMillis);
+    }
+
+    public Rollups queryMinutes(int elevatorId, long fromMillis, long toMillis) {
+        CarSeries series = cars.get(elevatorId);
+        return series == null ? Rollups.EMPTY : series.queryMinutes(fromMillis, toMillis);
+    }
+
+    public Rollups queryHours(int elevatorId, long fromMillis, long toMillis) {
+        CarSeries series = cars.get(elevatorId);
+        return series == null ? Rollups.EMPTY : series.queryHours(fromMillis, toMillis);
+    }
+
+    public int size(int elevatorId) {
+        CarSeries series = cars.get(elevatorId);
+        return series == null ? 0 : series.size();
+    }
+
+    private class CarSeries {
+        private final long[] times = new long[rawCapacity];
+        private final int[] floors = new int[rawCapacity];
+        private final byte[] directions = new byte[rawCapacity];
+        private final byte[] statuses = new byte[rawCapacity];
+        private final double[] speeds = new double[rawCapacity];
+        private final double[] loads = new double[rawCapacity];
+        private final int[] passengers = new int[rawCapacity];
+        private final RollupRing minutes = new RollupRing(minuteCapacity, MINUTE_MILLIS);
+        private final RollupRing hours = new RollupRing(hourCapacity, HOUR_MILLIS);
+        private long written; // Samples ever appended; the ring holds the last min(written, capacity)
+        private int lastFloor;
+
+        synchronized void append(ElevatorStatusReport report, long timeMillis) {
+            if (written > 0) {
+                timeMillis = Math.max(timeMillis, times[(int) ((written - 1) % rawCapacity)]);
+            }
+            int travelled = written > 0 ? Math.abs(report.getCurrentFloor() - lastFloor) : 0;
+            int slot = (int) (written % rawCapacity);
+            times[slot] = timeMillis;
+            floors[slot] = report.getCurrentFloor();
+            directions[slot] = (byte) (report.getDirection() == null ? -1 : report.getDirection().ordinal());
+            statuses[slot] = (byte) (report.getStatus() == null ? -1 : report.getStatus().ordinal());
+            speeds[slot] = report.getSpeed();
+            loads[slot] = report.getCurrentLoad();
+            passengers[slot] = report.getPassengerCount();
+            written++;
+            lastFloor = report.getCurrentFloor();
+
+            boolean moving = report.getStatus() == ElevatorStatus.MOVING;
+            minutes.add(timeMillis, report.getCurrentLoad(), report.getSpeed(), report.getPassengerCount(),
+                    travelled, moving);
+            hours.add(timeMillis, report.getCurrentLoad(), report.getSpeed(), report.getPassengerCount(),
+                    travelled, moving);
+        }
+
+        synchronized int size() {
+            return (int) Math.min(written, rawCapacity);
+        }
+
+        synchronized ElevatorStatusReport latest(int elevatorId) {
+            if (written == 0) {
+                return null;
+            }
+            int slot = (int) ((written - 1) % rawCapacity);
+            return new ElevatorStatusReport(elevatorId, floors[slot], direction(directions[slot]),
+                    status(statuses[slot]), speeds[slot], loads[slot], passengers[slot]);
+        }
+
+        synchronized Samples query(long fromMillis, long toMillis) {
+            int size = (int) Math.min(written, rawCapacity);
+            long oldest = written - size;
+            int start = lowerBound(oldest, size, fromMillis);
+            int end = lowerBound(oldest, size, toMillis);
+            int count = Math.max(0, end - start);
+            Samples result = new Samples(count);
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((oldest + start + i) % rawCapacity);
+                result.times[i] = times[slot];
+                result.floors[i] = floors[slot];
+                result.directions[i] = direction(directions[slot]);
+                result.statuses[i] = status(statuses[slot]);
+                result.speeds[i] = speeds[slot];
+                result.loads[i] = loads[slot];
+                result.passengerCounts[i] = passengers[slot];
+            }
+            return result;
+        }
+
+        synchronized Rollups queryMinutes(long fromMillis, long toMillis) {
+            return minutes.query(fromMillis, toMillis);
+        }
+
+        synchronized Rollups queryHours(long fromMillis, long toMillis) {
+            return hours.query(fromMillis, toMillis);
+        }
+
+        // Position (relative to the oldest retained sample) of the first sample at or after timeMillis
+        private int lowerBound(long oldest, int size, long timeMillis) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[(int) ((oldest + mid) % rawCapacity)] < timeMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static Direction direction(byte ordinal) {
+        return ordinal < 0 ? null : DIRECTIONS[ordinal];
+    }
+
+    private static ElevatorStatus status(byte ordinal) {
+        return ordinal < 0 ? null : STATUSES[ordinal];
+    }
+
+    // Aggregates per fixed interval, oldest overwritten first; guarded by the owning CarSeries
+    private static class RollupRing {
+        private final int capacity;
+        private final long intervalMillis;
+        private final long[] starts;
+        private final int[] samples;
+        private final double[] loadSums;
+        private final double[] loadMaxes;
+        private final double[] speedSums;
+        private final int[] passengerMaxes;
+        private final int[] floorsTravelled;
+        private final int[] movingSamples;
+        private long written;
+
+        RollupRing(int capacity, long intervalMillis) {
+            this.capacity = capacity;
+            this.intervalMillis = intervalMillis;
+            this.starts = new long[capacity];
+            this.samples = new int[capacity];
+            this.loadSums = new double[capacity];
+            this.loadMaxes = new double[capacity];
+            this.speedSums = new double[capacity];
+            this.passengerMaxes = new int[capacity];
+            this.floorsTravelled = new int[capacity];
+            this.movingSamples = new int[capacity];
+        }
+
+        void add(long timeMillis, double load, double speed, int passengers, int travelled, boolean moving) {
+            long start = Math.floorDiv(timeMillis, intervalMillis) * intervalMillis;
+            int slot = (int) ((written - 1) % capacity);
+            if (written == 0 || starts[slot] != start) {
+                slot = (int) (written % capacity);
+                written++;
+                starts[slot] = start;
+                samples[slot] = 0;
+                loadSums[slot] = 0;
+                loadMaxes[slot] = 0;
+                speedSums[slot] = 0;
+                passengerMaxes[slot] = 0;
+                floorsTravelled[slot] = 0;
+                movingSamples[slot] = 0;
+            }
+            samples[slot]++;
+            loadSums[slot] += load;
+            loadMaxes[slot] = Math.max(loadMaxes[slot], load);
+            speedSums[slot] += speed;
+            passengerMaxes[slot] = Math.max(passengerMaxes[slot], passengers);
+            floorsTravelled[slot] += travelled;
+            if (moving) {
+                movingSamples[slot]++;
+            }
+        }
+
+        Rollups query(long fromMillis, long toMillis) {
+            int size = (int) Math.min(written, capacity);
+            long oldest = written - size;
+            // Intervals overlapping the range: first whose end is after fromMillis, up to the first starting at toMillis
+            long firstStart = Math.floorDiv(fromMillis, intervalMillis) * intervalMillis;
+            int begin = lowerBound(oldest, size, firstStart);
+            int end = lowerBound(oldest, size, toMillis);
+            int count = Math.max(0, end - begin);
+            Rollups result = new Rollups(count, intervalMillis);
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((oldest + begin + i) % capacity);
+                result.starts[i] = starts[slot];
+                result.sampleCounts[i] = samples[slot];
+                result.averageLoads[i] = loadSums[slot] / samples[slot];
+                result.maxLoads[i] = loadMaxes[slot];
+                result.averageSpeeds[i] = speedSums[slot] / samples[slot];
+                result.maxPassengerCounts[i] = passengerMaxes[slot];
+                result.floorsTravelled[i] = floorsTravelled[slot];
+                result.movingFractions[i] = (double) movingSamples[slot] / samples[slot];
+            }
+            return result;
+        }
+
+        private int lowerBound(long oldest, int size, long timeMillis) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[(int) ((oldest + mid) % capacity)] < timeMillis) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    // Raw samples of a range, one array per field, oldest first
+    public static class Samples {
+        static final Samples EMPTY = new Samples(0);
+
+        private final long[] times;
+        private final int[] floors;
+        private final Direction[] directions;
+        private final ElevatorStatus[] statuses;
+        private final double[] speeds;
+        private final double[] loads;
+        private final int[] passengerCounts;
+
+        Samples(int count) {
+            this.times = new long[count];
+            this.floors = new int[count];
+            this.directions = new Direction[count];
+            this.statuses = new ElevatorStatus[count];
+            this.speeds = new double[count];
+            this.loads = new double[count];
+            this.passengerCounts = new int[count];
+        }
+
+        public int size() {
+            return times.length;
+        }
+
+        public long getTime(int i) {
+            return times[i];
+        }
+
+        public int getFloor(int i) {
+            return floors[i];
+        }
+
+        public Direction getDirection(int i) {
+            return directions[i];
+        }
+
+        public ElevatorStatus getStatus(int i) {
+            return statuses[i];
+        }
+
+        public double getSpeed(int i) {
+            return speeds[i];
+        }
+
+        public double getLoad(int i) {
+            return loads[i];
+        }
+
+        public int getPassengerCount(int i) {
+            return passengerCounts[i];
+        }
+    }
+
+    // Rollup intervals of a range, one array per aggregate, oldest first
+    public static class Rollups {
+        static final Rollups EMPTY = new Rollups(0, 0);
+
+        private final long intervalMillis;
+        private final long[] starts;
+        private final int[] sampleCounts;
+        private final double[] averageLoads;
+        private final double[] maxLoads;
+        private final double[] averageSpeeds;
+        private final int[] maxPassengerCounts;
+        private final int[] floorsTravelled;
+        private final double[] movingFractions;
+
+        Rollups(int count, long intervalMillis) {
+            this.intervalMillis = intervalMillis;
+            this.starts = new long[count];
+            this.sampleCounts = new int[count];
+            this.averageLoads = new double[count];
+            this.maxLoads = new double[count];
+            this.averageSpeeds = new double[count];
+            this.maxPassengerCounts = new int[count];
+            this.floorsTravelled = new int[count];
+            this.movingFractions = new double[count];
+        }
+
+        public int size() {
+            return starts.length;
+        }
+
+        public long getIntervalMillis() {
+            return intervalMillis;
+        }
+
+        public long getStart(int i) {
+            return starts[i];
+        }
+
+        public int getSampleCount(int i) {
+            return sampleCounts[i];
+        }
+
+        public double getAverageLoad(int i) {
+            return averageLoads[i];
+        }
+
+        public double getMaxLoad(int i) {
+            return maxLoads[i];
+        }
+
+        public double getAverageSpeed(int i) {
+            return averageSpeeds[i];
+        }
+
+        public int getMaxPassengerCount(int i) {
+            return maxPassengerCounts[i];
+        }
+
+        public int getFloorsTravelled(int i) {
+            return floorsTravelled[i];
+        }
+
+        // Share of the interval's samples in which the car was moving
+        public double getMovingFraction(int i) {
+            return movingFractions[i];
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package net.mooctest;
 
+import java.nio.file.Path;
+
 public class SystemConfig {
     private static volatile SystemConfig instance;
     private int floorCount;
     private int elevatorCount;
     private double maxLoad; // Maximum load per elevator in kg
+    private volatile Path logDirectory; // Where the default LogManager keeps its segments; null for a temporary one
 
     public SystemConfig() {
         // Default configuration
@@ -53,4 +56,12 @@ public class SystemConfig {
             this.maxLoad = maxLoad;
         }
     }
+
+    public Path getLogDirectory() {
+        return logDirectory;
+    }
+
+    public void setLogDirectory(Path logDirectory) {
+        this.logDirectory = logDirectory;
+    }
 }
@@ -0,0 +1,145 @@
+package net.mooctest;
+
+import java.util.*;
+
+// Deterministic building traffic. Calls arrive as a Poisson process (exponential gaps between arrivals)
+// and occupied floors are chosen in proportion to their population, so the same seed always yields the
+// same day. The lobby is floor 1 and has no population of its own.
+public class TrafficGenerator {
+    public enum Pattern {
+        UP_PEAK,     // Arrivals at the lobby going to the occupied floors
+        DOWN_PEAK,   // Occupied floors to the lobby
+        LUNCH,       // Half to the lobby, half back up from it
+        INTER_FLOOR  // Between occupied floors
+    }
+
+    private final int floorCount;
+    private final int[] population;       // By floor; index 0 and the lobby are unused
+    private final long[] cumulative;      // Running population total for weighted floor picks
+    private final Random random;
+
+    // Every floor above the lobby holds the same number of people
+    public TrafficGenerator(long seed, int floorCount, int peoplePerFloor) {
+        this(seed, uniform(floorCount, peoplePerFloor));
+    }
+
+    // population[floor] for floors 1..n; floor 1 is the lobby and its entry is ignored
+    public TrafficGenerator(long seed, int[] population) {
+        this.floorCount = population.length - 1;
+        if (floorCount < 2) {
+            throw new IllegalArgumentException("A building needs a lobby and at least one occupied floor");
+        }
+        this.population = population.clone();
+        this.population[0] = 0;
+        this.population[1] = 0;
+        this.cumulative = new long[population.length];
+        for (int floor = 1; floor <= floorCount; floor++) {
+            cumulative[floor] = cumulative[floor - 1] + this.population[floor];
+        }
+        if (cumulative[floorCount] == 0) {
+            throw new IllegalArgumentException("No occupied floors");
+        }
+        this.random = new Random(seed);
+    }
+
+    private static int[] uniform(int floorCount, int peoplePerFloor) {
+        int[] population = new int[floorCount + 1];
+        Arrays.fill(population, peoplePerFloor);
+        return population;
+    }
+
+    public int getTotalPopulation() {
+        return (int) cumulative[floorCount];
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    // Calls of one pattern between startMillis and startMillis + durationMillis, in time order
+    public List<PassengerRequest> generate(Pattern pattern, long startMillis, long durationMillis,
+                                           double arrivalsPerMinute) {
+        List<PassengerRequest> requests = new ArrayList<>();
+        if (arrivalsPerMinute <= 0) {
+            return requests;
+        }
+        double meanGapMillis = 60000.0 / arrivalsPerMinute;
+        double time = startMillis;
+        while (true) {
+            time += -Math.log(1 - random.nextDouble()) * meanGapMillis;
+            if (time >= startMillis + durationMillis) {
+                return requests;
+            }
+            requests.add(request(pattern, (long) time));
+        }
+    }
+
+    private PassengerRequest request(Pattern pattern, long time) {
+        int origin;
+        int destination;
+        switch (pattern) {
+            case UP_PEAK:
+                origin = 1;
+                destination = occupiedFloor(0);
+                break;
+            case DOWN_PEAK:
+                origin = occupiedFloor(0);
+                destination = 1;
+                break;
+            case LUNCH:
+                if (random.nextBoolean()) {
+                    origin = occupiedFloor(0);
+                    destination = 1;
+                } else {
+                    origin = 1;
+                    destination = occupiedFloor(0);
+                }
+                break;
+            default:
+                origin = occupiedFloor(0);
+                destination = occupiedFloor(origin);
+                break;
+        }
+        return new PassengerRequest(origin, destination, Priority.MEDIUM, RequestType.STANDARD, time);
+    }
+
+    // Occupied floor picked by population, never the excluded floor (0 excludes none)
+    private int occupiedFloor(int excluded) {
+        if (excluded > 0 && cumulative[floorCount] == population[excluded]) {
+            return 1; // Only one occupied floor: inter-floor trips go via the lobby
+        }
+        while (true) {
+            long ticket = (long) (random.nextDouble() * cumulative[floorCount]);
+            int low = 2;
+            int high = floorCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] <= ticket) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low != excluded) {
+                return low;
+            }
+        }
+    }
+
+    // An office day starting at dayStartMillis: morning up-peak, lunch, evening down-peak and light
+    // inter-floor traffic from 7:00 to 19:00. Peak rates are a share of the population per five minutes,
+    // the usual way handling capacity is specified; intensity scales all of them.
+    public List<PassengerRequest> generateOfficeDay(long dayStartMillis, double intensity) {
+        long hour = 60 * 60 * 1000;
+        long minute = 60 * 1000;
+        double people = getTotalPopulation() * intensity;
+        List<PassengerRequest> day = new ArrayList<>();
+        day.addAll(generate(Pattern.UP_PEAK, dayStartMillis + 8 * hour, 90 * minute, people * 0.12 / 5));
+        day.addAll(generate(Pattern.LUNCH, dayStartMillis + 11 * hour + 45 * minute, 90 * minute, people * 0.08 / 5));
+        day.addAll(generate(Pattern.DOWN_PEAK, dayStartMillis + 16 * hour + 45 * minute, 90 * minute,
+                people * 0.10 / 5));
+        day.addAll(generate(Pattern.INTER_FLOOR, dayStartMillis + 7 * hour, 12 * hour, people * 0.01 / 5));
+        day.sort(Comparator.comparingLong(PassengerRequest::getTimestamp)); // Stable, so the order stays seeded
+        return day;
+    }
+}
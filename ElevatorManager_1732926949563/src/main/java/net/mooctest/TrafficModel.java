@@ -0,0 +1,159 @@
+package net.mooctest;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Streaming model of hall-call arrivals. The day is split into fixed time-of-day buckets and every bucket
+// keeps an arrival rate per floor and direction, smoothed exponentially over the days it has been seen.
+// Arrivals are only counted while a bucket is open; the rates are folded in once, when the bucket closes,
+// so recording a call is a single atomic increment.
+public class TrafficModel {
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    public static final long DEFAULT_BUCKET_MILLIS = 15L * 60 * 1000;
+    public static final double DEFAULT_SMOOTHING = 0.3;
+
+    private final int floorCount;
+    private final long bucketMillis;
+    private final int bucketsPerDay;
+    private final double smoothing;
+    private final double[][] rates;  // [time-of-day bucket][slot] arrivals per minute; guarded by this
+    private final boolean[] seen;    // Whether a bucket has been closed at least once; guarded by this
+    private final AtomicIntegerArray openCounts; // Arrivals in the open bucket by slot
+    private volatile long openBucket = -1;        // Absolute bucket number of the open bucket
+
+    public TrafficModel(int floorCount) {
+        this(floorCount, DEFAULT_BUCKET_MILLIS, DEFAULT_SMOOTHING);
+    }
+
+    public TrafficModel(int floorCount, long bucketMillis, double smoothing) {
+        if (bucketMillis <= 0 || DAY_MILLIS % bucketMillis != 0) {
+            throw new IllegalArgumentException("bucketMillis must divide a day");
+        }
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("smoothing must be in (0, 1]");
+        }
+        this.floorCount = floorCount;
+        this.bucketMillis = bucketMillis;
+        this.bucketsPerDay = (int) (DAY_MILLIS / bucketMillis);
+        this.smoothing = smoothing;
+        this.rates = new double[bucketsPerDay][2 * (floorCount + 1)];
+        this.seen = new boolean[bucketsPerDay];
+        this.openCounts = new AtomicIntegerArray(2 * (floorCount + 1));
+    }
+
+    private int slot(int floor, Direction direction) {
+        return direction == Direction.DOWN ? floorCount + 1 + floor : floor;
+    }
+
+    public void recordArrival(int floor, Direction direction, long timeMillis) {
+        if (floor < 1 || floor > floorCount) {
+            return;
+        }
+        advanceTo(timeMillis);
+        openCounts.incrementAndGet(slot(floor, direction)); // Late arrivals count towards the open bucket
+    }
+
+    // Closes every bucket that has ended by the given time
+    public void advanceTo(long timeMillis) {
+        if (timeMillis / bucketMillis > openBucket) {
+            roll(timeMillis / bucketMillis);
+        }
+    }
+
+    private synchronized void roll(long bucket) {
+        if (bucket <= openBucket) {
+            return;
+        }
+        if (openBucket >= 0) {
+            double minutes = bucketMillis / 60000.0;
+            int[] counts = new int[openCounts.length()];
+            for (int s = 0; s < counts.length; s++) {
+                counts[s] = openCounts.getAndSet(s, 0);
+            }
+            fold((int) (openBucket % bucketsPerDay), counts, minutes);
+            // Buckets that passed without any arrival pull their rates towards zero
+            long skipped = Math.min(bucket - openBucket - 1, bucketsPerDay);
+            for (long b = 1; b <= skipped; b++) {
+                fold((int) ((openBucket + b) % bucketsPerDay), null, minutes);
+            }
+        }
+        openBucket = bucket;
+    }
+
+    private void fold(int bucket, int[] counts, double minutes) {
+        double[] row = rates[bucket];
+        for (int s = 0; s < row.length; s++) {
+            double observed = counts == null ? 0 : counts[s] / minutes;
+            row[s] = seen[bucket] ? smoothing * observed + (1 - smoothing) * row[s] : observed;
+        }
+        seen[bucket] = true;
+    }
+
+    // Smoothed arrival rate per minute at a floor for the time of day, or 0 if the bucket has no history
+    public synchronized double getRate(int floor, Direction direction, long timeMillis) {
+        int bucket = (int) (Math.floorMod(timeMillis, DAY_MILLIS) / bucketMillis);
+        return seen[bucket] ? rates[bucket][slot(floor, direction)] : 0;
+    }
+
+    // Expected arrivals at a floor in [fromMillis, fromMillis + horizonMillis). When the forecast starts in
+    // the open bucket, buckets without history fall back to the rate observed so far, so a new pattern is
+    // picked up the same day. Forecasting never closes buckets; callers at the current time advance first.
+    public double forecast(int floor, Direction direction, long fromMillis, long horizonMillis) {
+        int s = slot(floor, direction);
+        long open = openBucket;
+        double openRate = 0;
+        if (open >= 0 && fromMillis / bucketMillis == open && fromMillis > open * bucketMillis) {
+            openRate = openCounts.get(s) / ((fromMillis - open * bucketMillis) / 60000.0);
+        }
+        double expected = 0;
+        synchronized (this) {
+            long t = fromMillis;
+            long end = fromMillis + horizonMillis;
+            while (t < end) {
+                long bucketEnd = (t / bucketMillis + 1) * bucketMillis;
+                long until = Math.min(end, bucketEnd);
+                int bucket = (int) (Math.floorMod(t, DAY_MILLIS) / bucketMillis);
+                double rate = seen[bucket] ? rates[bucket][s] : openRate;
+                expected += rate * (until - t) / 60000.0;
+                t = until;
+            }
+        }
+        return expected;
+    }
+
+    public double forecast(int floor, long fromMillis, long horizonMillis) {
+        return forecast(floor, Direction.UP, fromMillis, horizonMillis)
+                + forecast(floor, Direction.DOWN, fromMillis, horizonMillis);
+    }
+
+    // Expected calls in the whole building
+    public double forecastTotal(long fromMillis, long horizonMillis) {
+        double expected = 0;
+        for (int floor = 1; floor <= floorCount; floor++) {
+            expected += forecast(floor, fromMillis, horizonMillis);
+        }
+        return expected;
+    }
+
+    // Floors expected to receive at least minArrivals calls in the horizon, busiest first
+    public List<Integer> getHotFloors(long fromMillis, long horizonMillis, double minArrivals) {
+        List<Integer> hot = new ArrayList<>();
+        double[] demand = new double[floorCount + 1];
+        for (int floor = 1; floor <= floorCount; floor++) {
+            demand[floor] = forecast(floor, fromMillis, horizonMillis);
+            if (demand[floor] >= minArrivals) {
+                hot.add(floor);
+            }
+        }
+        hot.sort((a, b) -> Double.compare(demand[b], demand[a]));
+        return hot;
+    }
+
+    public int getFloorCount() {
+        return floorCount;
+    }
+
+    public long getBucketMillis() {
+        return bucketMillis;
+    }
+}
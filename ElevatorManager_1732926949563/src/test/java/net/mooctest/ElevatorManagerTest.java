@@ -7,6 +7,9 @@ import static org.junit.Assert.*;
  * 语法编写测试代码
  */
 
+import java.nio.file.*;
+import java.util.*;
+
 import org.junit.Test;
 
 public class ElevatorManagerTest {
@@ -16,4 +19,896 @@ public class ElevatorManagerTest {
 		
 	}
 
+	@Test(timeout = 20000)
+	public void testSimulatedDayIsDeterministic() {
+		long day = 24L * 60 * 60 * 1000;
+		ElevatorSimulation first = simulateDay(7L);
+		ElevatorSimulation second = simulateDay(7L);
+
+		assertEquals(day, first.getClock().currentTimeMillis());
+		assertTrue(first.getClock().getProcessedEventCount() > 3000);
+		double energy = 0;
+		for (int i = 0; i < 24; i++) {
+			Elevator a = first.getElevators().get(i);
+			Elevator b = second.getElevators().get(i);
+			assertEquals(a.getEnergyConsumption(), b.getEnergyConsumption(), 0.0);
+			assertEquals(a.getCurrentFloor(), b.getCurrentFloor());
+			energy += a.getEnergyConsumption();
+		}
+		assertTrue(energy > 0);
+
+		List<MaintenanceManager.MaintenanceRecord> records = first.getMaintenanceManager().getMaintenanceRecords();
+		assertEquals(1, records.size());
+		assertTrue(records.get(0).getMaintenanceTime() >= day / 2);
+		assertTrue(records.get(0).getMaintenanceTime() <= day / 2 + MaintenanceManager.POLL_INTERVAL_MILLIS);
+	}
+
+	@Test(timeout = 4000)
+	public void testSimulationClockOrdersEvents() {
+		SimulationClock clock = new SimulationClock();
+		List<String> order = new ArrayList<>();
+		clock.schedule(200, () -> order.add("b"));
+		clock.schedule(100, () -> {
+			order.add("a");
+			clock.schedule(100, () -> order.add("a2"));
+		});
+		clock.schedule(300, () -> order.add("c"));
+		clock.runUntil(250);
+		assertEquals(Arrays.asList("a", "b", "a2"), order);
+		assertEquals(250, clock.currentTimeMillis());
+		assertEquals(1, clock.getPendingEventCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testEventLoopRuntimeDrivesManyCars() throws InterruptedException {
+		ElevatorRuntime runtime = new ElevatorRuntime(2, true);
+		try {
+			List<Elevator> elevators = new ArrayList<>();
+			Scheduler scheduler = new Scheduler(elevators, 10, new NearestElevatorStrategy());
+			for (int i = 1; i <= 400; i++) {
+				Elevator elevator = new Elevator(i, scheduler);
+				elevators.add(elevator);
+				runtime.register(elevator);
+			}
+			for (Elevator elevator : elevators) {
+				elevator.addDestination(2);
+			}
+
+			for (Elevator elevator : elevators) {
+				while (elevator.getCurrentFloor() != 2 || elevator.hasPendingWork()) {
+					Thread.sleep(20);
+				}
+			}
+			for (ElevatorDriver driver : runtime.getDrivers()) {
+				while (driver.isActive()) {
+					Thread.sleep(20);
+				}
+			}
+			assertEquals(2, runtime.getLoopCount());
+			int loopThreads = 0;
+			for (Thread thread : Thread.getAllStackTraces().keySet()) {
+				if (thread.getName().startsWith("elevator-loop-")) {
+					loopThreads++;
+				}
+			}
+			assertTrue(loopThreads <= 2);
+			assertEquals(ElevatorStatus.IDLE, elevators.get(399).getStatus());
+		} finally {
+			runtime.shutdown();
+		}
+	}
+
+	@Test(timeout = 4000)
+	public void testLookServesStopsInSweepOrder() throws InterruptedException {
+		Scheduler scheduler = new Scheduler(new ArrayList<Elevator>(), 12, new NearestElevatorStrategy());
+		Elevator elevator = new Elevator(1, scheduler, new SimulationClock());
+		elevator.setCurrentFloor(5);
+		elevator.addDestination(8);
+		elevator.addDestination(3);
+		elevator.addDestination(10, Direction.DOWN);
+		elevator.addDestination(2, Direction.UP);
+		assertEquals(new TreeSet<>(Arrays.asList(2, 3, 8, 10)), elevator.getDestinationSet());
+
+		List<Integer> served = new ArrayList<>();
+		List<Direction> leaving = new ArrayList<>();
+		while (elevator.step() >= 0) {
+			if (elevator.getStatus() != ElevatorStatus.MOVING) {
+				served.add(elevator.getCurrentFloor());
+				leaving.add(elevator.getDirection());
+			}
+		}
+		assertEquals(Arrays.asList(8, 10, 3, 2), served);
+		assertEquals(Arrays.asList(Direction.UP, Direction.DOWN, Direction.DOWN, Direction.UP), leaving);
+		assertEquals(ElevatorStatus.IDLE, elevator.getStatus());
+		assertFalse(elevator.hasPendingWork());
+
+		// Destinations are accepted while another thread holds the car's lock
+		Thread holder = new Thread(() -> {
+			elevator.getLock().lock();
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				elevator.getLock().unlock();
+			}
+		});
+		holder.start();
+		while (!elevator.getLock().isLocked()) {
+			Thread.sleep(1);
+		}
+		long start = System.nanoTime();
+		elevator.addDestination(6);
+		assertTrue(System.nanoTime() - start < 500_000_000L);
+		holder.interrupt();
+		holder.join();
+		assertEquals(Collections.singleton(6), elevator.getDestinationSet());
+	}
+
+	@Test(timeout = 4000)
+	public void testHallCallRegistryAcceptsConcurrentCalls() throws InterruptedException {
+		HallCallRegistry registry = new HallCallRegistry(130);
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final int offset = t;
+			Thread producer = new Thread(() -> {
+				for (int i = 0; i < 1000; i++) {
+					int start = 2 + (i * 7 + offset) % 128;
+					int destination = i % 2 == 0 ? 1 : 130;
+					registry.add(new PassengerRequest(start, destination, Priority.MEDIUM, RequestType.STANDARD, i));
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+
+		assertEquals(2, registry.nextCall(1, Direction.UP));
+		assertEquals(129, registry.nextCall(130, Direction.DOWN));
+		assertTrue(registry.hasCall(64, Direction.UP));
+		int taken = 0;
+		for (int floor = 1; floor <= 130; floor++) {
+			taken += registry.take(floor, Direction.UP).size() + registry.take(floor, Direction.DOWN).size();
+		}
+		assertEquals(4000, taken);
+		assertTrue(registry.isEmpty());
+		assertEquals(-1, registry.nextCall(1, Direction.UP));
+
+		registry.add(new PassengerRequest(70, 3, Priority.MEDIUM, RequestType.STANDARD, 0));
+		registry.add(new PassengerRequest(5, 3, Priority.MEDIUM, RequestType.STANDARD, 0));
+		assertEquals(70, registry.nextCall(100, Direction.DOWN));
+		assertEquals(5, registry.nextCall(69, Direction.DOWN));
+		assertEquals(-1, registry.nextCall(4, Direction.DOWN));
+		assertEquals(1, registry.getWaitingCount(70, Direction.DOWN));
+	}
+
+	@Test(timeout = 10000)
+	public void testDispatchPipelineBatchesAndAppliesBackpressure() throws InterruptedException {
+		List<Elevator> elevators = new ArrayList<>();
+		Scheduler scheduler = new Scheduler(elevators, 20, new NearestElevatorStrategy());
+		for (int i = 1; i <= 4; i++) {
+			elevators.add(new Elevator(i, scheduler, new SimulationClock()));
+		}
+		List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+		AsyncLogger logger = new AsyncLogger(1 << 16, lines::add);
+		DispatchPipeline pipeline = new DispatchPipeline(scheduler, 1024, 64, logger);
+
+		// Nothing drains the queue before start(), so it fills up and rejects
+		int accepted = 0;
+		for (int i = 0; i < 2000; i++) {
+			if (pipeline.submit(new PassengerRequest(1 + i % 19, 20, Priority.MEDIUM, RequestType.STANDARD, i))) {
+				accepted++;
+			}
+		}
+		assertEquals(1024, accepted);
+		assertEquals(976, pipeline.getRejectedCount());
+		assertEquals(1024, pipeline.getMaxQueueDepth());
+
+		pipeline.start();
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread producer = new Thread(() -> {
+				for (int i = 0; i < 2500; i++) {
+					while (!pipeline.submit(new PassengerRequest(20, 1 + i % 19, Priority.MEDIUM, RequestType.STANDARD, i))) {
+						Thread.yield();
+					}
+				}
+			});
+			producers.add(producer);
+			producer.start();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		pipeline.stop();
+		logger.close();
+
+		assertEquals(11024, pipeline.getSubmittedCount());
+		assertEquals(11024, pipeline.getDispatchedCount() + pipeline.getUnassignedCount());
+		assertTrue(pipeline.getBatchCount() >= 11024 / 64);
+		assertEquals(0, pipeline.getQueueDepth());
+		assertEquals(11024, lines.size());
+		assertEquals(0, logger.getDroppedCount());
+		assertEquals(0, pipeline.getFailedCount());
+
+		// A floor outside the building is refused at submission and counted, not queued
+		DispatchPipeline checked = new DispatchPipeline(scheduler, 16, 4, logger);
+		assertFalse(checked.submit(new PassengerRequest(21, 3, Priority.MEDIUM, RequestType.STANDARD, 0)));
+		assertFalse(checked.submit(new PassengerRequest(3, 0, Priority.MEDIUM, RequestType.STANDARD, 0)));
+		assertEquals(2, checked.getInvalidCount());
+		assertEquals(0, checked.getSubmittedCount());
+		assertEquals(0, checked.getQueueDepth());
+
+		// Direct dispatches are logged through the scheduler's logger, not printed by the caller
+		List<String> schedulerLines = Collections.synchronizedList(new ArrayList<String>());
+		AsyncLogger schedulerLogger = new AsyncLogger(16, schedulerLines::add);
+		scheduler.setLogger(schedulerLogger);
+		assertTrue(scheduler.dispatchElevator(new PassengerRequest(5, 1, Priority.MEDIUM, RequestType.STANDARD, 0)));
+		schedulerLogger.close();
+		assertEquals(1, schedulerLines.size());
+		assertTrue(schedulerLines.get(0).startsWith("Elevator "));
+	}
+
+	@Test(timeout = 4000)
+	public void testHungarianFindsMinimumAssignment() {
+		double[][] costs = {
+				{4, 1, 3, 9},
+				{2, 0, 5, 9},
+				{3, 2, 2, 9}
+		};
+		int[] columns = DestinationControlDispatcher.hungarian(costs);
+		double total = 0;
+		Set<Integer> used = new HashSet<>();
+		for (int row = 0; row < costs.length; row++) {
+			total += costs[row][columns[row]];
+			assertTrue(used.add(columns[row]));
+		}
+		assertEquals(5.0, total, 1e-9); // 1 + 2 + 2
+	}
+
+	@Test(timeout = 4000)
+	public void testDestinationControlGroupsCallsJointly() {
+		SimulationClock clock = new SimulationClock();
+		List<Elevator> elevators = new ArrayList<>();
+		Scheduler scheduler = new Scheduler(elevators, 20, new NearestElevatorStrategy());
+		Elevator first = new Elevator(1, scheduler, clock);
+		Elevator second = new Elevator(2, scheduler, clock);
+		elevators.add(first);
+		elevators.add(second);
+		DestinationControlDispatcher dispatcher = new DestinationControlDispatcher(scheduler, clock, 2000);
+		scheduler.setDestinationControl(dispatcher);
+
+		// Same destination from neighbouring floors shares one car
+		scheduler.submitRequest(new PassengerRequest(1, 15, Priority.MEDIUM, RequestType.DESTINATION_CONTROL, 0));
+		scheduler.submitRequest(new PassengerRequest(2, 15, Priority.MEDIUM, RequestType.DESTINATION_CONTROL, 0));
+		scheduler.submitRequest(new PassengerRequest(2, 15, Priority.MEDIUM, RequestType.DESTINATION_CONTROL, 0));
+		assertEquals(3, dispatcher.getPendingCount());
+		clock.runUntil(1999);
+		assertEquals(0, dispatcher.getBatchCount());
+		clock.runUntil(2000);
+		assertEquals(1, dispatcher.getBatchCount());
+		assertEquals(3, dispatcher.getAssignedCount());
+		int carsWithStops = (first.getDestinationSet().isEmpty() ? 0 : 1) + (second.getDestinationSet().isEmpty() ? 0 : 1);
+		assertEquals(1, carsWithStops);
+
+		// A car that already stops at the destination takes the call
+		Elevator stopping = first.getDestinationSet().isEmpty() ? second : first;
+		Elevator other = stopping == first ? second : first;
+		stopping.clearAllRequests();
+		stopping.setCurrentFloor(5);
+		other.setCurrentFloor(5);
+		stopping.addDestination(12);
+		dispatcher.submit(new PassengerRequest(5, 12, Priority.MEDIUM, RequestType.DESTINATION_CONTROL, 0));
+		Map<Integer, List<PassengerRequest>> result = dispatcher.flush();
+		assertEquals(Collections.singleton(stopping.getId()), result.keySet());
+
+		// The call is reserved: the other car at the floor leaves it for the assigned one
+		other.setDirection(Direction.UP);
+		other.loadPassengers();
+		assertEquals(0, other.getPassengerCount());
+		assertTrue(scheduler.getHallCalls().hasCall(5, Direction.UP));
+		stopping.setDirection(Direction.UP);
+		stopping.loadPassengers();
+		assertEquals(1, stopping.getPassengerCount());
+		assertFalse(scheduler.getHallCalls().hasCall(5, Direction.UP));
+
+		// Groups larger than a car are split across cars
+		stopping.clearAllRequests();
+		for (int i = 0; i < 14; i++) {
+			dispatcher.submit(new PassengerRequest(5, 10, Priority.MEDIUM, RequestType.DESTINATION_CONTROL, 0));
+		}
+		result = dispatcher.flush();
+		assertEquals(2, result.size());
+		assertEquals(14, result.get(1).size() + result.get(2).size());
+	}
+
+	@Test(timeout = 4000)
+	public void testEtaEngineProjectsQueuedStops() {
+		Scheduler scheduler = new Scheduler(new ArrayList<Elevator>(), 20, new NearestElevatorStrategy());
+		EtaEngine engine = EtaEngine.getInstance();
+		Elevator idle = new Elevator(1, scheduler, new SimulationClock());
+		PassengerRequest request = new PassengerRequest(5, 10, Priority.MEDIUM, RequestType.STANDARD, 0);
+		EtaEngine.Eta eta = engine.estimate(idle, request);
+		assertEquals(4000, eta.getPickupMillis());
+		assertEquals(9500, eta.getArrivalMillis());
+		assertEquals(10000, eta.getAddedRouteMillis());
+
+		// Heading up to 12 first, then back down to board at 5 and ride up to 10
+		Elevator busy = new Elevator(2, scheduler, new SimulationClock());
+		busy.setCurrentFloor(8);
+		busy.addDestination(12);
+		eta = engine.estimate(busy, request);
+		assertEquals(11500, eta.getPickupMillis());
+		assertEquals(17000, eta.getArrivalMillis());
+
+		// The scratch-based single-trip replay matches the full projection and leaves the car's stops alone
+		ElevatorSnapshot snapshot = busy.getSnapshot();
+		for (int origin = 1; origin <= 20; origin++) {
+			for (int destination = 1; destination <= 20; destination++) {
+				if (origin == destination) {
+					continue;
+				}
+				Direction travel = destination > origin ? Direction.UP : Direction.DOWN;
+				RouteProjection full = RouteProjection.project(8, Direction.UP, snapshot.getStops(Direction.UP),
+						snapshot.getStops(Direction.DOWN), new int[]{origin}, new Direction[]{travel},
+						new int[]{destination});
+				RouteProjection.Trip trip = RouteProjection.projectTrip(8, Direction.UP, snapshot.upStops(),
+						snapshot.downStops(), origin, travel, destination);
+				assertEquals(full.getPickupMillis(0), trip.getPickupMillis());
+				assertEquals(full.getDropOffMillis(0), trip.getDropOffMillis());
+				assertEquals(full.getCompletionMillis(), trip.getCompletionMillis());
+			}
+		}
+		BitSet expectedUp = new BitSet();
+		expectedUp.set(12);
+		assertEquals(expectedUp, snapshot.upStops());
+		assertTrue(snapshot.downStops().isEmpty());
+
+		EtaEngine.CarProjection cached = engine.project(busy);
+		assertSame(cached, engine.project(busy));
+		busy.addDestination(3);
+		assertNotSame(cached, engine.project(busy));
+		busy.setStatus(ElevatorStatus.MAINTENANCE);
+		assertFalse(engine.estimate(busy, request).isAvailable());
+
+		// Floor distance favours the car at 3, but it must reach floor 1 before coming back up
+		Elevator near = new Elevator(3, scheduler, new SimulationClock());
+		near.setCurrentFloor(3);
+		near.setDirection(Direction.DOWN);
+		near.addDestination(1);
+		Elevator far = new Elevator(4, scheduler, new SimulationClock());
+		far.setCurrentFloor(8);
+		PassengerRequest call = new PassengerRequest(4, 9, Priority.MEDIUM, RequestType.STANDARD, 0);
+		assertSame(far, new NearestElevatorStrategy().selectElevator(Arrays.asList(near, far), call));
+		assertSame(far, new HighEfficiencyStrategy().selectElevator(Arrays.asList(near, far), call));
+		assertSame(far, new PredictiveSchedulingStrategy().selectElevator(Arrays.asList(near, far), call));
+
+		// A full car has no ETA and is not chosen even as the only candidate
+		far.setCurrentLoad(far.getMaxLoad());
+		assertNull(new HighEfficiencyStrategy().selectElevator(Collections.singletonList(far), call));
+	}
+
+	@Test(timeout = 4000)
+	public void testElevatorPublishesConsistentSnapshots() throws InterruptedException {
+		Scheduler scheduler = new Scheduler(new ArrayList<Elevator>(), 20, new NearestElevatorStrategy());
+		Elevator elevator = new Elevator(1, scheduler, new SimulationClock());
+		ElevatorSnapshot initial = elevator.getSnapshot();
+		assertEquals(1, initial.getCurrentFloor());
+		assertFalse(initial.hasStops());
+		assertSame(initial, elevator.getSnapshot());
+
+		elevator.addDestination(6);
+		elevator.addDestination(3);
+		ElevatorSnapshot queued = elevator.getSnapshot();
+		assertTrue(queued.getVersion() > initial.getVersion());
+		assertTrue(queued.hasStop(3, Direction.UP) && queued.hasStop(6, Direction.UP));
+		assertFalse(initial.hasStops());
+
+		// Each step publishes a newer snapshot; older ones keep the state they were taken with
+		elevator.step();
+		ElevatorSnapshot moving = elevator.getSnapshot();
+		assertTrue(moving.getVersion() > queued.getVersion());
+		assertEquals(ElevatorStatus.MOVING, moving.getStatus());
+		assertEquals(Direction.UP, moving.getDirection());
+		assertEquals(1, queued.getCurrentFloor());
+
+		elevator.setStatus(ElevatorStatus.MAINTENANCE);
+		assertFalse(elevator.getSnapshot().isInService());
+		assertEquals(elevator.getMaxLoad(), elevator.getSnapshot().getFreeLoad(), 0.001);
+
+		// The emergency descent publishes the car idle at the lobby
+		elevator.handleEmergency();
+		elevator.moveToFirstFloor();
+		assertEquals(1, elevator.getSnapshot().getCurrentFloor());
+		assertEquals(ElevatorStatus.IDLE, elevator.getSnapshot().getStatus());
+	}
+
+	@Test(timeout = 4000)
+	public void testFleetIndexFindsNearestCarsHeadingToFloor() {
+		Scheduler scheduler = new Scheduler(new ArrayList<Elevator>(), 100, new NearestElevatorStrategy());
+		FleetIndex index = new FleetIndex();
+		index.defineZone(1, 51); // Low rise 1-50, high rise 51-100
+		List<Elevator> fleet = new ArrayList<>();
+		for (int id = 0; id < 120; id++) {
+			Elevator elevator = new Elevator(id, scheduler, new SimulationClock());
+			elevator.setCurrentFloor(id < 60 ? 1 + (id % 50) : 51 + (id % 50));
+			elevator.setStatus(ElevatorStatus.MAINTENANCE);
+			index.register(elevator, id < 60 ? 0 : 1);
+			fleet.add(elevator);
+		}
+		assertEquals(0, index.size());
+
+		// Cars only enter the index once they are in service, and move as their snapshots change
+		Elevator idleAbove = fleet.get(24);   // Floor 25
+		Elevator upBelow = fleet.get(17);     // Floor 18
+		Elevator downAbove = fleet.get(29);   // Floor 30
+		Elevator upAbove = fleet.get(31);     // Floor 32, already past the call
+		idleAbove.setStatus(ElevatorStatus.IDLE);
+		upBelow.setDirection(Direction.UP);
+		upBelow.setStatus(ElevatorStatus.MOVING);
+		downAbove.setDirection(Direction.DOWN);
+		downAbove.setStatus(ElevatorStatus.MOVING);
+		upAbove.setDirection(Direction.UP);
+		upAbove.setStatus(ElevatorStatus.MOVING);
+		fleet.get(70).setStatus(ElevatorStatus.IDLE); // Floor 71, other zone
+		assertEquals(5, index.size());
+
+		assertEquals(Arrays.asList(upBelow, idleAbove), index.nearest(20, Direction.UP, 5));
+		assertEquals(Arrays.asList(idleAbove, downAbove), index.nearest(20, Direction.DOWN, 5));
+		assertEquals(Arrays.asList(upBelow), index.nearest(20, Direction.UP, 1));
+		assertEquals(Arrays.asList(fleet.get(70)), index.nearest(60, Direction.UP, 5));
+
+		upBelow.setCurrentFloor(22);
+		assertEquals(Arrays.asList(idleAbove), index.nearest(20, Direction.UP, 5));
+		idleAbove.setStatus(ElevatorStatus.FAULT);
+		assertTrue(index.nearest(20, Direction.UP, 5).isEmpty());
+
+		// The adapter ranks the index candidates and falls back to the full bank when none fits
+		IndexedDispatchStrategy strategy = new IndexedDispatchStrategy(index, new NearestElevatorStrategy());
+		PassengerRequest down = new PassengerRequest(35, 10, Priority.MEDIUM, RequestType.STANDARD, 0);
+		assertSame(downAbove, strategy.selectElevator(fleet, down));
+		PassengerRequest up = new PassengerRequest(20, 40, Priority.MEDIUM, RequestType.STANDARD, 0);
+		assertNotNull(strategy.selectElevator(fleet, up));
+		index.unregister(downAbove);
+		downAbove.setCurrentFloor(36);
+		assertFalse(index.nearest(35, Direction.DOWN, 5).contains(downAbove));
+	}
+
+	@Test(timeout = 10000)
+	public void testParkingAheadOfForecastUpPeakCutsWait() {
+		TrafficModel model = new TrafficModel(20, 15 * 60 * 1000, 0.5);
+		long eight = 8 * 60 * 60 * 1000;
+		for (int i = 0; i < 30; i++) {
+			model.recordArrival(1, Direction.UP, eight + i * 30000); // 2 per minute
+		}
+		model.advanceTo(TrafficModel.DAY_MILLIS);
+		assertEquals(2.0, model.getRate(1, Direction.UP, eight), 0.001);
+		assertEquals(10.0, model.forecast(1, Direction.UP, TrafficModel.DAY_MILLIS + eight, 5 * 60 * 1000), 0.001);
+		model.advanceTo(2 * TrafficModel.DAY_MILLIS); // A quiet day halves the smoothed rate
+		assertEquals(1.0, model.getRate(1, Direction.UP, eight), 0.001);
+		assertEquals(Arrays.asList(1), model.getHotFloors(2 * TrafficModel.DAY_MILLIS + eight, 5 * 60 * 1000, 1.0));
+
+		long withoutParking = upPeakPickupMillis(false);
+		long withParking = upPeakPickupMillis(true);
+		assertTrue(withParking + " vs " + withoutParking, withParking * 2 < withoutParking);
+	}
+
+	// Average projected pickup time of morning up-peak calls on the second of two identical days
+	private static long upPeakPickupMillis(boolean parking) {
+		final long[] total = new long[2];
+		DispatchStrategy strategy = new NearestElevatorStrategy() {
+			@Override
+			public Elevator selectElevator(List<Elevator> elevators, PassengerRequest request) {
+				Elevator selected = super.selectElevator(elevators, request);
+				if (selected != null && request.getStartFloor() == 1 && request.getTimestamp() > TrafficModel.DAY_MILLIS) {
+					total[0] += getEtaEngine().estimate(selected, request).getPickupMillis();
+					total[1]++;
+				}
+				return selected;
+			}
+		};
+		ElevatorSimulation simulation = new ElevatorSimulation(20, 4, strategy);
+		if (parking) {
+			simulation.enableParking();
+		}
+		Random random = new Random(7);
+		for (int day = 0; day < 2; day++) {
+			long eight = day * TrafficModel.DAY_MILLIS + 8 * 60 * 60 * 1000;
+			for (long t = eight; t < eight + 60 * 60 * 1000; t += 20000 + random.nextInt(40000)) {
+				simulation.submit(new PassengerRequest(1, 2 + random.nextInt(19), Priority.MEDIUM, RequestType.STANDARD, t));
+			}
+		}
+		simulation.runUntil(2 * TrafficModel.DAY_MILLIS);
+		return total[0] / total[1];
+	}
+
+	@Test(timeout = 4000)
+	public void testStatusHistoryKeepsBoundedRawSamplesAndRollups() {
+		SimulationClock clock = new SimulationClock();
+		AnalyticsEngine analytics = new AnalyticsEngine(clock, 20);
+		StatusTimeSeries history = analytics.getStatusHistory();
+		// Two cars report once a second for two hours; car 1 climbs a floor every minute
+		for (int second = 0; second < 2 * 60 * 60; second++) {
+			int floor = 1 + (second / 60) % 20;
+			analytics.processStatusReport(new ElevatorStatusReport(1, floor, Direction.UP,
+					second % 60 < 30 ? ElevatorStatus.MOVING : ElevatorStatus.STOPPED, 1.5, 70 * (second % 3), second % 3));
+			analytics.processStatusReport(new ElevatorStatusReport(2, 1, Direction.DOWN, ElevatorStatus.IDLE, 0, 0, 0));
+			clock.sleep(1000);
+		}
+		assertEquals(new TreeSet<>(Arrays.asList(1, 2)), history.getCarIds());
+		assertEquals(StatusTimeSeries.DEFAULT_RAW_CAPACITY, history.size(1)); // Only the last hour of raw samples
+
+		StatusTimeSeries.Samples raw = history.query(1, 90 * 60 * 1000L, 90 * 60 * 1000L + 10000);
+		assertEquals(10, raw.size());
+		assertEquals(90 * 60 * 1000L, raw.getTime(0));
+		assertEquals(11, raw.getFloor(0));
+		assertEquals(ElevatorStatus.MOVING, raw.getStatus(0));
+		assertEquals(0, history.query(1, 0, 60 * 60 * 1000L - 1).size()); // Overwritten
+
+		StatusTimeSeries.Rollups minutes = history.queryMinutes(1, 0, 2 * 60 * 60 * 1000L);
+		assertEquals(120, minutes.size());
+		assertEquals(60, minutes.getSampleCount(0));
+		assertEquals(70, minutes.getAverageLoad(0), 0.001);
+		assertEquals(140, minutes.getMaxLoad(0), 0.001);
+		assertEquals(0.5, minutes.getMovingFraction(0), 0.001);
+		assertEquals(1, minutes.getFloorsTravelled(1));
+		assertEquals(2, history.queryMinutes(1, 30 * 60 * 1000L + 5, 32 * 60 * 1000L).size());
+
+		StatusTimeSeries.Rollups hours = history.queryHours(1, 0, 3 * 60 * 60 * 1000L);
+		assertEquals(2, hours.size());
+		assertEquals(3600, hours.getSampleCount(0));
+		assertEquals(60 * 60 * 1000L, hours.getStart(1));
+		assertEquals(0, history.queryHours(2, 0, 3 * 60 * 60 * 1000L).getFloorsTravelled(1));
+
+		ElevatorStatusReport latest = history.getLatest(1);
+		assertEquals(20, latest.getCurrentFloor());
+		assertEquals(Direction.UP, latest.getDirection());
+		assertNull(history.getLatest(3));
+	}
+
+	@Test(timeout = 10000)
+	public void testSegmentedLogStoreIndexesSourcesAndDropsExpiredSegments() throws Exception {
+		SimulationClock clock = new SimulationClock();
+		Path directory = Files.createTempDirectory("segmented-log");
+		SegmentedLogStore store = new SegmentedLogStore(directory, 4096, 60000, 256, clock);
+		LogManager logManager = new LogManager(store);
+		Thread[] writers = new Thread[4];
+		for (int w = 0; w < writers.length; w++) {
+			final String source = "Elevator " + (w + 1);
+			writers[w] = new Thread(() -> {
+				for (int i = 0; i < 2000; i++) {
+					store.append(source, "event " + i, i);
+				}
+			});
+			writers[w].start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		logManager.recordSchedulerEvent("rebalanced");
+
+		List<LogManager.SystemLog> logs = logManager.queryLogs("Elevator 2", 100, 199);
+		assertEquals(100, logs.size());
+		for (int i = 0; i < logs.size(); i++) {
+			assertEquals("Elevator 2", logs.get(i).getSource());
+			assertEquals("event " + (100 + i), logs.get(i).getMessage());
+			assertEquals(100 + i, logs.get(i).getTimestamp());
+		}
+		assertEquals(2000, logManager.queryLogs("Elevator 4", 0, Long.MAX_VALUE).size());
+		assertEquals(1, logManager.queryLogs("Scheduler", 0, Long.MAX_VALUE).size());
+		assertTrue(logManager.queryLogs("Elevator 9", 0, Long.MAX_VALUE).isEmpty());
+		assertEquals(5, store.getSourceCount());
+		assertEquals(8001, store.getWrittenCount());
+		int segments = store.getSegmentCount();
+		assertTrue(segments > 10);
+
+		// Only the active segment holds the scheduler event stamped with the current time
+		clock.sleep(70000);
+		assertEquals(segments - 1, store.enforceRetention());
+		assertEquals(1, store.getSegmentCount());
+		assertTrue(logManager.queryLogs("Elevator 1", 0, 1999).size() < 2000);
+		assertEquals(1, logManager.queryLogs("Scheduler", 0, Long.MAX_VALUE).size());
+		store.delete();
+		assertFalse(Files.exists(directory));
+
+		// Reopening a directory recovers its records and numbers new segments after the old ones
+		Path reused = Files.createTempDirectory("segmented-log");
+		long start = clock.currentTimeMillis();
+		SegmentedLogStore first = new SegmentedLogStore(reused, 4096, 60000, 256, clock);
+		for (int i = 0; i < 600; i++) {
+			first.append("Elevator " + (i % 3 + 1), "event " + i, start + i);
+		}
+		first.close();
+		int oldSegments = first.getSegmentCount();
+		assertTrue(oldSegments > 1);
+		SegmentedLogStore reopened = new SegmentedLogStore(reused, 4096, 60000, 256, clock);
+		assertEquals(oldSegments, reopened.getSegmentCount());
+		assertEquals(3, reopened.getSourceCount());
+		assertEquals(200, reopened.query("Elevator 2", 0, Long.MAX_VALUE).size());
+		assertEquals("event 301", reopened.query("Elevator 2", start + 301, start + 301).get(0).getMessage());
+
+		// The first new segment's retention pass covers the recovered ones too
+		clock.sleep(70000);
+		reopened.append("Elevator 4", "after restart", clock.currentTimeMillis());
+		reopened.flush();
+		assertEquals(1, reopened.getSegmentCount());
+		assertTrue(reopened.query("Elevator 2", 0, Long.MAX_VALUE).isEmpty());
+		reopened.close();
+		reopened = new SegmentedLogStore(reused, 4096, 60000, 256, clock);
+		assertEquals(1, reopened.getSegmentCount());
+		assertEquals(4, reopened.getSourceCount());
+		assertEquals("after restart", reopened.query("Elevator 4", 0, Long.MAX_VALUE).get(0).getMessage());
+		reopened.delete();
+		assertFalse(Files.exists(reused));
+
+		// A writer that fails (here its directory is gone) is reported instead of leaving callers waiting
+		Path missing = Files.createTempDirectory("segmented-log");
+		SegmentedLogStore broken = new SegmentedLogStore(missing, 4096, 60000, 4, clock);
+		Files.delete(missing);
+		broken.append("Elevator 1", "lost", 0);
+		try {
+			broken.flush();
+			fail("flush should report the failed writer");
+		} catch (IllegalStateException expected) {
+			assertNotNull(expected.getCause());
+		}
+		try {
+			for (int i = 0; i < 10; i++) {
+				broken.append("Elevator 1", "lost", i);
+			}
+			fail("append should report the failed writer");
+		} catch (IllegalStateException expected) {
+			assertNotNull(expected.getCause());
+		}
+	}
+
+	@Test(timeout = 10000)
+	public void testAsyncEventBusDeliversEmergenciesAheadOfFaultStorm() throws Exception {
+		AsyncEventBus bus = new AsyncEventBus(256, new AsyncEventBus.BlockingWaitStrategy(), 32);
+		final List<EventBus.Event> delivered = Collections.synchronizedList(new ArrayList<EventBus.Event>());
+		final Set<Thread> listenerThreads = Collections.synchronizedSet(new HashSet<Thread>());
+		EventBus.EventListener slow = event -> {
+			listenerThreads.add(Thread.currentThread());
+			delivered.add(event);
+			if (event.getType() == EventType.ELEVATOR_FAULT) {
+				try {
+					Thread.sleep(1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		bus.subscribe(EventType.ELEVATOR_FAULT, slow);
+		bus.subscribe(EventType.EMERGENCY, slow);
+		final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+		bus.subscribe(EventType.ELEVATOR_FAULT, (AsyncEventBus.BatchEventListener) events -> batchSizes.add(events.size()));
+		assertEquals(2, bus.getSubscriberCount());
+
+		for (int i = 0; i < 200; i++) {
+			bus.publish(new EventBus.Event(EventType.ELEVATOR_FAULT, i));
+		}
+		EventBus.Event emergency = new EventBus.Event(EventType.EMERGENCY, "fire");
+		bus.publish(emergency);
+		bus.publish(new EventBus.Event(EventType.CONFIG_UPDATED, null)); // No subscriber, skipped
+		bus.close();
+
+		assertEquals(201, delivered.size());
+		assertTrue(delivered.indexOf(emergency) < 20); // Not queued behind the remaining faults
+		assertFalse(listenerThreads.contains(Thread.currentThread()));
+		int total = 0;
+		for (int size : batchSizes) {
+			assertTrue(size <= 32);
+			total += size;
+		}
+		assertEquals(200, total);
+		assertEquals(0, bus.getBacklog());
+		assertEquals(0, bus.getFailedCount());
+	}
+
+	@Test(timeout = 10000)
+	public void testPredictiveMaintenancePlansQuietWindowsAndDrainsCars() {
+		ElevatorSimulation simulation = new ElevatorSimulation(20, 3, new NearestElevatorStrategy());
+		PredictiveMaintenancePlanner planner = simulation.enablePredictiveMaintenance(
+				new PredictiveMaintenancePlanner.UsageLimits(10, 1000, 1e9), 30 * 60 * 1000, 1);
+		planner.stop(); // Planned by hand below
+		long day = TrafficModel.DAY_MILLIS;
+		long eight = 8 * 60 * 60 * 1000;
+		Random random = new Random(11);
+		for (long t = eight; t < eight + 60 * 60 * 1000; t += 30000) {
+			simulation.submit(new PassengerRequest(1, 2 + random.nextInt(19), Priority.MEDIUM, RequestType.STANDARD, t));
+		}
+		simulation.runUntil(day - 6 * 60 * 60 * 1000);
+		for (Elevator elevator : simulation.getElevators()) {
+			assertTrue(planner.getWear(elevator) >= 1);
+		}
+
+		// Planned in the evening: the windows skip tomorrow's up-peak and never overlap
+		List<MaintenanceManager.MaintenanceTask> tasks = planner.plan();
+		assertEquals(3, tasks.size());
+		assertTrue(planner.plan().isEmpty());
+		List<MaintenanceManager.MaintenanceTask> ordered = planner.getPlannedTasks();
+		for (int i = 0; i < ordered.size(); i++) {
+			MaintenanceManager.MaintenanceTask task = ordered.get(i);
+			long end = task.getScheduledTime() + task.getDurationMillis();
+			assertTrue(end <= day + eight || task.getScheduledTime() >= day + eight + 60 * 60 * 1000);
+			if (i > 0) {
+				assertTrue(task.getScheduledTime() >= ordered.get(i - 1).getScheduledTime() + task.getDurationMillis());
+			}
+		}
+
+		// The first car still has a rider aboard when its window opens: it delivers them before stopping
+		MaintenanceManager.MaintenanceTask first = ordered.get(0);
+		Elevator car = first.getElevator();
+		assertEquals(simulation.getClock().currentTimeMillis(), first.getScheduledTime()); // Quiet right now
+		car.addDestination(12);
+		simulation.runUntil(first.getScheduledTime() + 60 * 1000);
+		assertEquals(ElevatorStatus.MAINTENANCE, car.getStatus());
+		assertEquals(ElevatorMode.MAINTENANCE, car.getMode());
+		assertEquals(12, car.getCurrentFloor());
+		assertFalse(car.getSnapshot().isInService());
+
+		simulation.runUntil(day + eight);
+		for (Elevator elevator : simulation.getElevators()) {
+			assertEquals(ElevatorMode.NORMAL, elevator.getMode());
+			assertTrue(elevator.getSnapshot().isInService());
+			assertTrue(planner.getWear(elevator) < PredictiveMaintenancePlanner.PLAN_AT_WEAR);
+		}
+		assertTrue(planner.getPlannedTasks().isEmpty());
+		int preventive = 0;
+		for (MaintenanceManager.MaintenanceRecord record : simulation.getMaintenanceManager().getMaintenanceRecords()) {
+			if (record.getResult().startsWith("Preventive maintenance")) {
+				preventive++;
+			}
+		}
+		assertEquals(3, preventive);
+	}
+
+	@Test(timeout = 20000)
+	public void testTrafficGeneratorAndKpiHarnessAreDeterministic() {
+		int[] population = new int[21];
+		Arrays.fill(population, 40);
+		population[15] = 200; // A busy tenant
+		List<PassengerRequest> day = new TrafficGenerator(3, population).generateOfficeDay(0, 1.0);
+		List<PassengerRequest> again = new TrafficGenerator(3, population).generateOfficeDay(0, 1.0);
+		assertEquals(day.size(), again.size());
+		for (int i = 0; i < day.size(); i++) {
+			assertEquals(day.get(i).toString(), again.get(i).toString());
+			assertEquals(day.get(i).getTimestamp(), again.get(i).getTimestamp());
+		}
+		long eight = 8 * 60 * 60 * 1000;
+		int upPeak = 0;
+		int toBusyFloor = 0;
+		for (PassengerRequest request : day) {
+			assertTrue(request.getStartFloor() != request.getDestinationFloor());
+			if (request.getTimestamp() >= eight && request.getTimestamp() < eight + 90 * 60 * 1000
+					&& request.getStartFloor() == 1) {
+				upPeak++;
+				if (request.getDestinationFloor() == 15) {
+					toBusyFloor++;
+				}
+			}
+		}
+		// 12% of 960 people per five minutes for 90 minutes, plus the odd inter-floor trip from the lobby
+		assertTrue(upPeak > 1700 && upPeak < 2500);
+		assertTrue(toBusyFloor > upPeak / 7 && toBusyFloor < upPeak / 3); // 200 of 960 people
+
+		DispatchKpiHarness harness = new DispatchKpiHarness(20, 4);
+		Map<String, DispatchStrategy> strategies = new LinkedHashMap<>();
+		strategies.put("nearest", new NearestElevatorStrategy());
+		strategies.put("high-efficiency", new HighEfficiencyStrategy());
+		long end = TrafficModel.DAY_MILLIS;
+		Map<String, DispatchKpiHarness.KpiReport> reports = harness.compare(strategies, day, end);
+		assertEquals(Arrays.asList("nearest", "high-efficiency"), new ArrayList<>(reports.keySet()));
+		for (DispatchKpiHarness.KpiReport report : reports.values()) {
+			assertEquals(day.size(), report.getPassengers());
+			assertEquals(day.size(), report.getDelivered()); // Nobody is stranded when a car is full
+			assertEquals(0, report.getUndelivered());
+			assertTrue(report.getAverageWaitMillis() > 0);
+			assertTrue(report.getP95WaitMillis() >= report.getAverageWaitMillis());
+			assertTrue(report.getAverageJourneyMillis() > report.getAverageWaitMillis());
+			assertTrue(report.getP95JourneyMillis() >= report.getP95WaitMillis());
+			assertTrue(report.getHandlingCapacity() > 0);
+			assertTrue(report.getEnergyConsumption() > 0);
+		}
+		assertEquals(reports.get("nearest").toString(),
+				harness.run("nearest", new NearestElevatorStrategy(), day, end).toString());
+
+		// Passengers still waiting or riding when the run ends count with their time so far: the car boards
+		// at 20 after 18 s and has not reached 2 by 30 s
+		List<PassengerRequest> stranded = Arrays.asList(
+				new PassengerRequest(2, 1, Priority.MEDIUM, RequestType.STANDARD, 0),
+				new PassengerRequest(20, 1, Priority.MEDIUM, RequestType.STANDARD, 0),
+				new PassengerRequest(5, 6, Priority.MEDIUM, RequestType.STANDARD, 90000));
+		DispatchKpiHarness.KpiReport cut = new DispatchKpiHarness(20, 1)
+				.run("nearest", new NearestElevatorStrategy(), stranded, 30000);
+		assertEquals(3, cut.getPassengers());
+		assertEquals(0, cut.getDelivered());
+		assertEquals(2, cut.getUndelivered()); // The call at 90 s had not been made yet
+		assertEquals(24000, cut.getAverageWaitMillis(), 0.001);
+		assertEquals(30000, cut.getP95WaitMillis());
+		assertEquals(30000, cut.getAverageJourneyMillis(), 0.001);
+		assertEquals(30000, cut.getP95JourneyMillis());
+		assertEquals(0, cut.getHandlingCapacity());
+	}
+
+	@Test(timeout = 4000)
+	public void testOutOfRangeCallsAreRejectedAndFailedStepsReleaseTheDriver() {
+		ElevatorSimulation simulation = new ElevatorSimulation(10, 1, new NearestElevatorStrategy());
+		simulation.getScheduler().setLogger(null);
+		try {
+			simulation.submit(new PassengerRequest(3, 11, Priority.MEDIUM, RequestType.STANDARD, 0));
+			fail("a destination above the top floor must be rejected");
+		} catch (IllegalArgumentException expected) {
+			// Rejected before it reaches a car
+		}
+		simulation.submit(new PassengerRequest(3, 5, Priority.MEDIUM, RequestType.STANDARD, 0));
+		simulation.runUntil(60000);
+		assertEquals(5, simulation.getElevators().get(0).getCurrentFloor());
+		assertFalse(simulation.getDrivers().get(0).isActive());
+
+		// A step that throws does not leave the driver marked active, so the car runs again
+		SimulationClock clock = new SimulationClock();
+		Scheduler scheduler = new Scheduler(new ArrayList<Elevator>(), 10, new NearestElevatorStrategy(), null);
+		final boolean[] failNext = {true};
+		Elevator flaky = new Elevator(1, scheduler, clock) {
+			@Override
+			public long step() {
+				if (failNext[0]) {
+					failNext[0] = false;
+					throw new IllegalStateException("step failure");
+				}
+				return super.step();
+			}
+		};
+		ElevatorDriver driver = new ElevatorDriver(flaky, clock);
+		flaky.addDestination(4);
+		try {
+			clock.runUntil(1000);
+			fail("the failed step should propagate");
+		} catch (IllegalStateException expected) {
+			assertTrue(driver.isActive()); // Rescheduled, since the stop is still pending
+		}
+		clock.runUntil(60000);
+		assertEquals(4, flaky.getCurrentFloor());
+		assertFalse(driver.isActive());
+	}
+
+	@Test(timeout = 4000)
+	public void testCarSweepsOnToWaitingCallsInItsDirection() {
+		SimulationClock clock = new SimulationClock();
+		List<Elevator> elevators = new ArrayList<>();
+		Scheduler scheduler = new Scheduler(elevators, 10, new NearestElevatorStrategy(), null);
+		Elevator car = new Elevator(1, scheduler, clock);
+		elevators.add(car);
+		ElevatorDriver driver = new ElevatorDriver(car, clock);
+
+		// Nobody was sent for the passengers at 6 and 2; the car finds the one ahead of it on the call bitmap
+		scheduler.getHallCalls().add(new PassengerRequest(6, 9, Priority.MEDIUM, RequestType.STANDARD, 0));
+		scheduler.getHallCalls().add(new PassengerRequest(2, 1, Priority.MEDIUM, RequestType.STANDARD, 0));
+		car.addDestination(3);
+		clock.runUntil(120000);
+		assertEquals(9, car.getCurrentFloor());
+		assertFalse(driver.isActive());
+		assertFalse(scheduler.getHallCalls().hasCall(6, Direction.UP));
+		assertTrue(scheduler.getHallCalls().hasCall(2, Direction.DOWN)); // Behind the car, left for dispatch
+	}
+
+	private static ElevatorSimulation simulateDay(long seed) {
+		ElevatorSimulation simulation = new ElevatorSimulation(60, 24, new NearestElevatorStrategy());
+		Random random = new Random(seed);
+		long day = 24L * 60 * 60 * 1000;
+		for (long time = 0; time < day; time += 1 + random.nextInt(60000)) {
+			int start = 1 + random.nextInt(60);
+			int destination = 1 + random.nextInt(60);
+			if (start != destination) {
+				simulation.submit(new PassengerRequest(start, destination, Priority.MEDIUM, RequestType.STANDARD, time));
+			}
+		}
+		simulation.injectFault(day / 2, 3);
+		simulation.runUntil(day);
+		return simulation;
+	}
+
 }
@@ -27,38 +27,49 @@ public class AStar extends SearchAlgorithm {
         Map<Node, Double> gScores = new HashMap<>();
         Map<Node, Double> fScores = new HashMap<>();
         Map<Node, Node> predecessors = new HashMap<>();
+        Map<Node, Edge> arrivalEdges = new HashMap<>(); // Edge each node was reached by
         Map<Node, Integer> nodeVisitTimes = new HashMap<>(); // Node visit time
 
         gScores.put(startNode, 0.0);
         fScores.put(startNode, heuristic(startNode));
         pq.add(new PathNode(startNode, 0, fScores.get(startNode)));
+        stats.pushed();
         nodeVisitTimes.put(startNode, currentTime); // Record initial time
 
         while (!pq.isEmpty()) {
             PathNode currentPathNode = pq.poll();
+            stats.popped();
             Node currentNode = currentPathNode.getNode();
             int currentVisitTime = nodeVisitTimes.get(currentNode);
 
             if (currentNode.equals(endNode)) {
-                return reconstructPath(predecessors);
+                return reconstructPath(predecessors, arrivalEdges);
             }
+            stats.settled();
 
             for (Edge edge : currentNode.getNeighbors()) {
                 Node neighbor = edge.getNeighbor();
+                stats.relaxed();
+                if (isRestricted(neighbor)) {
+                    continue; // Not allowed for this vehicle profile
+                }
                 double tentativeGScore = gScores.get(currentNode) + edge.getDistance();
 
                 double adjustedDistance = trafficCondition.adjustWeight(tentativeGScore, neighbor.getNodeId());
                 adjustedDistance = weatherCondition.adjustWeightForWeather(adjustedDistance, neighbor);
 
                 if (!vehicle.isEmergencyVehicle() && !neighbor.isOpenAt(currentVisitTime)) {
+                    stats.rejectedClosed();
                     continue;
                 }
 
                 if (neighbor.isHighRiskArea() && !vehicle.isEmergencyVehicle()) {
+                    stats.rejectedHighRisk();
                     continue; // Skip high-risk areas
                 }
 
                 if (vehicle.needsRefueling(adjustedDistance)) {
+                    stats.rejectedFuel();
                     continue;
                 }
 
@@ -67,8 +78,10 @@ public class AStar extends SearchAlgorithm {
                     double fScore = tentativeGScore + heuristic(neighbor);
                     fScores.put(neighbor, fScore);
                     predecessors.put(neighbor, currentNode);
+                    arrivalEdges.put(neighbor, edge);
                     nodeVisitTimes.put(neighbor, currentVisitTime + (int)adjustedDistance);
                     pq.add(new PathNode(neighbor, tentativeGScore, fScore));
+                    stats.pushed();
                 }
             }
         }
@@ -76,15 +89,7 @@ public class AStar extends SearchAlgorithm {
         return null;
     }
 
-    public PathResult reconstructPath(Map<Node, Node> predecessors) {
-        List<Node> path = new ArrayList<>();
-        Node current = endNode;
-
-        while (current != null) {
-            path.add(current);
-            current = predecessors.get(current);
-        }
-        Collections.reverse(path);
-        return new PathResult(path);
+    public PathResult reconstructPath(Map<Node, Node> predecessors, Map<Node, Edge> arrivalEdges) {
+        return compactResult(predecessors, arrivalEdges);
     }
 }
@@ -0,0 +1,87 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Answers a batch of queries against one graph version. Queries sharing a source and vehicle profile are
+// answered by a single one-to-many search, which amortizes the search cost over the batch.
+public class BatchRoutePlanner {
+    private VersionedGraph graph;
+    private WeatherCondition weatherCondition;
+    private VehicleProfileRegistry profileRegistry;
+
+    public BatchRoutePlanner(VersionedGraph graph, WeatherCondition weatherCondition) {
+        this.graph = graph;
+        this.weatherCondition = weatherCondition;
+        this.profileRegistry = VehicleProfileRegistry.getDefault();
+    }
+
+    // One result per query, in query order; null where no path exists
+    public List<PathResult> plan(List<RouteQuery> queries) {
+        List<PathResult> results = new ArrayList<>(Collections.<PathResult>nCopies(queries.size(), null));
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            RouteQuery query = queries.get(i);
+            String key = query.getSourceId() + "/" + query.getProfile().getName();
+            List<Integer> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(i);
+        }
+
+        try (SnapshotLease lease = graph.acquire()) {
+            GraphSnapshot snapshot = lease.getSnapshot();
+            for (List<Integer> group : groups.values()) {
+                RouteQuery first = queries.get(group.get(0));
+                Node source = snapshot.getNode(first.getSourceId());
+                if (source == null) {
+                    continue;
+                }
+                Set<Node> targets = new HashSet<>();
+                for (int index : group) {
+                    Node target = snapshot.getNode(queries.get(index).getTargetId());
+                    if (target != null) {
+                        targets.add(target);
+                    }
+                }
+                VehicleProfile profile = first.getProfile();
+                NodeRestrictions restricted = profileRegistry.getRestrictions(snapshot.getGraph(), profile);
+                Map<Node, Node> predecessors = new HashMap<>();
+                Map<Node, Edge> arrivalEdges = new HashMap<>();
+                Map<Node, Double> distances = new MultiTargetDijkstra(snapshot.getTrafficCondition(), weatherCondition,
+                        restricted, profile.isEmergency()).search(source, targets, predecessors, arrivalEdges);
+                for (int index : group) {
+                    Node target = snapshot.getNode(queries.get(index).getTargetId());
+                    if (target != null && distances.containsKey(target)) {
+                        results.set(index, reconstruct(source, target, predecessors, arrivalEdges, snapshot.getGraph()));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    // Compact route only, costed on the edges the search drove; nodes are looked up if getPath() is called
+    private PathResult reconstruct(Node source, Node target, Map<Node, Node> predecessors,
+                                   Map<Node, Edge> arrivalEdges, Graph snapshotGraph) {
+        int legCount = 0;
+        for (Node current = target; current != source; current = predecessors.get(current)) {
+            legCount++;
+        }
+        Edge[] legs = new Edge[legCount];
+        Node current = target;
+        for (int i = legCount - 1; i >= 0; i--) {
+            legs[i] = arrivalEdges.get(current);
+            current = predecessors.get(current);
+        }
+        return PathResult.fromCompact(CompactRoute.encode(source, legs, null), snapshotGraph);
+    }
+}
@@ -13,6 +13,7 @@ public class BellmanFord extends SearchAlgorithm {
     public PathResult findPath() {
         Map<Node, Double> distances = new HashMap<>();
         Map<Node, Node> predecessors = new HashMap<>();
+        Map<Node, Edge> arrivalEdges = new HashMap<>(); // Edge each node was reached by
 
         for (Node node : graph.getNodes().values()) {
             distances.put(node, Double.MAX_VALUE);
@@ -22,8 +23,13 @@ public class BellmanFord extends SearchAlgorithm {
         int V = graph.getNodes().size();
         for (int i = 1; i <= V - 1; i++) {
             for (Node currentNode : graph.getNodes().values()) {
+                stats.settled();
                 for (Edge edge : currentNode.getNeighbors()) {
                     Node neighbor = edge.getNeighbor();
+                    stats.relaxed();
+                    if (isRestricted(neighbor)) {
+                        continue; // Not allowed for this vehicle profile
+                    }
                     double originalDistance = edge.getDistance();
                     double adjustedDistance = trafficCondition.adjustWeight(originalDistance, neighbor.getNodeId());
                     adjustedDistance = weatherCondition.adjustWeightForWeather(adjustedDistance, neighbor);
@@ -31,6 +37,7 @@ public class BellmanFord extends SearchAlgorithm {
                     if (distances.get(currentNode) != Double.MAX_VALUE && distances.get(currentNode) + adjustedDistance < distances.get(neighbor)) {
                         distances.put(neighbor, distances.get(currentNode) + adjustedDistance);
                         predecessors.put(neighbor, currentNode);
+                        arrivalEdges.put(neighbor, edge);
                     }
                 }
             }
@@ -39,6 +46,9 @@ public class BellmanFord extends SearchAlgorithm {
         for (Node currentNode : graph.getNodes().values()) {
             for (Edge edge : currentNode.getNeighbors()) {
                 Node neighbor = edge.getNeighbor();
+                if (isRestricted(neighbor)) {
+                    continue;
+                }
                 double originalDistance = edge.getDistance();
                 double adjustedDistance = trafficCondition.adjustWeight(originalDistance, neighbor.getNodeId());
                 adjustedDistance = weatherCondition.adjustWeightForWeather(adjustedDistance, neighbor);
@@ -50,19 +60,11 @@ public class BellmanFord extends SearchAlgorithm {
             }
         }
 
-        return reconstructPath(predecessors);
+        return reconstructPath(predecessors, arrivalEdges);
     }
 
-    public PathResult reconstructPath(Map<Node, Node> predecessors) {
-        List<Node> path = new ArrayList<>();
-        Node current = endNode;
-
-        while (current != null) {
-            path.add(current);
-            current = predecessors.get(current);
-        }
-        Collections.reverse(path);
-        return new PathResult(path);
+    public PathResult reconstructPath(Map<Node, Node> predecessors, Map<Node, Edge> arrivalEdges) {
+        return compactResult(predecessors, arrivalEdges);
     }
 }
 
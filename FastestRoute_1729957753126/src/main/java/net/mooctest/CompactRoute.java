@@ -0,0 +1,181 @@
+package net.mooctest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+// Archive form of a route: node ids as zigzag varint deltas (consecutive ids are usually close, so most
+// hops take one byte) plus the route totals computed once when the search finishes.
+public class CompactRoute {
+    private int nodeCount;
+    private byte[] encodedNodes;
+    private double totalDistance;
+    private double totalTime;     // Hours, using the road-type speeds of ShortestTimeFirst
+    private double totalFuel;
+    private double tollDistance;  // Distance driven on toll roads
+
+    public CompactRoute(int nodeCount, byte[] encodedNodes, double totalDistance, double totalTime,
+                        double totalFuel, double tollDistance) {
+        this.nodeCount = nodeCount;
+        this.encodedNodes = encodedNodes;
+        this.totalDistance = totalDistance;
+        this.totalTime = totalTime;
+        this.totalFuel = totalFuel;
+        this.tollDistance = tollDistance;
+    }
+
+    // Encodes a route from the edges a search drove, legs[i] leading to the (i + 1)-th node, so the totals
+    // are those of the legs actually taken; a null vehicle counts no fuel and uses standard speeds
+    public static CompactRoute encode(Node start, Edge[] legs, Vehicle vehicle) {
+        byte[] buffer = new byte[Math.max(16, (legs.length + 1) * 2)];
+        int length = writeVarint(buffer, 0, zigzag(start.getNodeId()));
+        int previousId = start.getNodeId();
+        double distance = 0;
+        double time = 0;
+        double toll = 0;
+        for (Edge leg : legs) {
+            if (length + 5 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            Node node = leg.getNeighbor();
+            length = writeVarint(buffer, length, zigzag(node.getNodeId() - previousId));
+            previousId = node.getNodeId();
+            distance += leg.getDistance();
+            time += ShortestTimeFirst.travelTime(leg, vehicle);
+            if (node.isTollRoad()) {
+                toll += leg.getDistance();
+            }
+        }
+        double fuel = vehicle != null ? distance * vehicle.getFuelConsumptionPerKm() : 0;
+        return new CompactRoute(legs.length + 1, Arrays.copyOf(buffer, length), distance, time, fuel, toll);
+    }
+
+    // Encodes a path given only as nodes. The legs it was driven on are unknown, so each hop is costed on
+    // the shortest parallel edge; searches use encode(start, legs, vehicle) instead.
+    public static CompactRoute encode(List<Node> path, Vehicle vehicle) {
+        if (path.isEmpty()) {
+            return new CompactRoute(0, new byte[0], 0, 0, 0, 0);
+        }
+        Edge[] legs = new Edge[path.size() - 1];
+        for (int i = 1; i < path.size(); i++) {
+            legs[i - 1] = shortestEdge(path.get(i - 1), path.get(i));
+            if (legs[i - 1] == null) {
+                legs[i - 1] = new Edge(path.get(i), 0); // Not adjacent: keep the node, add no cost
+            }
+        }
+        return encode(path.get(0), legs, vehicle);
+    }
+
+    private static Edge shortestEdge(Node from, Node to) {
+        Edge best = null;
+        for (Edge edge : from.getNeighbors()) {
+            if (edge.getNeighbor() == to && (best == null || edge.getDistance() < best.getDistance())) {
+                best = edge;
+            }
+        }
+        return best;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int[] getNodeIds() {
+        int[] nodeIds = new int[nodeCount];
+        int position = 0;
+        int previousId = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = encodedNodes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previousId += (value >>> 1) ^ -(value & 1);
+            nodeIds[i] = previousId;
+        }
+        return nodeIds;
+    }
+
+    public double getTotalDistance() {
+        return totalDistance;
+    }
+
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    public double getTotalFuel() {
+        return totalFuel;
+    }
+
+    public double getTollDistance() {
+        return tollDistance;
+    }
+
+    public int encodedSize() {
+        return varintSize(nodeCount) + varintSize(encodedNodes.length) + encodedNodes.length + 4 * 8;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        putVarint(buffer, nodeCount);
+        putVarint(buffer, encodedNodes.length);
+        buffer.put(encodedNodes);
+        buffer.putDouble(totalDistance);
+        buffer.putDouble(totalTime);
+        buffer.putDouble(totalFuel);
+        buffer.putDouble(tollDistance);
+    }
+
+    public static CompactRoute readFrom(ByteBuffer buffer) {
+        int nodeCount = getVarint(buffer);
+        byte[] encodedNodes = new byte[getVarint(buffer)];
+        buffer.get(encodedNodes);
+        return new CompactRoute(nodeCount, encodedNodes, buffer.getDouble(), buffer.getDouble(),
+                buffer.getDouble(), buffer.getDouble());
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int writeVarint(byte[] buffer, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -17,23 +17,31 @@ public class Dijkstra extends SearchAlgorithm {
         PriorityQueue<PathNode> pq = new PriorityQueue<>(Comparator.comparingDouble(PathNode::getDistance));
         Map<Node, Double> distances = new HashMap<>();
         Map<Node, Node> predecessors = new HashMap<>();
+        Map<Node, Edge> arrivalEdges = new HashMap<>(); // Edge each node was reached by
         Map<Node, Integer> nodeVisitTimes = new HashMap<>(); // Node visit time
 
         pq.add(new PathNode(startNode, 0));
+        stats.pushed();
         distances.put(startNode, 0.0);
         nodeVisitTimes.put(startNode, currentTime); // Initial node visit time
 
         while (!pq.isEmpty()) {
             PathNode currentPathNode = pq.poll();
+            stats.popped();
             Node currentNode = currentPathNode.getNode();
             int currentVisitTime = nodeVisitTimes.get(currentNode);
 
             if (currentNode.equals(endNode)) {
-                return reconstructPath(predecessors);
+                return reconstructPath(predecessors, arrivalEdges);
             }
+            stats.settled();
 
             for (Edge edge : currentNode.getNeighbors()) {
                 Node neighbor = edge.getNeighbor();
+                stats.relaxed();
+                if (isRestricted(neighbor)) {
+                    continue; // Not allowed for this vehicle profile
+                }
                 double originalDistance = edge.getDistance();
 
                 double adjustedDistance = trafficCondition.adjustWeight(originalDistance, neighbor.getNodeId());
@@ -41,9 +49,11 @@ public class Dijkstra extends SearchAlgorithm {
 
                 if (!vehicle.isEmergencyVehicle()) {
                     if (!neighbor.isOpenAt(currentVisitTime)) {
+                        stats.rejectedClosed();
                         continue; // Road is closed
                     }
                     if (neighbor.isHighRiskArea()) {
+                        stats.rejectedHighRisk();
                         continue; // Skip high-risk area
                     }
                 }
@@ -54,6 +64,7 @@ public class Dijkstra extends SearchAlgorithm {
                     if (gasStation != null) {
                         gasStation.refuel(vehicle, vehicle.getFuelCapacity() - vehicle.getCurrentFuel());
                     } else {
+                        stats.rejectedFuel();
                         continue; // Insufficient fuel and no gas station available
                     }
                 }
@@ -63,8 +74,10 @@ public class Dijkstra extends SearchAlgorithm {
                 if (!distances.containsKey(neighbor) || newDistance < distances.get(neighbor)) {
                     distances.put(neighbor, newDistance);
                     predecessors.put(neighbor, currentNode);
+                    arrivalEdges.put(neighbor, edge);
                     nodeVisitTimes.put(neighbor, currentVisitTime + (int)adjustedDistance);
                     pq.add(new PathNode(neighbor, newDistance));
+                    stats.pushed();
                 }
             }
         }
@@ -72,15 +85,7 @@ public class Dijkstra extends SearchAlgorithm {
         return null;  // No path found
     }
 
-    public PathResult reconstructPath(Map<Node, Node> predecessors) {
-        List<Node> path = new ArrayList<>();
-        Node current = endNode;
-
-        while (current != null) {
-            path.add(current);
-            current = predecessors.get(current);
-        }
-        Collections.reverse(path);
-        return new PathResult(path);
+    public PathResult reconstructPath(Map<Node, Node> predecessors, Map<Node, Edge> arrivalEdges) {
+        return compactResult(predecessors, arrivalEdges);
     }
 }
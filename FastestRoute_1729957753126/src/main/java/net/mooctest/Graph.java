@@ -1,4 +1,5 @@
 package net.mooctest;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -7,11 +8,18 @@ import java.util.Map;
 
 public class Graph {
     private Map<Integer, Node> nodes;
+    private GraphSnapshot snapshot; // Owning version for read-only snapshot graphs, null for mutable graphs
 
     public Graph() {
         nodes = new HashMap<>();
     }
 
+    // Read-only graph over the frozen nodes of a snapshot
+    Graph(Map<Integer, Node> frozenNodes, GraphSnapshot snapshot) {
+        nodes = Collections.unmodifiableMap(frozenNodes);
+        this.snapshot = snapshot;
+    }
+
     public void addNode(Node node) {
         nodes.put(node.getNodeId(), node);
     }
@@ -31,6 +39,10 @@ public class Graph {
     public Map<Integer, Node> getNodes() {
         return nodes;
     }
+
+    public GraphSnapshot getSnapshot() {
+        return snapshot;
+    }
 }
 
 
@@ -0,0 +1,70 @@
+package net.mooctest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Assignment of graph nodes to shards, with the boundary nodes that have edges crossing shards
+public class GraphPartition {
+    private int shardCount;
+    private Map<Integer, Integer> shardOf;          // Node id -> shard id
+    private Map<Integer, Set<Integer>> shardNodes;  // Shard id -> node ids
+    private Map<Integer, Set<Integer>> boundaryNodes;
+    private int cutEdgeCount;
+
+    public GraphPartition(Graph graph, int shardCount, Map<Integer, Integer> shardOf) {
+        this.shardCount = shardCount;
+        this.shardOf = new HashMap<>(shardOf);
+        this.shardNodes = new HashMap<>();
+        this.boundaryNodes = new HashMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            shardNodes.put(shard, new HashSet<Integer>());
+            boundaryNodes.put(shard, new HashSet<Integer>());
+        }
+        for (Map.Entry<Integer, Integer> entry : shardOf.entrySet()) {
+            shardNodes.get(entry.getValue()).add(entry.getKey());
+        }
+        for (Node node : graph.getNodes().values()) {
+            int fromShard = getShard(node.getNodeId());
+            for (Edge edge : node.getNeighbors()) {
+                int toId = edge.getNeighbor().getNodeId();
+                int toShard = getShard(toId);
+                if (fromShard != toShard) {
+                    cutEdgeCount++;
+                    boundaryNodes.get(fromShard).add(node.getNodeId()); // Exit node
+                    boundaryNodes.get(toShard).add(toId);               // Entry node
+                }
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int getShard(int nodeId) {
+        Integer shard = shardOf.get(nodeId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Node " + nodeId + " is not part of the partition");
+        }
+        return shard;
+    }
+
+    public boolean contains(int nodeId) {
+        return shardOf.containsKey(nodeId);
+    }
+
+    public Set<Integer> getNodes(int shard) {
+        return Collections.unmodifiableSet(shardNodes.get(shard));
+    }
+
+    public Set<Integer> getBoundaryNodes(int shard) {
+        return Collections.unmodifiableSet(boundaryNodes.get(shard));
+    }
+
+    public int getCutEdgeCount() {
+        return cutEdgeCount;
+    }
+}
@@ -0,0 +1,179 @@
+package net.mooctest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Recursive bisection: each split grows a BFS region from a pseudo-peripheral node and then
+// refines it with greedy boundary moves (Fiduccia-Mattheyses style) to keep the edge cut small.
+// Nodes carry no coordinates here, so the split is purely topological.
+public class GraphPartitioner {
+    private double imbalance;      // Allowed deviation from the target part size, as a fraction of the part
+    private int refinementPasses;
+
+    public GraphPartitioner() {
+        this(0.03, 8);
+    }
+
+    public GraphPartitioner(double imbalance, int refinementPasses) {
+        this.imbalance = imbalance;
+        this.refinementPasses = refinementPasses;
+    }
+
+    public GraphPartition partition(Graph graph, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        Map<Integer, Map<Integer, Integer>> undirected = buildUndirected(graph);
+        List<Integer> nodeIds = new ArrayList<>(graph.getNodes().keySet());
+        Collections.sort(nodeIds); // Deterministic result for the same graph
+        Map<Integer, Integer> assignment = new HashMap<>();
+        bisect(nodeIds, shardCount, 0, undirected, assignment);
+        return new GraphPartition(graph, shardCount, assignment);
+    }
+
+    // Symmetric view with the number of directed edges between each pair as the weight
+    private Map<Integer, Map<Integer, Integer>> buildUndirected(Graph graph) {
+        Map<Integer, Map<Integer, Integer>> undirected = new HashMap<>();
+        for (Integer nodeId : graph.getNodes().keySet()) {
+            undirected.put(nodeId, new HashMap<Integer, Integer>());
+        }
+        for (Node node : graph.getNodes().values()) {
+            for (Edge edge : node.getNeighbors()) {
+                int from = node.getNodeId();
+                int to = edge.getNeighbor().getNodeId();
+                if (from == to || !undirected.containsKey(to)) {
+                    continue;
+                }
+                undirected.get(from).merge(to, 1, Integer::sum);
+                undirected.get(to).merge(from, 1, Integer::sum);
+            }
+        }
+        return undirected;
+    }
+
+    private void bisect(List<Integer> nodeIds, int parts, int firstShard,
+                        Map<Integer, Map<Integer, Integer>> undirected, Map<Integer, Integer> assignment) {
+        if (parts == 1 || nodeIds.size() <= 1) {
+            for (Integer nodeId : nodeIds) {
+                assignment.put(nodeId, firstShard);
+            }
+            return;
+        }
+        int leftParts = parts / 2;
+        int targetLeft = (int) Math.round((double) nodeIds.size() * leftParts / parts);
+
+        Set<Integer> members = new HashSet<>(nodeIds);
+        Set<Integer> left = growRegion(nodeIds, members, targetLeft, undirected);
+        refine(nodeIds, members, left, targetLeft, undirected);
+
+        List<Integer> leftIds = new ArrayList<>();
+        List<Integer> rightIds = new ArrayList<>();
+        for (Integer nodeId : nodeIds) {
+            (left.contains(nodeId) ? leftIds : rightIds).add(nodeId);
+        }
+        bisect(leftIds, leftParts, firstShard, undirected, assignment);
+        bisect(rightIds, parts - leftParts, firstShard + leftParts, undirected, assignment);
+    }
+
+    private Set<Integer> growRegion(List<Integer> nodeIds, Set<Integer> members, int targetSize,
+                                    Map<Integer, Map<Integer, Integer>> undirected) {
+        Set<Integer> region = new HashSet<>();
+        int seed = farthestFrom(farthestFrom(nodeIds.get(0), members, undirected), members, undirected);
+        Deque<Integer> queue = new ArrayDeque<>();
+        int next = 0;
+        while (region.size() < targetSize) {
+            if (queue.isEmpty()) {
+                // Start from the seed, then from the next unvisited node of a disconnected component
+                if (!region.contains(seed)) {
+                    queue.add(seed);
+                } else {
+                    while (region.contains(nodeIds.get(next))) {
+                        next++;
+                    }
+                    queue.add(nodeIds.get(next));
+                }
+                region.add(queue.peek());
+                continue;
+            }
+            int current = queue.poll();
+            for (Integer neighbor : undirected.get(current).keySet()) {
+                if (region.size() >= targetSize) {
+                    break;
+                }
+                if (members.contains(neighbor) && region.add(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return region;
+    }
+
+    // Last node reached by a BFS from the start node within the member set
+    private int farthestFrom(int start, Set<Integer> members, Map<Integer, Map<Integer, Integer>> undirected) {
+        Set<Integer> seen = new HashSet<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        seen.add(start);
+        int last = start;
+        while (!queue.isEmpty()) {
+            last = queue.poll();
+            for (Integer neighbor : undirected.get(last).keySet()) {
+                if (members.contains(neighbor) && seen.add(neighbor)) {
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return last;
+    }
+
+    private void refine(List<Integer> nodeIds, Set<Integer> members, Set<Integer> left, int targetLeft,
+                        Map<Integer, Map<Integer, Integer>> undirected) {
+        int slack = Math.max(1, (int) (imbalance * nodeIds.size()));
+        for (int pass = 0; pass < refinementPasses; pass++) {
+            boolean moved = false;
+            for (Integer nodeId : nodeIds) {
+                boolean inLeft = left.contains(nodeId);
+                int newLeftSize = left.size() + (inLeft ? -1 : 1);
+                if (Math.abs(newLeftSize - targetLeft) > slack) {
+                    continue;
+                }
+                if (gain(nodeId, inLeft, members, left, undirected) > 0) {
+                    if (inLeft) {
+                        left.remove(nodeId);
+                    } else {
+                        left.add(nodeId);
+                    }
+                    moved = true;
+                }
+            }
+            if (!moved) {
+                break;
+            }
+        }
+    }
+
+    // Reduction of the edge cut if the node switched sides
+    private int gain(int nodeId, boolean inLeft, Set<Integer> members, Set<Integer> left,
+                     Map<Integer, Map<Integer, Integer>> undirected) {
+        int external = 0;
+        int internal = 0;
+        for (Map.Entry<Integer, Integer> neighbor : undirected.get(nodeId).entrySet()) {
+            if (!members.contains(neighbor.getKey())) {
+                continue;
+            }
+            if (left.contains(neighbor.getKey()) == inLeft) {
+                internal += neighbor.getValue();
+            } else {
+                external += neighbor.getValue();
+            }
+        }
+        return external - internal;
+    }
+}
@@ -0,0 +1,253 @@
+package net.mooctest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Immutable version of a graph. Nodes are addressed by a dense index (position in the sorted id array)
+// and edges are stored in compressed rows, so searches can read a snapshot without any locking.
+public class GraphSnapshot {
+    private final long version;
+    private final int[] nodeIds;          // Sorted node ids, position = dense node index
+    private final Node[] nodes;           // Frozen node copies by dense index
+    private final int[] edgeOffsets;      // Edges of node i are [edgeOffsets[i], edgeOffsets[i + 1])
+    private final int[] edgeTargets;      // Dense index of each edge's target node
+    private final double[] edgeDistances;
+    private final Map<Integer, String> trafficData;
+    private final Graph graph;
+    private final TrafficCondition trafficCondition;
+
+    private final AtomicInteger readers = new AtomicInteger(); // -1 once the version has been reclaimed
+    private volatile boolean superseded;
+    private final Map<String, Object> derived = new ConcurrentHashMap<>(); // Per-version indexes built on demand
+
+    private GraphSnapshot(long version, int[] nodeIds, Node[] nodes, int[] edgeOffsets, int[] edgeTargets,
+                          double[] edgeDistances, Map<Integer, String> trafficData) {
+        this.version = version;
+        this.nodeIds = nodeIds;
+        this.nodes = nodes;
+        this.edgeOffsets = edgeOffsets;
+        this.edgeTargets = edgeTargets;
+        this.edgeDistances = edgeDistances;
+        this.trafficData = trafficData;
+
+        Map<Integer, Node> byId = new HashMap<>();
+        for (Node node : nodes) {
+            byId.put(node.getNodeId(), node);
+        }
+        this.graph = new Graph(byId, this);
+        this.trafficCondition = new TrafficCondition(trafficData);
+    }
+
+    static GraphSnapshot empty() {
+        return build(0, Collections.<Integer, Node>emptyMap(), Collections.<Integer, Map<Integer, Double>>emptyMap(),
+                Collections.<Integer, String>emptyMap());
+    }
+
+    static GraphSnapshot of(Graph source, Map<Integer, String> trafficData) {
+        Map<Integer, Map<Integer, Double>> adjacency = new HashMap<>();
+        for (Node node : source.getNodes().values()) {
+            Map<Integer, Double> row = new LinkedHashMap<>();
+            for (Edge edge : node.getNeighbors()) {
+                row.put(edge.getNeighbor().getNodeId(), edge.getDistance());
+            }
+            adjacency.put(node.getNodeId(), row);
+        }
+        return build(1, source.getNodes(), adjacency, trafficData);
+    }
+
+    // Builds a version from node templates, adjacency rows (from id -> to id -> distance) and traffic data.
+    // Edges to unknown or obstacle nodes are dropped, matching Graph.addEdge and Node.addNeighbor.
+    static GraphSnapshot build(long version, Map<Integer, Node> templates,
+                               Map<Integer, Map<Integer, Double>> adjacency, Map<Integer, String> trafficData) {
+        TreeMap<Integer, Node> sorted = new TreeMap<>(templates);
+        int n = sorted.size();
+        int[] ids = new int[n];
+        Node[] frozen = new Node[n];
+        int i = 0;
+        for (Map.Entry<Integer, Node> entry : sorted.entrySet()) {
+            ids[i] = entry.getKey();
+            frozen[i] = new Node(entry.getValue());
+            frozen[i].setSnapshotIndex(i);
+            i++;
+        }
+
+        int[] offsets = new int[n + 1];
+        for (i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + countUsableEdges(adjacency.get(ids[i]), ids, frozen);
+        }
+        int[] targets = new int[offsets[n]];
+        double[] distances = new double[offsets[n]];
+        for (i = 0; i < n; i++) {
+            Map<Integer, Double> row = adjacency.get(ids[i]);
+            if (row == null) {
+                continue;
+            }
+            int e = offsets[i];
+            for (Map.Entry<Integer, Double> edge : row.entrySet()) {
+                int target = Arrays.binarySearch(ids, edge.getKey());
+                if (target >= 0 && !frozen[target].isObstacle()) {
+                    targets[e] = target;
+                    distances[e] = edge.getValue();
+                    frozen[i].addNeighbor(frozen[target], edge.getValue());
+                    e++;
+                }
+            }
+        }
+        for (Node node : frozen) {
+            node.freeze();
+        }
+        return new GraphSnapshot(version, ids, frozen, offsets, targets, distances,
+                Collections.unmodifiableMap(new HashMap<>(trafficData)));
+    }
+
+    private static int countUsableEdges(Map<Integer, Double> row, int[] ids, Node[] frozen) {
+        if (row == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Integer to : row.keySet()) {
+            int target = Arrays.binarySearch(ids, to);
+            if (target >= 0 && !frozen[target].isObstacle()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getNodeCount() {
+        return nodeIds.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTargets.length;
+    }
+
+    // Dense index of a node id, or -1 if the node is not part of this version
+    public int indexOf(int nodeId) {
+        int index = Arrays.binarySearch(nodeIds, nodeId);
+        return index >= 0 ? index : -1;
+    }
+
+    public int getNodeId(int index) {
+        return nodeIds[index];
+    }
+
+    public Node getNodeAt(int index) {
+        return nodes[index];
+    }
+
+    public Node getNode(int nodeId) {
+        int index = indexOf(nodeId);
+        return index >= 0 ? nodes[index] : null;
+    }
+
+    public int getEdgeStart(int index) {
+        return edgeOffsets[index];
+    }
+
+    public int getEdgeEnd(int index) {
+        return edgeOffsets[index + 1];
+    }
+
+    public int getEdgeTarget(int edge) {
+        return edgeTargets[edge];
+    }
+
+    public double getEdgeDistance(int edge) {
+        return edgeDistances[edge];
+    }
+
+    public String getTrafficStatus(int nodeId) {
+        return trafficCondition.getTrafficStatus(nodeId);
+    }
+
+    // Read-only Graph view so the existing SearchAlgorithm implementations can run against this version
+    public Graph getGraph() {
+        return graph;
+    }
+
+    // Read-only traffic view; traffic changes go through a GraphUpdateBatch
+    public TrafficCondition getTrafficCondition() {
+        return trafficCondition;
+    }
+
+    // Returns an index derived from this version, building it once on first use
+    @SuppressWarnings("unchecked")
+    public <T> T getDerived(String key, Function<GraphSnapshot, T> factory) {
+        return (T) derived.computeIfAbsent(key, k -> factory.apply(this));
+    }
+
+    Map<Integer, Node> copyNodeTemplates() {
+        Map<Integer, Node> templates = new HashMap<>();
+        for (Node node : nodes) {
+            templates.put(node.getNodeId(), node);
+        }
+        return templates;
+    }
+
+    Map<Integer, Map<Integer, Double>> copyAdjacency() {
+        Map<Integer, Map<Integer, Double>> adjacency = new HashMap<>();
+        for (int i = 0; i < nodeIds.length; i++) {
+            Map<Integer, Double> row = new LinkedHashMap<>();
+            for (int e = edgeOffsets[i]; e < edgeOffsets[i + 1]; e++) {
+                row.put(nodeIds[edgeTargets[e]], edgeDistances[e]);
+            }
+            adjacency.put(nodeIds[i], row);
+        }
+        return adjacency;
+    }
+
+    Map<Integer, String> copyTrafficData() {
+        return new HashMap<>(trafficData);
+    }
+
+    // Registers a reader; fails if the version has already been reclaimed
+    boolean tryRetain() {
+        while (true) {
+            int count = readers.get();
+            if (count < 0) {
+                return false;
+            }
+            if (readers.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // Unregisters a reader; returns true when a superseded version has just become reclaimable
+    boolean release() {
+        return readers.decrementAndGet() == 0 && superseded;
+    }
+
+    void markSuperseded() {
+        superseded = true;
+    }
+
+    // Reclaims the version if no reader holds it, dropping its derived indexes
+    boolean tryReclaim() {
+        if (readers.compareAndSet(0, -1)) {
+            derived.clear();
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isReclaimed() {
+        return readers.get() < 0;
+    }
+
+    public int getReaderCount() {
+        return Math.max(0, readers.get());
+    }
+}
@@ -0,0 +1,77 @@
+package net.mooctest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Collects node, edge and traffic changes that are published together as one new graph version
+public class GraphUpdateBatch {
+    private final VersionedGraph owner;
+    private final Map<Integer, Node> nodeChanges = new LinkedHashMap<>();
+    private final Map<Long, Double> edgeChanges = new LinkedHashMap<>(); // null distance marks a removal
+    private final Map<Integer, String> trafficChanges = new LinkedHashMap<>();
+
+    GraphUpdateBatch(VersionedGraph owner) {
+        this.owner = owner;
+    }
+
+    // Adds a node, or replaces the attributes of an existing node while keeping its edges
+    public GraphUpdateBatch addNode(Node node) {
+        nodeChanges.put(node.getNodeId(), node);
+        return this;
+    }
+
+    // Adds an edge, or changes its distance if the edge already exists
+    public GraphUpdateBatch addEdge(int fromNodeId, int toNodeId, double distance) {
+        edgeChanges.put(edgeKey(fromNodeId, toNodeId), distance);
+        return this;
+    }
+
+    public GraphUpdateBatch removeEdge(int fromNodeId, int toNodeId) {
+        edgeChanges.put(edgeKey(fromNodeId, toNodeId), null);
+        return this;
+    }
+
+    public GraphUpdateBatch updateTrafficStatus(int nodeId, String status) {
+        trafficChanges.put(nodeId, status);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return nodeChanges.isEmpty() && edgeChanges.isEmpty() && trafficChanges.isEmpty();
+    }
+
+    // Publishes the changes atomically and returns the resulting version
+    public GraphSnapshot commit() {
+        return owner.commit(this);
+    }
+
+    GraphSnapshot applyTo(GraphSnapshot base, long version) {
+        Map<Integer, Node> templates = base.copyNodeTemplates();
+        Map<Integer, Map<Integer, Double>> adjacency = base.copyAdjacency();
+        Map<Integer, String> trafficData = base.copyTrafficData();
+
+        templates.putAll(nodeChanges);
+        for (Map.Entry<Long, Double> change : edgeChanges.entrySet()) {
+            int from = (int) (change.getKey() >> 32);
+            int to = (int) (long) change.getKey();
+            Map<Integer, Double> row = adjacency.get(from);
+            if (change.getValue() == null) {
+                if (row != null) {
+                    row.remove(to);
+                }
+            } else if (templates.containsKey(from) && templates.containsKey(to)) {
+                if (row == null) {
+                    row = new LinkedHashMap<>();
+                    adjacency.put(from, row);
+                }
+                row.put(to, change.getValue());
+            }
+        }
+        trafficData.putAll(trafficChanges);
+        return GraphSnapshot.build(version, templates, adjacency, trafficData);
+    }
+
+    private static long edgeKey(int fromNodeId, int toNodeId) {
+        return ((long) fromNodeId << 32) | (toNodeId & 0xFFFFFFFFL);
+    }
+}
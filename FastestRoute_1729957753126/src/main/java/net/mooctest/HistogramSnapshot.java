@@ -0,0 +1,50 @@
+package net.mooctest;
+
+// Immutable view of a LockFreeHistogram
+public class HistogramSnapshot {
+    private long[] counts;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // Value at the given percentile (0-100), reported as the upper bound of its bucket
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, LockFreeHistogram.bucketUpperBound(i));
+            }
+        }
+        return max;
+    }
+}
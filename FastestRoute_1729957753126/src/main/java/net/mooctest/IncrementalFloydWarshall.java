@@ -0,0 +1,375 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// All-pairs shortest paths that follow edge weight changes without a full O(n^3) rebuild.
+// A decrease of edge (a, b) is applied in O(n^2) through d[i][j] = min(d[i][j], d[i][a] + w + d[b][j]).
+// An increase only recomputes the rows of sources that had a shortest path through (a, b), and in those
+// rows only the affected pairs are rewritten. Changes that arrive together (one traffic batch) are
+// published as one version. Rows are copy-on-write and every update publishes a new
+// matrix version, so queries always read one consistent matrix. Edge weights must be non-negative.
+public class IncrementalFloydWarshall implements TrafficChangeListener {
+    private static final double INF = Double.POSITIVE_INFINITY;
+    private static final double EPSILON = 1e-9;
+
+    private final Node[] nodes;                     // Dense index -> node
+    private final Map<Integer, Integer> indexOf = new HashMap<>();
+    private final List<Map<Integer, Double>> baseWeights = new ArrayList<>(); // Shortest base edge a -> b
+    private final List<List<Integer>> incoming = new ArrayList<>();
+    private final double[] multipliers;             // Traffic multiplier of each target node
+    private long trafficVersion = -1;               // Last traffic version applied; older ones are ignored
+    private volatile Matrix matrix;
+
+    // Every node starts clear (multiplier 1.0)
+    public IncrementalFloydWarshall(Graph graph) {
+        this(graph, null);
+    }
+
+    // Starts from the given traffic state, so a matrix built after traffic has changed is weighted correctly
+    public IncrementalFloydWarshall(Graph graph, TrafficMultipliers traffic) {
+        int n = graph.getNodes().size();
+        nodes = graph.getNodes().values().toArray(new Node[0]);
+        Arrays.sort(nodes, Comparator.comparingInt(Node::getNodeId));
+        for (int i = 0; i < n; i++) {
+            indexOf.put(nodes[i].getNodeId(), i);
+            baseWeights.add(new HashMap<Integer, Double>());
+            incoming.add(new ArrayList<Integer>());
+        }
+        multipliers = new double[n];
+        for (int i = 0; i < n; i++) {
+            multipliers[i] = traffic == null ? 1.0 : traffic.getMultiplier(nodes[i].getNodeId());
+        }
+        if (traffic != null) {
+            trafficVersion = traffic.getVersion();
+        }
+
+        double[][] dist = new double[n][n];
+        int[][] next = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            Arrays.fill(dist[i], INF);
+            Arrays.fill(next[i], -1);
+            dist[i][i] = 0;
+            next[i][i] = i;
+        }
+        for (int a = 0; a < n; a++) {
+            for (Edge edge : nodes[a].getNeighbors()) {
+                Integer b = indexOf.get(edge.getNeighbor().getNodeId());
+                if (b == null || b == a) {
+                    continue;
+                }
+                Double known = baseWeights.get(a).get(b);
+                if (known == null) {
+                    incoming.get(b).add(a);
+                }
+                if (known == null || edge.getDistance() < known) {
+                    baseWeights.get(a).put(b, edge.getDistance());
+                }
+            }
+            for (Map.Entry<Integer, Double> edge : baseWeights.get(a).entrySet()) {
+                int b = edge.getKey();
+                double weight = multiplied(a, b, edge.getValue());
+                if (weight < INF) {
+                    dist[a][b] = weight;
+                    next[a][b] = b;
+                }
+            }
+        }
+        for (int k = 0; k < n; k++) {
+            double[] rowK = dist[k];
+            for (int i = 0; i < n; i++) {
+                double viaK = dist[i][k];
+                if (viaK == INF) {
+                    continue;
+                }
+                double[] rowI = dist[i];
+                for (int j = 0; j < n; j++) {
+                    if (viaK + rowK[j] < rowI[j]) {
+                        rowI[j] = viaK + rowK[j];
+                        next[i][j] = next[i][k];
+                    }
+                }
+            }
+        }
+        matrix = new Matrix(0, dist, next);
+    }
+
+    // Builds the matrix from the pipeline's current traffic and keeps it subscribed. A batch published
+    // between reading the traffic and subscribing is caught up by re-applying the then current state.
+    public static IncrementalFloydWarshall subscribedTo(Graph graph, TrafficUpdatePipeline pipeline) {
+        IncrementalFloydWarshall apsp = new IncrementalFloydWarshall(graph, pipeline.current());
+        pipeline.subscribe(apsp);
+        int[] allNodeIds = new int[apsp.nodes.length];
+        for (int i = 0; i < allNodeIds.length; i++) {
+            allNodeIds[i] = apsp.nodes[i].getNodeId();
+        }
+        apsp.onTrafficChanged(pipeline.current(), allNodeIds);
+        return apsp;
+    }
+
+    public long getVersion() {
+        return matrix.version;
+    }
+
+    // Shortest distance, or Double.POSITIVE_INFINITY if the target is unreachable
+    public double getDistance(Node u, Node v) {
+        Matrix m = matrix;
+        return m.dist[index(u.getNodeId())][index(v.getNodeId())];
+    }
+
+    public List<Node> getShortestPath(Node u, Node v) {
+        Matrix m = matrix; // All lookups of one query use the same version
+        int i = index(u.getNodeId());
+        int j = index(v.getNodeId());
+        List<Node> path = new ArrayList<>();
+        if (m.next[i][j] < 0) {
+            return path;
+        }
+        path.add(nodes[i]);
+        while (i != j) {
+            i = m.next[i][j];
+            path.add(nodes[i]);
+        }
+        return path;
+    }
+
+    // Sets the base distance of an edge, adding it if it does not exist yet
+    public synchronized void updateEdge(int fromNodeId, int toNodeId, double distance) {
+        int a = index(fromNodeId);
+        int b = index(toNodeId);
+        if (!baseWeights.get(a).containsKey(b)) {
+            incoming.get(b).add(a);
+        }
+        double oldWeight = effectiveWeight(a, b);
+        baseWeights.get(a).put(b, distance);
+        List<double[]> changes = new ArrayList<>();
+        changes.add(new double[]{a, b, oldWeight, effectiveWeight(a, b)});
+        applyChanges(changes);
+    }
+
+    public synchronized void removeEdge(int fromNodeId, int toNodeId) {
+        int a = index(fromNodeId);
+        int b = index(toNodeId);
+        double oldWeight = effectiveWeight(a, b);
+        if (baseWeights.get(a).remove(b) == null) {
+            return;
+        }
+        incoming.get(b).remove(Integer.valueOf(a));
+        List<double[]> changes = new ArrayList<>();
+        changes.add(new double[]{a, b, oldWeight, INF});
+        applyChanges(changes);
+    }
+
+    // Re-weights the incoming edges of every node whose traffic multiplier changed, publishing once
+    @Override
+    public synchronized void onTrafficChanged(TrafficMultipliers trafficMultipliers, int[] changedNodeIds) {
+        if (trafficMultipliers.getVersion() <= trafficVersion) {
+            return; // Already part of the state this matrix was built or caught up from
+        }
+        trafficVersion = trafficMultipliers.getVersion();
+        List<double[]> changes = new ArrayList<>();
+        for (int nodeId : changedNodeIds) {
+            Integer b = indexOf.get(nodeId);
+            if (b == null) {
+                continue;
+            }
+            double oldMultiplier = multipliers[b];
+            double newMultiplier = trafficMultipliers.getMultiplier(nodeId);
+            if (oldMultiplier == newMultiplier) {
+                continue;
+            }
+            for (int a : incoming.get(b)) {
+                double base = baseWeights.get(a).get(b);
+                changes.add(new double[]{a, b, weigh(base, oldMultiplier), weigh(base, newMultiplier)});
+            }
+            multipliers[b] = newMultiplier;
+        }
+        applyChanges(changes);
+    }
+
+    // Each change is {from index, to index, old weight, new weight}; the edge weights are already updated.
+    // Increases are resolved first against the published matrix, then decreases are folded in one by one.
+    private void applyChanges(List<double[]> changes) {
+        Matrix base = matrix;
+        Working working = new Working(base);
+        List<double[]> increases = new ArrayList<>();
+        for (double[] change : changes) {
+            if (change[3] > change[2]) {
+                increases.add(change);
+            }
+        }
+        if (!increases.isEmpty()) {
+            applyIncreases(base, working, increases);
+        }
+        for (double[] change : changes) {
+            if (change[3] < change[2]) {
+                applyDecrease(working, (int) change[0], (int) change[1], change[3]);
+            }
+        }
+        if (working.changed) {
+            matrix = new Matrix(base.version + 1, working.dist, working.next);
+        }
+    }
+
+    // O(n^2): every pair may now route through the cheaper edge
+    private void applyDecrease(Working working, int a, int b, double weight) {
+        int n = nodes.length;
+        for (int i = 0; i < n; i++) {
+            double toA = working.dist[i][a];
+            if (toA == INF) {
+                continue;
+            }
+            double viaEdge = toA + weight;
+            int firstHop = i == a ? b : working.next[i][a];
+            double[] fromB = working.dist[b];
+            double[] row = working.dist[i];
+            for (int j = 0; j < n; j++) {
+                if (viaEdge + fromB[j] < row[j]) {
+                    row = working.writableDist(i); // Copy the row on its first improvement
+                    row[j] = viaEdge + fromB[j];
+                    working.writableNext(i)[j] = firstHop;
+                }
+            }
+        }
+    }
+
+    // Recomputes only the pairs that had a shortest path through one of the edges at its old weight
+    private void applyIncreases(Matrix base, Working working, List<double[]> increases) {
+        int n = nodes.length;
+        for (int i = 0; i < n; i++) {
+            double[] row = base.dist[i];
+            boolean[] affected = null;
+            for (double[] change : increases) {
+                int a = (int) change[0];
+                int b = (int) change[1];
+                double toA = row[a];
+                if (toA == INF || change[2] == INF) {
+                    continue;
+                }
+                double[] fromB = base.dist[b];
+                for (int j = 0; j < n; j++) {
+                    double viaEdge = toA + change[2] + fromB[j];
+                    if (row[j] != INF && viaEdge <= row[j] + EPSILON * Math.max(1.0, row[j])) {
+                        if (affected == null) {
+                            affected = new boolean[n];
+                        }
+                        affected[j] = true;
+                    }
+                }
+            }
+            if (affected == null) {
+                continue;
+            }
+            double[] distance = new double[n];
+            int[] firstHop = new int[n];
+            dijkstra(i, distance, firstHop);
+            double[] writableRow = working.writableDist(i);
+            int[] nextRow = working.writableNext(i);
+            for (int j = 0; j < n; j++) {
+                if (affected[j]) {
+                    writableRow[j] = distance[j];
+                    nextRow[j] = firstHop[j];
+                }
+            }
+        }
+    }
+
+    private void dijkstra(int source, double[] distance, int[] firstHop) {
+        Arrays.fill(distance, INF);
+        Arrays.fill(firstHop, -1);
+        distance[source] = 0;
+        firstHop[source] = source;
+        PriorityQueue<double[]> pq = new PriorityQueue<>(Comparator.comparingDouble((double[] entry) -> entry[0]));
+        pq.add(new double[]{0, source});
+        while (!pq.isEmpty()) {
+            double[] entry = pq.poll();
+            int u = (int) entry[1];
+            if (entry[0] > distance[u]) {
+                continue;
+            }
+            for (Map.Entry<Integer, Double> edge : baseWeights.get(u).entrySet()) {
+                int v = edge.getKey();
+                double candidate = distance[u] + multiplied(u, v, edge.getValue());
+                if (candidate < distance[v]) {
+                    distance[v] = candidate;
+                    firstHop[v] = u == source ? v : firstHop[u];
+                    pq.add(new double[]{candidate, v});
+                }
+            }
+        }
+    }
+
+    private double effectiveWeight(int a, int b) {
+        Double base = baseWeights.get(a).get(b);
+        return base == null ? INF : multiplied(a, b, base);
+    }
+
+    private double multiplied(int a, int b, double base) {
+        return weigh(base, multipliers[b]);
+    }
+
+    private static double weigh(double base, double multiplier) {
+        if (multiplier == INF) {
+            return INF; // Closed, even for zero-length edges
+        }
+        return multiplier == 1.0 ? base : base * multiplier;
+    }
+
+    private int index(int nodeId) {
+        Integer index = indexOf.get(nodeId);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown node " + nodeId);
+        }
+        return index;
+    }
+
+    private static class Matrix {
+        private final long version;
+        private final double[][] dist;
+        private final int[][] next; // First hop index on the shortest path, -1 if unreachable
+
+        Matrix(long version, double[][] dist, int[][] next) {
+            this.version = version;
+            this.dist = dist;
+            this.next = next;
+        }
+    }
+
+    // Next version under construction; rows are copied the first time they are written
+    private static class Working {
+        private final double[][] dist;
+        private final int[][] next;
+        private final boolean[] copied;
+        private boolean changed;
+
+        Working(Matrix base) {
+            this.dist = base.dist.clone();
+            this.next = base.next.clone();
+            this.copied = new boolean[dist.length];
+        }
+
+        double[] writableDist(int row) {
+            copyRow(row);
+            return dist[row];
+        }
+
+        int[] writableNext(int row) {
+            copyRow(row);
+            return next[row];
+        }
+
+        private void copyRow(int row) {
+            if (!copied[row]) {
+                dist[row] = dist[row].clone();
+                next[row] = next[row].clone();
+                copied[row] = true;
+                changed = true;
+            }
+        }
+    }
+}
@@ -15,34 +15,49 @@ public class IterativeDeepeningSearch extends SearchAlgorithm {
     @Override
     public PathResult findPath() {
         for (int depth = 0; depth <= maxDepth; depth++) {
-            PathResult result = depthLimitedSearch(startNode, endNode, depth, new HashSet<>());
-            if (result != null) {
-                return result;
+            Deque<Edge> legs = new ArrayDeque<>();
+            if (search(startNode, endNode, depth, new HashSet<>(), legs)) {
+                return PathResult.fromLegs(startNode, legs.toArray(new Edge[0]), vehicle);
             }
         }
         return null; // No feasible path found
     }
 
     public PathResult depthLimitedSearch(Node current, Node goal, int depth, Set<Node> visited) {
+        Deque<Edge> legs = new ArrayDeque<>();
+        if (!search(current, goal, depth, visited, legs)) {
+            return null;
+        }
+        List<Node> path = new ArrayList<>(legs.size() + 1);
+        path.add(current);
+        for (Edge leg : legs) {
+            path.add(leg.getNeighbor());
+        }
+        return new PathResult(path);
+    }
+
+    // Depth-first search to exactly the given depth; on success legs holds the edges driven, in order
+    private boolean search(Node current, Node goal, int depth, Set<Node> visited, Deque<Edge> legs) {
         if (depth == 0 && current.equals(goal)) {
-            return new PathResult(Collections.singletonList(current));
+            return true;
         }
         if (depth > 0) {
             visited.add(current);
+            stats.settled();
             for (Edge edge : current.getNeighbors()) {
                 Node neighbor = edge.getNeighbor();
-                if (!visited.contains(neighbor)) {
-                    PathResult result = depthLimitedSearch(neighbor, goal, depth - 1, visited);
-                    if (result != null) {
-                        List<Node> path = new ArrayList<>(result.getPath());
-                        path.add(0, current);
-                        return new PathResult(path);
+                stats.relaxed();
+                if (!visited.contains(neighbor) && !isRestricted(neighbor)) {
+                    legs.addLast(edge);
+                    if (search(neighbor, goal, depth - 1, visited, legs)) {
+                        return true;
                     }
+                    legs.removeLast();
                 }
             }
             visited.remove(current);
         }
-        return null;
+        return false;
     }
 }
 
@@ -0,0 +1,36 @@
+package net.mooctest;
+
+// Result of a RouteLoadGenerator run; latencies are in nanoseconds
+public class LoadReport {
+    private long completed;
+    private long noPath;
+    private long elapsedNanos;
+    private HistogramSnapshot latency;
+
+    public LoadReport(long completed, long noPath, long elapsedNanos, HistogramSnapshot latency) {
+        this.completed = completed;
+        this.noPath = noPath;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getNoPath() {
+        return noPath;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getThroughputPerSecond() {
+        return elapsedNanos > 0 ? completed * 1e9 / elapsedNanos : 0;
+    }
+
+    public HistogramSnapshot getLatency() {
+        return latency;
+    }
+}
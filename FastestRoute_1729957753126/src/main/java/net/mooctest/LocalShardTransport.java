@@ -0,0 +1,39 @@
+package net.mooctest;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+// In-process stand-in for a network transport. With encoding enabled every message makes a
+// round trip through a ByteBuffer, so the wire format is exercised exactly as a remote shard would.
+public class LocalShardTransport implements ShardTransport {
+    private Map<Integer, RouteShard> shards = new HashMap<>();
+    private boolean encodeMessages;
+
+    public LocalShardTransport(boolean encodeMessages) {
+        this.encodeMessages = encodeMessages;
+    }
+
+    public void register(RouteShard shard) {
+        shards.put(shard.getShardId(), shard);
+    }
+
+    @Override
+    public ShardResponse send(int shardId, ShardRequest request) {
+        RouteShard shard = shards.get(shardId);
+        if (shard == null) {
+            throw new IllegalArgumentException("Unknown shard " + shardId);
+        }
+        if (!encodeMessages) {
+            return shard.handle(request);
+        }
+        ByteBuffer requestBuffer = ByteBuffer.allocate(request.encodedSize());
+        request.writeTo(requestBuffer);
+        requestBuffer.flip();
+        ShardResponse response = shard.handle(ShardRequest.readFrom(requestBuffer));
+        ByteBuffer responseBuffer = ByteBuffer.allocate(response.encodedSize());
+        response.writeTo(responseBuffer);
+        responseBuffer.flip();
+        return ShardResponse.readFrom(responseBuffer);
+    }
+}
@@ -0,0 +1,70 @@
+package net.mooctest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// HDR-style log-linear histogram for non-negative values. Values below 128 are exact; above that each
+// power of two is split into 64 sub-buckets, bounding the relative error to about 1.6%.
+// Recording is a single atomic increment, so many search threads can record concurrently.
+public class LockFreeHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int LINEAR_LIMIT = 1 << SUB_BUCKET_BITS;   // 128 exact buckets
+    private static final int HALF = LINEAR_LIMIT / 2;               // 64 sub-buckets per power of two
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS + 1) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator max = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.increment();
+        sum.add(value);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift); // In [HALF, LINEAR_LIMIT)
+        return LINEAR_LIMIT + (shift - 1) * HALF + (subBucket - HALF);
+    }
+
+    // Largest value that falls into the bucket
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / HALF + 1;
+        long subBucket = (index - LINEAR_LIMIT) % HALF + HALF;
+        if (subBucket + 1 > Long.MAX_VALUE >>> shift) {
+            return Long.MAX_VALUE; // The top buckets reach past the long range
+        }
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    // Point-in-time copy; concurrent records may be partially included
+    public HistogramSnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        long maxValue = max.get();
+        return new HistogramSnapshot(copy, count, sum.sum(), count == 0 ? 0 : min.get(), count == 0 ? 0 : maxValue);
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+}
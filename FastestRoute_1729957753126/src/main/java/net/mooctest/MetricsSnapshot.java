@@ -0,0 +1,32 @@
+package net.mooctest;
+
+import java.util.Collections;
+import java.util.Map;
+
+// Point-in-time copy of a RoutingMetrics registry
+public class MetricsSnapshot {
+    private Map<String, HistogramSnapshot> histograms;
+    private Map<String, Long> counters;
+
+    MetricsSnapshot(Map<String, HistogramSnapshot> histograms, Map<String, Long> counters) {
+        this.histograms = Collections.unmodifiableMap(histograms);
+        this.counters = Collections.unmodifiableMap(counters);
+    }
+
+    public Map<String, HistogramSnapshot> getHistograms() {
+        return histograms;
+    }
+
+    public Map<String, Long> getCounters() {
+        return counters;
+    }
+
+    public HistogramSnapshot getHistogram(String name) {
+        return histograms.get(name);
+    }
+
+    public long getCounter(String name) {
+        Long value = counters.get(name);
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,47 @@
+package net.mooctest;
+
+import java.util.List;
+
+// Result of a multi-stop optimization: the visiting order and the stitched route through all stops
+public class MultiStopPlan {
+    private List<Node> stopOrder;
+    private PathResult path;
+    private double totalCost;
+    private int timeWindowViolations; // Stops that could not be reached while open
+    private int finishTime;
+    private boolean feasible;         // False if some leg has no path
+
+    public MultiStopPlan(List<Node> stopOrder, PathResult path, double totalCost, int timeWindowViolations,
+                         int finishTime, boolean feasible) {
+        this.stopOrder = stopOrder;
+        this.path = path;
+        this.totalCost = totalCost;
+        this.timeWindowViolations = timeWindowViolations;
+        this.finishTime = finishTime;
+        this.feasible = feasible;
+    }
+
+    public List<Node> getStopOrder() {
+        return stopOrder;
+    }
+
+    public PathResult getPath() {
+        return path;
+    }
+
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    public int getTimeWindowViolations() {
+        return timeWindowViolations;
+    }
+
+    public int getFinishTime() {
+        return finishTime;
+    }
+
+    public boolean isFeasible() {
+        return feasible;
+    }
+}
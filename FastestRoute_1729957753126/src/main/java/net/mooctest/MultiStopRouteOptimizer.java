@@ -0,0 +1,336 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Orders delivery stops and stitches the legs into one route. The stop-to-stop cost table is filled with
+// one multi-target Dijkstra per stop; the order is built by randomized nearest-neighbour construction and
+// improved with 2-opt and Or-opt moves, over several independent restarts run in parallel.
+// As in the other searches, time advances by the adjusted edge weight, and a stop reached before it opens
+// is waited for (up to one day); stops that cannot be served while open count as violations.
+public class MultiStopRouteOptimizer {
+    private static final double UNREACHABLE = 1e12; // Finite stand-in so unreachable legs can be compared
+    private static final int MAX_WAIT = 24;
+
+    private Graph graph;
+    private Vehicle vehicle;
+    private TrafficCondition trafficCondition;
+    private WeatherCondition weatherCondition;
+    private NodeRestrictions restrictedNodes;
+    private int restarts = 8;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long seed = 42;
+    private int serviceTime = 0; // Time spent at each stop
+
+    public MultiStopRouteOptimizer(Graph graph, Vehicle vehicle, TrafficCondition trafficCondition,
+                                   WeatherCondition weatherCondition) {
+        this.graph = graph;
+        this.vehicle = vehicle;
+        this.trafficCondition = trafficCondition;
+        this.weatherCondition = weatherCondition;
+    }
+
+    public void setRestarts(int restarts) {
+        this.restarts = Math.max(1, restarts);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setServiceTime(int serviceTime) {
+        this.serviceTime = serviceTime;
+    }
+
+    // Visits every stop once, starting at start and finishing at end (or at the last stop if end is null)
+    public MultiStopPlan optimize(Node start, List<Node> stops, Node end, int startTime) {
+        restrictedNodes = VehicleProfileRegistry.getDefault().getRestrictions(graph, vehicle);
+        List<Node> points = new ArrayList<>();
+        points.add(start);
+        points.addAll(stops);
+        if (end != null) {
+            points.add(end);
+        }
+        double[][] costs = buildCostTable(points);
+        int stopCount = stops.size();
+        boolean fixedEnd = end != null;
+
+        int[] best = null;
+        double[] bestScore = null;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, restarts));
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int r = 0; r < restarts; r++) {
+                final long restartSeed = seed + r;
+                // The first restart is the plain greedy construction
+                final Random random = r == 0 ? null : new Random(restartSeed);
+                futures.add(executor.submit(() -> solve(points, costs, stopCount, fixedEnd, startTime, random)));
+            }
+            for (Future<int[]> future : futures) {
+                int[] order = future.get(); // Taken in restart order, so the result is deterministic
+                double[] score = evaluate(order, points, costs, fixedEnd, startTime);
+                if (best == null || better(score, bestScore)) {
+                    best = order;
+                    bestScore = score;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Multi-stop optimization interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Multi-stop optimization failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return buildPlan(best, bestScore, points, fixedEnd, startTime);
+    }
+
+    // costs[i][j] = adjusted shortest distance from point i to point j
+    private double[][] buildCostTable(List<Node> points) {
+        int n = points.size();
+        double[][] costs = new double[n][n];
+        Set<Node> targets = new HashSet<>(points);
+        for (int i = 0; i < n; i++) {
+            Map<Node, Double> distances = search(points.get(i), targets, null);
+            for (int j = 0; j < n; j++) {
+                Double distance = distances.get(points.get(j));
+                costs[i][j] = distance != null ? distance : UNREACHABLE;
+            }
+        }
+        return costs;
+    }
+
+    private Map<Node, Double> search(Node source, Set<Node> targets, Map<Node, Node> predecessors) {
+        return new MultiTargetDijkstra(trafficCondition, weatherCondition, restrictedNodes, vehicle.isEmergencyVehicle())
+                .search(source, targets, predecessors);
+    }
+
+    // One restart: construction followed by 2-opt and Or-opt passes until no move improves the route.
+    // Moves are screened with an O(1)/O(segment) cost delta; the full time-window evaluation only runs
+    // for moves that shorten the route, or for every move while the route still violates a window.
+    private int[] solve(List<Node> points, double[][] costs, int stopCount, boolean fixedEnd, int startTime, Random random) {
+        int[] order = construct(costs, stopCount, random);
+        double[] score = evaluate(order, points, costs, fixedEnd, startTime);
+        int end = fixedEnd ? points.size() - 1 : -1;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 0; i < order.length - 1; i++) {
+                for (int j = i + 1; j < order.length; j++) {
+                    if (score[0] == 0 && twoOptDelta(order, i, j, costs, end) >= -1e-9) {
+                        continue;
+                    }
+                    int[] candidate = twoOpt(order, i, j);
+                    double[] candidateScore = evaluate(candidate, points, costs, fixedEnd, startTime);
+                    if (better(candidateScore, score)) {
+                        order = candidate;
+                        score = candidateScore;
+                        improved = true;
+                    }
+                }
+            }
+            for (int length = 1; length <= 3; length++) {
+                for (int i = 0; i + length <= order.length; i++) {
+                    for (int target = 0; target <= order.length - length; target++) {
+                        if (target == i) {
+                            continue;
+                        }
+                        if (score[0] == 0 && orOptDelta(order, i, length, target, costs, end) >= -1e-9) {
+                            continue;
+                        }
+                        int[] candidate = orOpt(order, i, length, target);
+                        double[] candidateScore = evaluate(candidate, points, costs, fixedEnd, startTime);
+                        if (better(candidateScore, score)) {
+                            order = candidate;
+                            score = candidateScore;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    // Nearest neighbour from the start; randomized restarts pick among the three closest unvisited stops
+    private int[] construct(double[][] costs, int stopCount, Random random) {
+        int[] order = new int[stopCount];
+        boolean[] used = new boolean[stopCount + 1];
+        int current = 0;
+        for (int k = 0; k < stopCount; k++) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int s = 1; s <= stopCount; s++) {
+                if (!used[s]) {
+                    candidates.add(s);
+                }
+            }
+            final int from = current;
+            Collections.sort(candidates, Comparator.comparingDouble((Integer s) -> costs[from][s]));
+            int pick = candidates.get(random == null ? 0 : random.nextInt(Math.min(3, candidates.size())));
+            order[k] = pick;
+            used[pick] = true;
+            current = pick;
+        }
+        return order;
+    }
+
+    // Point visited before position k (the start for k = 0)
+    private static int before(int[] order, int k) {
+        return k == 0 ? 0 : order[k - 1];
+    }
+
+    // Point visited after position k, the fixed end, or -1 for an open route
+    private static int after(int[] order, int k, int end) {
+        return k + 1 < order.length ? order[k + 1] : end;
+    }
+
+    private static double arc(double[][] costs, int from, int to) {
+        return from < 0 || to < 0 ? 0 : costs[from][to];
+    }
+
+    private static double twoOptDelta(int[] order, int i, int j, double[][] costs, int end) {
+        int p = before(order, i);
+        int q = after(order, j, end);
+        double delta = arc(costs, p, order[j]) + arc(costs, order[i], q) - arc(costs, p, order[i]) - arc(costs, order[j], q);
+        for (int k = i; k < j; k++) {
+            delta += costs[order[k + 1]][order[k]] - costs[order[k]][order[k + 1]];
+        }
+        return delta;
+    }
+
+    private static double orOptDelta(int[] order, int i, int length, int target, double[][] costs, int end) {
+        int first = order[i];
+        int last = order[i + length - 1];
+        int p = before(order, i);
+        int q = after(order, i + length - 1, end);
+        double delta = arc(costs, p, q) - arc(costs, p, first) - arc(costs, last, q);
+        // Neighbours of the insertion point in the sequence without the segment
+        int restLength = order.length - length;
+        int x = target == 0 ? 0 : order[target - 1 < i ? target - 1 : target - 1 + length];
+        int y = target < restLength ? order[target < i ? target : target + length] : end;
+        return delta + arc(costs, x, first) + arc(costs, last, y) - arc(costs, x, y);
+    }
+
+    private static int[] twoOpt(int[] order, int i, int j) {
+        int[] result = order.clone();
+        for (int a = i, b = j; a < b; a++, b--) {
+            int tmp = result[a];
+            result[a] = result[b];
+            result[b] = tmp;
+        }
+        return result;
+    }
+
+    // Moves the segment [i, i + length) so that it starts at position target of the remaining sequence
+    private static int[] orOpt(int[] order, int i, int length, int target) {
+        List<Integer> rest = new ArrayList<>();
+        for (int k = 0; k < order.length; k++) {
+            if (k < i || k >= i + length) {
+                rest.add(order[k]);
+            }
+        }
+        int[] result = new int[order.length];
+        int position = 0;
+        for (int k = 0; k <= rest.size(); k++) {
+            if (k == target) {
+                for (int s = 0; s < length; s++) {
+                    result[position++] = order[i + s];
+                }
+            }
+            if (k < rest.size()) {
+                result[position++] = rest.get(k);
+            }
+        }
+        return result;
+    }
+
+    // {time window violations, total cost, finish time}
+    private double[] evaluate(int[] order, List<Node> points, double[][] costs, boolean fixedEnd, int startTime) {
+        int violations = 0;
+        double total = 0;
+        int time = startTime;
+        int previous = 0;
+        for (int stop : order) {
+            total += costs[previous][stop];
+            time += (int) costs[previous][stop];
+            int wait = 0;
+            while (!points.get(stop).isOpenAt(time + wait) && wait < MAX_WAIT) {
+                wait++;
+            }
+            if (points.get(stop).isOpenAt(time + wait)) {
+                time += wait;
+            } else {
+                violations++;
+            }
+            time += serviceTime;
+            previous = stop;
+        }
+        if (fixedEnd) {
+            total += costs[previous][points.size() - 1];
+            time += (int) costs[previous][points.size() - 1];
+        }
+        return new double[]{violations, total, time};
+    }
+
+    private static boolean better(double[] score, double[] than) {
+        if (score[0] != than[0]) {
+            return score[0] < than[0];
+        }
+        return score[1] < than[1] - 1e-9;
+    }
+
+    private MultiStopPlan buildPlan(int[] order, double[] score, List<Node> points, boolean fixedEnd, int startTime) {
+        List<Integer> sequence = new ArrayList<>();
+        sequence.add(0);
+        for (int stop : order) {
+            sequence.add(stop);
+        }
+        if (fixedEnd) {
+            sequence.add(points.size() - 1);
+        }
+        List<Node> stopOrder = new ArrayList<>();
+        for (int stop : order) {
+            stopOrder.add(points.get(stop));
+        }
+
+        List<Node> path = new ArrayList<>();
+        path.add(points.get(0));
+        boolean feasible = true;
+        for (int k = 1; k < sequence.size(); k++) {
+            Node from = points.get(sequence.get(k - 1));
+            Node to = points.get(sequence.get(k));
+            if (from.equals(to)) {
+                continue;
+            }
+            Map<Node, Node> predecessors = new HashMap<>();
+            search(from, Collections.singleton(to), predecessors);
+            if (!predecessors.containsKey(to)) {
+                feasible = false;
+                continue;
+            }
+            List<Node> leg = new ArrayList<>();
+            for (Node current = to; current != null && !current.equals(from); current = predecessors.get(current)) {
+                leg.add(current);
+            }
+            Collections.reverse(leg);
+            path.addAll(leg);
+        }
+        return new MultiStopPlan(stopOrder, new PathResult(path), score[1], (int) score[0], (int) score[2],
+                feasible && score[1] < UNREACHABLE);
+    }
+}
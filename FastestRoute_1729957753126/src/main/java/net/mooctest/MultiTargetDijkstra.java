@@ -0,0 +1,80 @@
+package net.mooctest;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+// One-to-many Dijkstra that stops as soon as every target is settled. Applies traffic, weather,
+// closures, high-risk areas (unless emergency) and the vehicle profile's node restrictions. Unlike the
+// single-route searches it takes no departure time or vehicle, so opening hours and fuel are not checked.
+public class MultiTargetDijkstra {
+    private TrafficCondition trafficCondition;
+    private WeatherCondition weatherCondition;
+    private NodeRestrictions restrictedNodes;
+    private boolean emergency;
+
+    public MultiTargetDijkstra(TrafficCondition trafficCondition, WeatherCondition weatherCondition,
+                               NodeRestrictions restrictedNodes, boolean emergency) {
+        this.trafficCondition = trafficCondition;
+        this.weatherCondition = weatherCondition;
+        this.restrictedNodes = restrictedNodes;
+        this.emergency = emergency;
+    }
+
+    // Distances of every node settled before the search stopped; fills predecessors if given
+    public Map<Node, Double> search(Node source, Set<Node> targets, Map<Node, Node> predecessors) {
+        return search(source, targets, predecessors, null);
+    }
+
+    // As above; also records the edge each node was reached by if arrivalEdges is given
+    public Map<Node, Double> search(Node source, Set<Node> targets, Map<Node, Node> predecessors,
+                                    Map<Node, Edge> arrivalEdges) {
+        PriorityQueue<PathNode> pq = new PriorityQueue<>(Comparator.comparingDouble(PathNode::getDistance));
+        Map<Node, Double> distances = new HashMap<>();
+        Set<Node> settled = new HashSet<>();
+        int remaining = targets.size();
+        distances.put(source, 0.0);
+        pq.add(new PathNode(source, 0));
+        while (!pq.isEmpty() && remaining > 0) {
+            PathNode current = pq.poll();
+            Node node = current.getNode();
+            if (!settled.add(node)) {
+                continue;
+            }
+            if (targets.contains(node)) {
+                remaining--;
+            }
+            for (Edge edge : node.getNeighbors()) {
+                Node neighbor = edge.getNeighbor();
+                int neighborId = neighbor.getNodeId();
+                if (settled.contains(neighbor) || restrictedNodes.isRestricted(neighbor)) {
+                    continue;
+                }
+                if (neighbor.isHighRiskArea() && !emergency) {
+                    continue;
+                }
+                double weight = trafficCondition.adjustWeight(edge.getDistance(), neighborId);
+                if (weight == Double.MAX_VALUE) {
+                    continue; // Closed
+                }
+                weight = weatherCondition.adjustWeightForWeather(weight, neighbor);
+                double newDistance = current.getDistance() + weight;
+                Double known = distances.get(neighbor);
+                if (known == null || newDistance < known) {
+                    distances.put(neighbor, newDistance);
+                    if (predecessors != null) {
+                        predecessors.put(neighbor, node);
+                    }
+                    if (arrivalEdges != null) {
+                        arrivalEdges.put(neighbor, edge);
+                    }
+                    pq.add(new PathNode(neighbor, newDistance));
+                }
+            }
+        }
+        return distances;
+    }
+}
@@ -1,6 +1,7 @@
 package net.mooctest;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Node {
@@ -14,6 +15,7 @@ public class Node {
     private double costPerKm; // Fuel or energy cost per kilometer
     private int openTime;  // Road open start time (in hours)
     private int closeTime; // Road close time
+    private int snapshotIndex = -1; // Dense index in the owning snapshot, -1 for nodes of a mutable graph
 
     public Node(int nodeId, boolean isObstacle, String roadType, boolean tollRoad,
                 boolean restrictedForHeavyVehicles, boolean highRiskArea,
@@ -30,6 +32,13 @@ public class Node {
         this.neighbors = new ArrayList<>();
     }
 
+    // Copies the attributes of another node without its edges (used when building graph snapshots)
+    Node(Node template) {
+        this(template.nodeId, template.isObstacle, template.roadType, template.tollRoad,
+                template.restrictedForHeavyVehicles, template.highRiskArea,
+                template.costPerKm, template.openTime, template.closeTime);
+    }
+
     public int getNodeId() {
         return nodeId;
     }
@@ -71,4 +80,17 @@ public class Node {
             this.neighbors.add(new Edge(neighbor, distance));
         }
     }
+
+    int getSnapshotIndex() {
+        return snapshotIndex;
+    }
+
+    void setSnapshotIndex(int snapshotIndex) {
+        this.snapshotIndex = snapshotIndex;
+    }
+
+    // Makes the adjacency list read-only once the node belongs to a published snapshot
+    void freeze() {
+        this.neighbors = Collections.unmodifiableList(neighbors);
+    }
 }
@@ -0,0 +1,50 @@
+package net.mooctest;
+
+import java.util.BitSet;
+
+// Nodes a vehicle profile may not enter. On a snapshot graph this is a bitset over the snapshot's dense node
+// indexes, built once per version; a mutable graph has no version to cache against, so there the profile is
+// asked per relaxed node instead of scanning every node before each search.
+public final class NodeRestrictions {
+    public static final NodeRestrictions NONE = new NodeRestrictions(null, null, null);
+
+    private final VehicleProfile profile;
+    private final GraphSnapshot snapshot;
+    private final BitSet restricted; // Dense snapshot index -> restricted; null for mutable graphs
+
+    private NodeRestrictions(VehicleProfile profile, GraphSnapshot snapshot, BitSet restricted) {
+        this.profile = profile;
+        this.snapshot = snapshot;
+        this.restricted = restricted;
+    }
+
+    static NodeRestrictions of(VehicleProfile profile) {
+        return new NodeRestrictions(profile, null, null);
+    }
+
+    static NodeRestrictions of(VehicleProfile profile, GraphSnapshot snapshot) {
+        BitSet restricted = new BitSet(snapshot.getNodeCount());
+        for (int index = 0; index < snapshot.getNodeCount(); index++) {
+            if (profile.restricts(snapshot.getNodeAt(index))) {
+                restricted.set(index);
+            }
+        }
+        return new NodeRestrictions(profile, snapshot, restricted);
+    }
+
+    public boolean isRestricted(Node node) {
+        if (profile == null) {
+            return false;
+        }
+        int index = node.getSnapshotIndex();
+        if (restricted != null && index >= 0 && index < snapshot.getNodeCount() && snapshot.getNodeAt(index) == node) {
+            return restricted.get(index); // Single bit test for nodes of this version
+        }
+        return profile.restricts(node);
+    }
+
+    // Number of restricted nodes in the snapshot, or -1 when the restrictions are checked per node
+    public int getRestrictedCount() {
+        return restricted == null ? (profile == null ? 0 : -1) : restricted.cardinality();
+    }
+}
@@ -1,25 +1,88 @@
 package net.mooctest;
+import java.util.ArrayList;
 import java.util.List;
 
 import java.util.List;
 
 public class PathResult {
     private List<Node> path;
+    private CompactRoute compactRoute; // Encoded form with precomputed totals
+    private Node start;                // With legs: the searched route, materialized into the same Node objects
+    private Edge[] legs;
+    private Graph graph;               // Otherwise resolves the compact route's node ids
 
     public PathResult(List<Node> path) {
         this.path = path;
     }
 
+    public PathResult(List<Node> path, CompactRoute compactRoute) {
+        this.path = path;
+        this.compactRoute = compactRoute;
+    }
+
+    // Result of a search: the route is encoded from the edges driven, and getPath() builds the node list from
+    // the searched start node and those edges on first use, so no graph lookup is needed
+    public static PathResult fromLegs(Node start, Edge[] legs, Vehicle vehicle) {
+        PathResult result = new PathResult(null, CompactRoute.encode(start, legs, vehicle));
+        result.start = start;
+        result.legs = legs;
+        return result;
+    }
+
+    // Keeps only the encoded route and looks its node ids up on the first getPath() call. Meant for decoded
+    // routes and immutable snapshot graphs, whose nodes cannot be replaced in the meantime.
+    public static PathResult fromCompact(CompactRoute compactRoute, Graph graph) {
+        PathResult result = new PathResult(null, compactRoute);
+        result.graph = graph;
+        return result;
+    }
+
     public List<Node> getPath() {
+        if (path == null) {
+            path = materialize();
+        }
         return path;
     }
 
+    public boolean isMaterialized() {
+        return path != null;
+    }
+
+    // Encoded route; computed without vehicle data if the search did not provide one
+    public CompactRoute getCompactRoute() {
+        if (compactRoute == null) {
+            compactRoute = CompactRoute.encode(path, null);
+        }
+        return compactRoute;
+    }
+
     public void printPath() {
-        for (Node node : path) {
+        for (Node node : getPath()) {
             System.out.print(node.getNodeId() + " -> ");
         }
         System.out.println("End");
     }
-}
-
 
+    private List<Node> materialize() {
+        if (legs != null) {
+            List<Node> nodes = new ArrayList<>(legs.length + 1);
+            nodes.add(start);
+            for (Edge leg : legs) {
+                nodes.add(leg.getNeighbor());
+            }
+            start = null;
+            legs = null;
+            return nodes;
+        }
+        int[] nodeIds = compactRoute.getNodeIds();
+        List<Node> nodes = new ArrayList<>(nodeIds.length);
+        for (int nodeId : nodeIds) {
+            Node node = graph.getNode(nodeId);
+            if (node == null) {
+                throw new IllegalStateException("Node " + nodeId + " of the encoded route is not in the graph");
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+}
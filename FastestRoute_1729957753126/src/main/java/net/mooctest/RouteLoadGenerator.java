@@ -0,0 +1,119 @@
+package net.mooctest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for RouteQueryServer. Each connection keeps up to pipelineDepth requests in flight and
+// records the round-trip latency of every response, giving throughput and latency percentiles for a run.
+public class RouteLoadGenerator {
+    private String host;
+    private int port;
+    private int connections;
+    private int pipelineDepth;
+    private int requestsPerConnection;
+    private int[] nodeIds;
+    private long seed;
+
+    public RouteLoadGenerator(String host, int port, int connections, int pipelineDepth,
+                              int requestsPerConnection, int[] nodeIds, long seed) {
+        this.host = host;
+        this.port = port;
+        this.connections = connections;
+        this.pipelineDepth = Math.max(1, pipelineDepth);
+        this.requestsPerConnection = requestsPerConnection;
+        this.nodeIds = nodeIds;
+        this.seed = seed;
+    }
+
+    public LoadReport run() throws InterruptedException {
+        final LockFreeHistogram latency = new LockFreeHistogram();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong noPath = new AtomicLong();
+        final List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            final Random random = new Random(seed + c);
+            Thread thread = new Thread(() -> {
+                try {
+                    runConnection(random, latency, completed, noPath);
+                } catch (IOException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }, "route-load-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Load generator connection failed", failures.get(0));
+        }
+        return new LoadReport(completed.get(), noPath.get(), elapsed, latency.snapshot());
+    }
+
+    private void runConnection(Random random, LockFreeHistogram latency, AtomicLong completed, AtomicLong noPath)
+            throws IOException {
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            channel.socket().setTcpNoDelay(true);
+            long[] sentAt = new long[requestsPerConnection];
+            ByteBuffer request = ByteBuffer.allocate(4 + RouteQueryProtocol.REQUEST_BODY_SIZE);
+            ByteBuffer header = ByteBuffer.allocate(4);
+            int sent = 0;
+            int received = 0;
+            while (received < requestsPerConnection) {
+                while (sent < requestsPerConnection && sent - received < pipelineDepth) {
+                    RouteQuery query = new RouteQuery(nodeIds[random.nextInt(nodeIds.length)],
+                            nodeIds[random.nextInt(nodeIds.length)], VehicleProfile.STANDARD);
+                    request.clear();
+                    RouteQueryProtocol.writeRequest(request, sent, query);
+                    request.flip();
+                    sentAt[sent] = System.nanoTime();
+                    writeFully(channel, request);
+                    sent++;
+                }
+                header.clear();
+                readFully(channel, header);
+                header.flip();
+                ByteBuffer body = ByteBuffer.allocate(header.getInt());
+                readFully(channel, body);
+                body.flip();
+                int requestId = (int) body.getLong();
+                byte status = body.get();
+                latency.record(System.nanoTime() - sentAt[requestId]);
+                if (status == RouteQueryProtocol.STATUS_OK) {
+                    CompactRoute.readFrom(body);
+                } else if (status == RouteQueryProtocol.STATUS_NO_PATH) {
+                    noPath.incrementAndGet();
+                }
+                completed.incrementAndGet();
+                received++;
+            }
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+}
@@ -8,7 +8,7 @@ public class RouteOptimizer {
     }
 
     public PathResult optimizeRoute() {
-        return searchAlgorithm.findPath();
+        return searchAlgorithm.search();
     }
 }
 
@@ -0,0 +1,26 @@
+package net.mooctest;
+
+// Point-to-point query handled by the BatchRoutePlanner
+public class RouteQuery {
+    private int sourceId;
+    private int targetId;
+    private VehicleProfile profile;
+
+    public RouteQuery(int sourceId, int targetId, VehicleProfile profile) {
+        this.sourceId = sourceId;
+        this.targetId = targetId;
+        this.profile = profile;
+    }
+
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    public int getTargetId() {
+        return targetId;
+    }
+
+    public VehicleProfile getProfile() {
+        return profile;
+    }
+}
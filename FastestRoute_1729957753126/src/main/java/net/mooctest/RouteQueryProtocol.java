@@ -0,0 +1,75 @@
+package net.mooctest;
+
+import java.nio.ByteBuffer;
+
+// Length-prefixed binary frames of the route query service. Every frame is an int body length followed by
+// the body. Request body: long requestId, int sourceId, int targetId, byte profile.
+// Response body: long requestId, byte status, then the CompactRoute when the status is OK.
+// Requests carry their own id, so a client may pipeline many of them on one connection.
+// Requests carry no departure time or fuel state, so answers ignore node opening hours and fuel limits;
+// a route from this service is the best open-network route, not a timetable or range check.
+public class RouteQueryProtocol {
+    public static final int REQUEST_BODY_SIZE = 8 + 4 + 4 + 1;
+
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_NO_PATH = 1;
+    public static final byte STATUS_BAD_REQUEST = 2;
+    public static final byte STATUS_ERROR = 3;
+
+    private static final VehicleProfile[] PROFILES = {
+            VehicleProfile.STANDARD, VehicleProfile.HEAVY, VehicleProfile.TOLL_FREE, VehicleProfile.EMERGENCY
+    };
+
+    private RouteQueryProtocol() {
+    }
+
+    public static byte profileCode(VehicleProfile profile) {
+        for (int i = 0; i < PROFILES.length; i++) {
+            if (PROFILES[i].getName().equals(profile.getName())) {
+                return (byte) i;
+            }
+        }
+        throw new IllegalArgumentException("Profile " + profile.getName() + " has no wire code");
+    }
+
+    // Null for unknown codes
+    public static VehicleProfile profileOf(byte code) {
+        return code >= 0 && code < PROFILES.length ? PROFILES[code] : null;
+    }
+
+    public static void writeRequest(ByteBuffer buffer, long requestId, RouteQuery query) {
+        buffer.putInt(REQUEST_BODY_SIZE);
+        buffer.putLong(requestId);
+        buffer.putInt(query.getSourceId());
+        buffer.putInt(query.getTargetId());
+        buffer.put(profileCode(query.getProfile()));
+    }
+
+    public static ByteBuffer encodeResponse(long requestId, byte status, PathResult result) {
+        CompactRoute route = status == STATUS_OK ? result.getCompactRoute() : null;
+        int bodySize = 8 + 1 + (route != null ? route.encodedSize() : 0);
+        ByteBuffer buffer = ByteBuffer.allocate(4 + bodySize);
+        buffer.putInt(bodySize);
+        buffer.putLong(requestId);
+        buffer.put(status);
+        if (route != null) {
+            route.writeTo(buffer);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Size of the next complete request frame in the buffer (in read mode), or -1 if it has not fully
+    // arrived. The length is checked as soon as the header is readable: a frame that can never fit the
+    // reader's buffer would otherwise leave the connection waiting forever.
+    public static int completeRequestSize(ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return -1;
+        }
+        int bodySize = buffer.getInt(buffer.position());
+        if (bodySize != REQUEST_BODY_SIZE) {
+            throw new IllegalStateException("Unexpected request size " + bodySize);
+        }
+        return buffer.remaining() >= 4 + bodySize ? 4 + bodySize : -1;
+    }
+}
@@ -0,0 +1,256 @@
+package net.mooctest;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Non-blocking route query server. One selector thread accepts connections, reads pipelined request frames
+// and writes responses. All requests read in one selector round are micro-batched (up to maxBatchSize) and
+// handed to the BatchRoutePlanner on a worker pool, so searches never run on the selector thread.
+public class RouteQueryServer {
+    private BatchRoutePlanner planner;
+    private int requestedPort;
+    private int maxBatchSize;
+    private ExecutorService workers;
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    private volatile boolean running;
+    private final Queue<Connection> writeReady = new ConcurrentLinkedQueue<>();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+
+    public RouteQueryServer(BatchRoutePlanner planner, int port, int workerThreads, int maxBatchSize) {
+        this.planner = planner;
+        this.requestedPort = port;
+        this.maxBatchSize = maxBatchSize;
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "route-query-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Binds to the loopback interface; port 0 picks a free port
+    public synchronized void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", requestedPort));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "route-query-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            selectorThread.join();
+        }
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getQueryCount() {
+        return queries.get();
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                List<PendingQuery> batch = new ArrayList<>();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key, batch);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write((Connection) key.attachment());
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        close(key); // Broken connection or malformed frame
+                    }
+                }
+                dispatch(batch);
+                Connection connection;
+                while ((connection = writeReady.poll()) != null) {
+                    try {
+                        write(connection);
+                    } catch (IOException e) {
+                        close(connection.key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Route query selector failed", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private void read(SelectionKey key, List<PendingQuery> batch) throws IOException {
+        Connection connection = (Connection) key.attachment();
+        int read = connection.channel.read(connection.readBuffer);
+        if (read < 0) {
+            close(key);
+            return;
+        }
+        connection.readBuffer.flip();
+        while (RouteQueryProtocol.completeRequestSize(connection.readBuffer) > 0) {
+            connection.readBuffer.getInt();
+            long requestId = connection.readBuffer.getLong();
+            int sourceId = connection.readBuffer.getInt();
+            int targetId = connection.readBuffer.getInt();
+            VehicleProfile profile = RouteQueryProtocol.profileOf(connection.readBuffer.get());
+            if (profile == null) {
+                connection.enqueue(RouteQueryProtocol.encodeResponse(requestId, RouteQueryProtocol.STATUS_BAD_REQUEST, null));
+                writeReady.add(connection);
+                continue;
+            }
+            batch.add(new PendingQuery(connection, requestId, new RouteQuery(sourceId, targetId, profile)));
+        }
+        connection.readBuffer.compact();
+    }
+
+    private void dispatch(List<PendingQuery> pending) {
+        for (int from = 0; from < pending.size(); from += maxBatchSize) {
+            final List<PendingQuery> batch = new ArrayList<>(pending.subList(from, Math.min(pending.size(), from + maxBatchSize)));
+            batches.incrementAndGet();
+            queries.addAndGet(batch.size());
+            workers.execute(() -> answer(batch));
+        }
+    }
+
+    private void answer(List<PendingQuery> batch) {
+        List<RouteQuery> routeQueries = new ArrayList<>(batch.size());
+        for (PendingQuery pending : batch) {
+            routeQueries.add(pending.query);
+        }
+        List<PathResult> results = null;
+        try {
+            results = planner.plan(routeQueries);
+        } catch (RuntimeException e) {
+            // Every query of a failed batch is still answered, so no client waits for a lost response
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            PendingQuery pending = batch.get(i);
+            PathResult result = results != null ? results.get(i) : null;
+            byte status = results == null ? RouteQueryProtocol.STATUS_ERROR
+                    : result != null ? RouteQueryProtocol.STATUS_OK : RouteQueryProtocol.STATUS_NO_PATH;
+            pending.connection.enqueue(RouteQueryProtocol.encodeResponse(pending.requestId, status, result));
+            writeReady.add(pending.connection);
+        }
+        selector.wakeup();
+    }
+
+    private void write(Connection connection) throws IOException {
+        if (!connection.key.isValid()) {
+            return;
+        }
+        ByteBuffer buffer;
+        while ((buffer = connection.writes.peek()) != null) {
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE); // Socket buffer is full
+                return;
+            }
+            connection.writes.poll();
+        }
+        connection.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private static class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(64 * 1024);
+        private final Queue<ByteBuffer> writes = new ConcurrentLinkedQueue<>();
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void enqueue(ByteBuffer response) {
+            writes.add(response);
+        }
+    }
+
+    private static class PendingQuery {
+        private final Connection connection;
+        private final long requestId;
+        private final RouteQuery query;
+
+        PendingQuery(Connection connection, long requestId, RouteQuery query) {
+            this.connection = connection;
+            this.requestId = requestId;
+            this.query = query;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// One partition of the graph. Answers intra-shard distance and path requests and publishes the
+// distance table between its boundary nodes, which the coordinator stitches into an overlay graph.
+public class RouteShard {
+    private int shardId;
+    private Map<Integer, Node> nodes = new HashMap<>();
+    private Map<Integer, List<Edge>> forward = new HashMap<>(); // Intra-shard edges
+    private Map<Integer, List<Edge>> reverse = new HashMap<>(); // Same edges, pointing back to their source
+    private List<Integer> cutFrom = new ArrayList<>();
+    private List<Integer> cutTo = new ArrayList<>();
+    private List<Double> cutDistances = new ArrayList<>();
+    private int[] boundaryIds;
+    private double[] boundaryTable; // boundaryTable[i * n + j] = distance from boundaryIds[i] to boundaryIds[j]
+
+    public RouteShard(int shardId, Graph graph, GraphPartition partition) {
+        this.shardId = shardId;
+        for (Integer nodeId : partition.getNodes(shardId)) {
+            Node node = graph.getNode(nodeId);
+            nodes.put(nodeId, node);
+            forward.put(nodeId, new ArrayList<Edge>());
+            reverse.put(nodeId, new ArrayList<Edge>());
+        }
+        for (Node node : nodes.values()) {
+            for (Edge edge : node.getNeighbors()) {
+                int toId = edge.getNeighbor().getNodeId();
+                if (nodes.containsKey(toId)) {
+                    forward.get(node.getNodeId()).add(edge);
+                    reverse.get(toId).add(new Edge(node, edge.getDistance()));
+                } else {
+                    cutFrom.add(node.getNodeId());
+                    cutTo.add(toId);
+                    cutDistances.add(edge.getDistance());
+                }
+            }
+        }
+        boundaryIds = new int[partition.getBoundaryNodes(shardId).size()];
+        int i = 0;
+        for (Integer nodeId : partition.getBoundaryNodes(shardId)) {
+            boundaryIds[i++] = nodeId;
+        }
+        Arrays.sort(boundaryIds);
+        boundaryTable = new double[boundaryIds.length * boundaryIds.length];
+        for (i = 0; i < boundaryIds.length; i++) {
+            Map<Integer, Double> distances = search(boundaryIds[i], forward, null);
+            for (int j = 0; j < boundaryIds.length; j++) {
+                boundaryTable[i * boundaryIds.length + j] = distanceOrInfinity(distances, boundaryIds[j]);
+            }
+        }
+    }
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public ShardResponse handle(ShardRequest request) {
+        switch (request.getType()) {
+            case BOUNDARY_TABLE:
+                return boundaryTableResponse();
+            case DISTANCES_FROM:
+                return ShardResponse.ofDistances(distances(request.getNodeId(), request.getNodeIds(), forward));
+            case DISTANCES_TO:
+                return ShardResponse.ofDistances(distances(request.getNodeId(), request.getNodeIds(), reverse));
+            case PATH:
+                return ShardResponse.ofPath(path(request.getNodeId(), request.getNodeIds()[0]));
+            default:
+                throw new IllegalArgumentException("Unsupported request " + request.getType());
+        }
+    }
+
+    private ShardResponse boundaryTableResponse() {
+        int[] from = new int[cutFrom.size()];
+        int[] to = new int[cutFrom.size()];
+        double[] distances = new double[cutFrom.size()];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = cutFrom.get(i);
+            to[i] = cutTo.get(i);
+            distances[i] = cutDistances.get(i);
+        }
+        return new ShardResponse(boundaryIds, boundaryTable, from, to, distances);
+    }
+
+    private double[] distances(int origin, int[] others, Map<Integer, List<Edge>> adjacency) {
+        double[] result = new double[others.length];
+        if (!nodes.containsKey(origin)) {
+            Arrays.fill(result, Double.POSITIVE_INFINITY);
+            return result;
+        }
+        Map<Integer, Double> distances = search(origin, adjacency, null);
+        for (int i = 0; i < others.length; i++) {
+            result[i] = distanceOrInfinity(distances, others[i]);
+        }
+        return result;
+    }
+
+    private int[] path(int sourceId, int targetId) {
+        if (!nodes.containsKey(sourceId) || !nodes.containsKey(targetId)) {
+            return new int[0];
+        }
+        Map<Integer, Integer> predecessors = new HashMap<>();
+        Map<Integer, Double> distances = search(sourceId, forward, predecessors);
+        if (!distances.containsKey(targetId)) {
+            return new int[0];
+        }
+        List<Integer> reversed = new ArrayList<>();
+        for (Integer current = targetId; current != null; current = predecessors.get(current)) {
+            reversed.add(current);
+        }
+        int[] path = new int[reversed.size()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = reversed.get(path.length - 1 - i);
+        }
+        return path;
+    }
+
+    // Plain Dijkstra over static edge distances, restricted to this shard
+    private Map<Integer, Double> search(int originId, Map<Integer, List<Edge>> adjacency,
+                                        Map<Integer, Integer> predecessors) {
+        PriorityQueue<PathNode> pq = new PriorityQueue<>(Comparator.comparingDouble(PathNode::getDistance));
+        Map<Integer, Double> distances = new HashMap<>();
+        distances.put(originId, 0.0);
+        pq.add(new PathNode(nodes.get(originId), 0));
+        while (!pq.isEmpty()) {
+            PathNode current = pq.poll();
+            int currentId = current.getNode().getNodeId();
+            if (current.getDistance() > distances.get(currentId)) {
+                continue; // Stale queue entry
+            }
+            for (Edge edge : adjacency.get(currentId)) {
+                int neighborId = edge.getNeighbor().getNodeId();
+                double newDistance = current.getDistance() + edge.getDistance();
+                Double known = distances.get(neighborId);
+                if (known == null || newDistance < known) {
+                    distances.put(neighborId, newDistance);
+                    if (predecessors != null) {
+                        predecessors.put(neighborId, currentId);
+                    }
+                    pq.add(new PathNode(edge.getNeighbor(), newDistance));
+                }
+            }
+        }
+        return distances;
+    }
+
+    private static double distanceOrInfinity(Map<Integer, Double> distances, int nodeId) {
+        Double distance = distances.get(nodeId);
+        return distance != null ? distance : Double.POSITIVE_INFINITY;
+    }
+}
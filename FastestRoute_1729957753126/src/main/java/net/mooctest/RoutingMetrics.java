@@ -0,0 +1,80 @@
+package net.mooctest;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Registry of routing histograms and counters, named "<algorithm>.<metric>"
+public class RoutingMetrics {
+    private final Map<String, LockFreeHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, AlgorithmMetrics> algorithms = new ConcurrentHashMap<>(); // Resolved once per algorithm
+
+    public LockFreeHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LockFreeHistogram());
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    // Aggregates one finished query
+    public void record(String algorithm, SearchStats stats, boolean pathFound) {
+        AlgorithmMetrics metrics = algorithms.computeIfAbsent(algorithm, AlgorithmMetrics::new);
+        metrics.wallTimeNanos.record(stats.getWallTimeNanos());
+        metrics.settledNodes.record(stats.getSettledNodes());
+        metrics.relaxedEdges.record(stats.getRelaxedEdges());
+        metrics.heapPushes.record(stats.getHeapPushes());
+        metrics.heapPops.record(stats.getHeapPops());
+        metrics.queries.increment();
+        if (!pathFound) {
+            metrics.noPath.increment();
+        }
+        metrics.rejectedClosed.add(stats.getRejectedClosed());
+        metrics.rejectedHighRisk.add(stats.getRejectedHighRisk());
+        metrics.rejectedFuel.add(stats.getRejectedFuel());
+        metrics.rejectedRestricted.add(stats.getRejectedRestricted());
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<String, HistogramSnapshot> histogramSnapshots = new TreeMap<>();
+        for (Map.Entry<String, LockFreeHistogram> entry : histograms.entrySet()) {
+            histogramSnapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        Map<String, Long> counterValues = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            counterValues.put(entry.getKey(), entry.getValue().sum());
+        }
+        return new MetricsSnapshot(histogramSnapshots, counterValues);
+    }
+
+    // An algorithm's registered histograms and counters, so recording a query builds no metric names
+    private class AlgorithmMetrics {
+        final LockFreeHistogram wallTimeNanos;
+        final LockFreeHistogram settledNodes;
+        final LockFreeHistogram relaxedEdges;
+        final LockFreeHistogram heapPushes;
+        final LockFreeHistogram heapPops;
+        final LongAdder queries;
+        final LongAdder noPath;
+        final LongAdder rejectedClosed;
+        final LongAdder rejectedHighRisk;
+        final LongAdder rejectedFuel;
+        final LongAdder rejectedRestricted;
+
+        AlgorithmMetrics(String algorithm) {
+            wallTimeNanos = histogram(algorithm + ".wallTimeNanos");
+            settledNodes = histogram(algorithm + ".settledNodes");
+            relaxedEdges = histogram(algorithm + ".relaxedEdges");
+            heapPushes = histogram(algorithm + ".heapPushes");
+            heapPops = histogram(algorithm + ".heapPops");
+            queries = counter(algorithm + ".queries");
+            noPath = counter(algorithm + ".noPath");
+            rejectedClosed = counter(algorithm + ".rejectedClosed");
+            rejectedHighRisk = counter(algorithm + ".rejectedHighRisk");
+            rejectedFuel = counter(algorithm + ".rejectedFuel");
+            rejectedRestricted = counter(algorithm + ".rejectedRestricted");
+        }
+    }
+}
@@ -1,4 +1,7 @@
 package net.mooctest;
+
+import java.util.Map;
+
 public abstract class SearchAlgorithm {
     protected Graph graph;
     protected Node startNode;
@@ -7,6 +10,9 @@ public abstract class SearchAlgorithm {
     protected TrafficCondition trafficCondition;
     protected WeatherCondition weatherCondition;
     protected int currentTime; // Current time, may affect road segment opening and closing
+    protected NodeRestrictions restrictedNodes; // Nodes the vehicle's profile may not enter; resolved on first use
+    protected SearchStats stats = new SearchStats(); // Counters of the last search
+    private RoutingMetrics metrics; // Null while instrumentation is disabled
 
     public SearchAlgorithm(Graph graph, Node startNode, Node endNode, Vehicle vehicle,
                            TrafficCondition trafficCondition, WeatherCondition weatherCondition, int currentTime) {
@@ -20,6 +26,55 @@ public abstract class SearchAlgorithm {
     }
 
     public abstract PathResult findPath();
-}
 
+    // Runs findPath with fresh counters; with metrics attached it also measures wall time and records the query
+    public PathResult search() {
+        stats.reset();
+        if (metrics == null) {
+            return findPath();
+        }
+        long start = System.nanoTime();
+        PathResult result = findPath();
+        stats.setWallTimeNanos(System.nanoTime() - start);
+        metrics.record(getClass().getSimpleName(), stats, result != null);
+        return result;
+    }
+
+    public void setMetrics(RoutingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public SearchStats getStats() {
+        return stats;
+    }
+
+    // Result of the route ending at endNode, encoded straight from the predecessor links with the edge each
+    // node was reached by. No List<Node> is built; getPath() builds it from the same edges if a caller needs it.
+    protected PathResult compactResult(Map<Node, Node> predecessors, Map<Node, Edge> arrivalEdges) {
+        int legCount = 0;
+        Node start = endNode;
+        for (Node previous = predecessors.get(start); previous != null; previous = predecessors.get(start)) {
+            start = previous;
+            legCount++;
+        }
+        Edge[] legs = new Edge[legCount];
+        Node current = endNode;
+        for (int i = legCount - 1; i >= 0; i--) {
+            legs[i] = arrivalEdges.get(current);
+            current = predecessors.get(current);
+        }
+        return PathResult.fromLegs(start, legs, vehicle);
+    }
 
+    // Single bit test per relaxed edge on snapshots
+    protected final boolean isRestricted(Node node) {
+        if (restrictedNodes == null) {
+            restrictedNodes = VehicleProfileRegistry.getDefault().getRestrictions(graph, vehicle);
+        }
+        if (restrictedNodes.isRestricted(node)) {
+            stats.rejectedRestricted();
+            return true;
+        }
+        return false;
+    }
+}
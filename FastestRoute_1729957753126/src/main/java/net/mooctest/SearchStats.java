@@ -0,0 +1,98 @@
+package net.mooctest;
+
+// Per-query search counters. Each search owns its instance, so the counters are plain fields.
+public class SearchStats {
+    private long settledNodes;
+    private long relaxedEdges;
+    private long heapPushes;
+    private long heapPops;
+    private long rejectedClosed;     // Road closed at the visit time
+    private long rejectedHighRisk;   // High-risk area avoided
+    private long rejectedFuel;       // Not enough fuel and no station to refuel
+    private long rejectedRestricted; // Forbidden by the vehicle profile
+    private long wallTimeNanos;      // Only measured when metrics are attached
+
+    void reset() {
+        settledNodes = 0;
+        relaxedEdges = 0;
+        heapPushes = 0;
+        heapPops = 0;
+        rejectedClosed = 0;
+        rejectedHighRisk = 0;
+        rejectedFuel = 0;
+        rejectedRestricted = 0;
+        wallTimeNanos = 0;
+    }
+
+    void settled() {
+        settledNodes++;
+    }
+
+    void relaxed() {
+        relaxedEdges++;
+    }
+
+    void pushed() {
+        heapPushes++;
+    }
+
+    void popped() {
+        heapPops++;
+    }
+
+    void rejectedClosed() {
+        rejectedClosed++;
+    }
+
+    void rejectedHighRisk() {
+        rejectedHighRisk++;
+    }
+
+    void rejectedFuel() {
+        rejectedFuel++;
+    }
+
+    void rejectedRestricted() {
+        rejectedRestricted++;
+    }
+
+    void setWallTimeNanos(long wallTimeNanos) {
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public long getSettledNodes() {
+        return settledNodes;
+    }
+
+    public long getRelaxedEdges() {
+        return relaxedEdges;
+    }
+
+    public long getHeapPushes() {
+        return heapPushes;
+    }
+
+    public long getHeapPops() {
+        return heapPops;
+    }
+
+    public long getRejectedClosed() {
+        return rejectedClosed;
+    }
+
+    public long getRejectedHighRisk() {
+        return rejectedHighRisk;
+    }
+
+    public long getRejectedFuel() {
+        return rejectedFuel;
+    }
+
+    public long getRejectedRestricted() {
+        return rejectedRestricted;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+}
@@ -0,0 +1,67 @@
+package net.mooctest;
+
+import java.nio.ByteBuffer;
+
+// Message sent from the coordinator to a shard; encodes to a ByteBuffer for remote transports
+public class ShardRequest {
+    private ShardRequestType type;
+    private int nodeId;    // Source (DISTANCES_FROM, PATH) or target (DISTANCES_TO) node
+    private int[] nodeIds; // Other endpoints; PATH carries the target as its only element
+
+    public ShardRequest(ShardRequestType type, int nodeId, int[] nodeIds) {
+        this.type = type;
+        this.nodeId = nodeId;
+        this.nodeIds = nodeIds;
+    }
+
+    public static ShardRequest boundaryTable() {
+        return new ShardRequest(ShardRequestType.BOUNDARY_TABLE, -1, new int[0]);
+    }
+
+    public static ShardRequest distancesFrom(int sourceId, int[] targetIds) {
+        return new ShardRequest(ShardRequestType.DISTANCES_FROM, sourceId, targetIds);
+    }
+
+    public static ShardRequest distancesTo(int targetId, int[] sourceIds) {
+        return new ShardRequest(ShardRequestType.DISTANCES_TO, targetId, sourceIds);
+    }
+
+    public static ShardRequest path(int sourceId, int targetId) {
+        return new ShardRequest(ShardRequestType.PATH, sourceId, new int[]{targetId});
+    }
+
+    public ShardRequestType getType() {
+        return type;
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public int[] getNodeIds() {
+        return nodeIds;
+    }
+
+    public int encodedSize() {
+        return 1 + 4 + 4 + 4 * nodeIds.length;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        buffer.putInt(nodeId);
+        buffer.putInt(nodeIds.length);
+        for (int id : nodeIds) {
+            buffer.putInt(id);
+        }
+    }
+
+    public static ShardRequest readFrom(ByteBuffer buffer) {
+        ShardRequestType type = ShardRequestType.values()[buffer.get()];
+        int nodeId = buffer.getInt();
+        int[] nodeIds = new int[buffer.getInt()];
+        for (int i = 0; i < nodeIds.length; i++) {
+            nodeIds[i] = buffer.getInt();
+        }
+        return new ShardRequest(type, nodeId, nodeIds);
+    }
+}
@@ -0,0 +1,8 @@
+package net.mooctest;
+
+public enum ShardRequestType {
+    BOUNDARY_TABLE, // Boundary nodes, their intra-shard distance table and outgoing cut edges
+    DISTANCES_FROM, // Distances from one node to a set of nodes inside the shard
+    DISTANCES_TO,   // Distances from a set of nodes to one node inside the shard
+    PATH            // Node sequence of the shortest intra-shard path between two nodes
+}
@@ -0,0 +1,93 @@
+package net.mooctest;
+
+import java.nio.ByteBuffer;
+
+// Answer of a shard. Distances are Double.POSITIVE_INFINITY for unreachable nodes.
+public class ShardResponse {
+    private static final int[] NO_IDS = new int[0];
+    private static final double[] NO_DISTANCES = new double[0];
+
+    private int[] nodeIds;        // Boundary nodes (BOUNDARY_TABLE) or path nodes (PATH)
+    private double[] distances;   // Row-major boundary table, or one distance per requested node
+    private int[] cutFrom;        // Outgoing cut edges (BOUNDARY_TABLE only)
+    private int[] cutTo;
+    private double[] cutDistances;
+
+    public ShardResponse(int[] nodeIds, double[] distances, int[] cutFrom, int[] cutTo, double[] cutDistances) {
+        this.nodeIds = nodeIds;
+        this.distances = distances;
+        this.cutFrom = cutFrom;
+        this.cutTo = cutTo;
+        this.cutDistances = cutDistances;
+    }
+
+    public static ShardResponse ofDistances(double[] distances) {
+        return new ShardResponse(NO_IDS, distances, NO_IDS, NO_IDS, NO_DISTANCES);
+    }
+
+    public static ShardResponse ofPath(int[] nodeIds) {
+        return new ShardResponse(nodeIds, NO_DISTANCES, NO_IDS, NO_IDS, NO_DISTANCES);
+    }
+
+    public int[] getNodeIds() {
+        return nodeIds;
+    }
+
+    public double[] getDistances() {
+        return distances;
+    }
+
+    public int[] getCutFrom() {
+        return cutFrom;
+    }
+
+    public int[] getCutTo() {
+        return cutTo;
+    }
+
+    public double[] getCutDistances() {
+        return cutDistances;
+    }
+
+    public int encodedSize() {
+        return 4 * 3 + 4 * nodeIds.length + 8 * distances.length + 16 * cutFrom.length;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(nodeIds.length);
+        for (int id : nodeIds) {
+            buffer.putInt(id);
+        }
+        buffer.putInt(distances.length);
+        for (double distance : distances) {
+            buffer.putDouble(distance);
+        }
+        buffer.putInt(cutFrom.length);
+        for (int i = 0; i < cutFrom.length; i++) {
+            buffer.putInt(cutFrom[i]);
+            buffer.putInt(cutTo[i]);
+            buffer.putDouble(cutDistances[i]);
+        }
+    }
+
+    public static ShardResponse readFrom(ByteBuffer buffer) {
+        int[] nodeIds = new int[buffer.getInt()];
+        for (int i = 0; i < nodeIds.length; i++) {
+            nodeIds[i] = buffer.getInt();
+        }
+        double[] distances = new double[buffer.getInt()];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = buffer.getDouble();
+        }
+        int cutCount = buffer.getInt();
+        int[] cutFrom = new int[cutCount];
+        int[] cutTo = new int[cutCount];
+        double[] cutDistances = new double[cutCount];
+        for (int i = 0; i < cutCount; i++) {
+            cutFrom[i] = buffer.getInt();
+            cutTo[i] = buffer.getInt();
+            cutDistances[i] = buffer.getDouble();
+        }
+        return new ShardResponse(nodeIds, distances, cutFrom, cutTo, cutDistances);
+    }
+}
@@ -0,0 +1,6 @@
+package net.mooctest;
+
+// Delivers coordinator requests to shards; implementations may be in-process or remote
+public interface ShardTransport {
+    ShardResponse send(int shardId, ShardRequest request);
+}
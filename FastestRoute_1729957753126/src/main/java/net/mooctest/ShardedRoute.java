@@ -0,0 +1,32 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Route answered by the sharded coordinator, as node ids since the coordinator holds no Node objects
+public class ShardedRoute {
+    private double distance;
+    private int[] nodeIds;
+
+    public ShardedRoute(double distance, int[] nodeIds) {
+        this.distance = distance;
+        this.nodeIds = nodeIds;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public int[] getNodeIds() {
+        return nodeIds;
+    }
+
+    // Resolves the node ids against a local graph view
+    public PathResult toPathResult(Graph graph) {
+        List<Node> path = new ArrayList<>();
+        for (int nodeId : nodeIds) {
+            path.add(graph.getNode(nodeId));
+        }
+        return new PathResult(path);
+    }
+}
@@ -0,0 +1,190 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Answers point-to-point queries over a partitioned graph. Shards only expose boundary distance
+// tables; the coordinator runs Dijkstra on the overlay of boundary nodes (table arcs plus cut edges)
+// and asks the shards for the intra-shard segments of the winning route.
+public class ShardedRouteCoordinator {
+    private static final int CUT_EDGE = -1;
+
+    private GraphPartition partition;
+    private ShardTransport transport;
+    private Map<Integer, int[]> boundaryByShard = new HashMap<>();
+    private Map<Integer, List<OverlayArc>> overlay = new HashMap<>(); // Boundary node id -> outgoing arcs
+
+    public ShardedRouteCoordinator(GraphPartition partition, ShardTransport transport) {
+        this.partition = partition;
+        this.transport = transport;
+        loadBoundaryTables();
+    }
+
+    // Fetches every shard's boundary table and cut edges and rebuilds the overlay graph
+    public void loadBoundaryTables() {
+        boundaryByShard.clear();
+        overlay.clear();
+        for (int shard = 0; shard < partition.getShardCount(); shard++) {
+            ShardResponse table = transport.send(shard, ShardRequest.boundaryTable());
+            int[] boundary = table.getNodeIds();
+            boundaryByShard.put(shard, boundary);
+            for (int i = 0; i < boundary.length; i++) {
+                List<OverlayArc> arcs = arcsOf(boundary[i]);
+                for (int j = 0; j < boundary.length; j++) {
+                    double distance = table.getDistances()[i * boundary.length + j];
+                    if (i != j && distance != Double.POSITIVE_INFINITY) {
+                        arcs.add(new OverlayArc(boundary[j], distance, shard));
+                    }
+                }
+            }
+            for (int i = 0; i < table.getCutFrom().length; i++) {
+                arcsOf(table.getCutFrom()[i]).add(new OverlayArc(table.getCutTo()[i], table.getCutDistances()[i], CUT_EDGE));
+            }
+        }
+    }
+
+    private List<OverlayArc> arcsOf(int nodeId) {
+        List<OverlayArc> arcs = overlay.get(nodeId);
+        if (arcs == null) {
+            arcs = new ArrayList<>();
+            overlay.put(nodeId, arcs);
+        }
+        return arcs;
+    }
+
+    // Shortest route between two nodes, or null if the target cannot be reached
+    public ShardedRoute findRoute(int sourceId, int targetId) {
+        int sourceShard = partition.getShard(sourceId);
+        int targetShard = partition.getShard(targetId);
+        boolean sameShard = sourceShard == targetShard;
+
+        int[] sourceBoundary = boundaryByShard.get(sourceShard);
+        int[] requested = sourceBoundary;
+        if (sameShard) {
+            requested = new int[sourceBoundary.length + 1];
+            System.arraycopy(sourceBoundary, 0, requested, 0, sourceBoundary.length);
+            requested[sourceBoundary.length] = targetId;
+        }
+        double[] fromSource = transport.send(sourceShard, ShardRequest.distancesFrom(sourceId, requested)).getDistances();
+        int[] targetBoundary = boundaryByShard.get(targetShard);
+        double[] toTargetValues = transport.send(targetShard, ShardRequest.distancesTo(targetId, targetBoundary)).getDistances();
+        Map<Integer, Double> toTarget = new HashMap<>();
+        for (int i = 0; i < targetBoundary.length; i++) {
+            toTarget.put(targetBoundary[i], toTargetValues[i]);
+        }
+
+        double best = sameShard ? fromSource[sourceBoundary.length] : Double.POSITIVE_INFINITY;
+        Integer bestExit = null; // Boundary node of the target shard on the best route, null for a direct route
+        Map<Integer, Double> distances = new HashMap<>();
+        Map<Integer, OverlayArc> arrivedBy = new HashMap<>();
+        Map<Integer, Integer> predecessors = new HashMap<>();
+        PriorityQueue<double[]> pq = new PriorityQueue<>(Comparator.comparingDouble((double[] entry) -> entry[0]));
+        for (int i = 0; i < sourceBoundary.length; i++) {
+            if (fromSource[i] != Double.POSITIVE_INFINITY) {
+                distances.put(sourceBoundary[i], fromSource[i]);
+                pq.add(new double[]{fromSource[i], sourceBoundary[i]});
+            }
+        }
+
+        while (!pq.isEmpty()) {
+            double[] entry = pq.poll();
+            double distance = entry[0];
+            int nodeId = (int) entry[1];
+            if (distance >= best) {
+                break;
+            }
+            if (distance > distances.get(nodeId)) {
+                continue; // Stale queue entry
+            }
+            Double exit = toTarget.get(nodeId);
+            if (exit != null && distance + exit < best) {
+                best = distance + exit;
+                bestExit = nodeId;
+            }
+            List<OverlayArc> arcs = overlay.get(nodeId);
+            if (arcs == null) {
+                continue;
+            }
+            for (OverlayArc arc : arcs) {
+                double newDistance = distance + arc.distance;
+                Double known = distances.get(arc.target);
+                if (known == null || newDistance < known) {
+                    distances.put(arc.target, newDistance);
+                    arrivedBy.put(arc.target, arc);
+                    predecessors.put(arc.target, nodeId);
+                    pq.add(new double[]{newDistance, arc.target});
+                }
+            }
+        }
+
+        if (best == Double.POSITIVE_INFINITY) {
+            return null;
+        }
+        List<Integer> path = new ArrayList<>();
+        if (bestExit == null) {
+            appendSegment(path, sourceShard, sourceId, targetId);
+            return new ShardedRoute(best, toArray(path));
+        }
+
+        List<Integer> overlayPath = new ArrayList<>();
+        for (Integer current = bestExit; current != null; current = predecessors.get(current)) {
+            overlayPath.add(current);
+        }
+        Collections.reverse(overlayPath);
+
+        appendSegment(path, sourceShard, sourceId, overlayPath.get(0));
+        for (int i = 1; i < overlayPath.size(); i++) {
+            int from = overlayPath.get(i - 1);
+            int to = overlayPath.get(i);
+            OverlayArc arc = arrivedBy.get(to);
+            if (arc.shard == CUT_EDGE) {
+                path.add(to);
+            } else {
+                appendSegment(path, arc.shard, from, to);
+            }
+        }
+        appendSegment(path, targetShard, bestExit, targetId);
+        return new ShardedRoute(best, toArray(path));
+    }
+
+    private void appendSegment(List<Integer> path, int shard, int fromId, int toId) {
+        if (fromId == toId) {
+            if (path.isEmpty()) {
+                path.add(fromId);
+            }
+            return;
+        }
+        int[] segment = transport.send(shard, ShardRequest.path(fromId, toId)).getNodeIds();
+        for (int i = 0; i < segment.length; i++) {
+            if (i == 0 && !path.isEmpty() && path.get(path.size() - 1) == segment[0]) {
+                continue; // Segment starts where the previous one ended
+            }
+            path.add(segment[i]);
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    private static class OverlayArc {
+        private final int target;
+        private final double distance;
+        private final int shard; // Shard whose table produced the arc, or CUT_EDGE
+
+        OverlayArc(int target, double distance, int shard) {
+            this.target = target;
+            this.distance = distance;
+            this.shard = shard;
+        }
+    }
+}
@@ -14,23 +14,31 @@ public class ShortestTimeFirst extends SearchAlgorithm {
         PriorityQueue<PathNode> pq = new PriorityQueue<>(Comparator.comparingDouble(PathNode::getDistance));
         Map<Node, Double> distances = new HashMap<>();
         Map<Node, Node> predecessors = new HashMap<>();
+        Map<Node, Edge> arrivalEdges = new HashMap<>(); // Edge each node was reached by
         Map<Node, Integer> nodeVisitTimes = new HashMap<>(); // Node visit time
 
         pq.add(new PathNode(startNode, 0));
+        stats.pushed();
         distances.put(startNode, 0.0);
         nodeVisitTimes.put(startNode, currentTime);
 
         while (!pq.isEmpty()) {
             PathNode currentPathNode = pq.poll();
+            stats.popped();
             Node currentNode = currentPathNode.getNode();
             int currentVisitTime = nodeVisitTimes.get(currentNode);
 
             if (currentNode.equals(endNode)) {
-                return reconstructPath(predecessors);
+                return reconstructPath(predecessors, arrivalEdges);
             }
+            stats.settled();
 
             for (Edge edge : currentNode.getNeighbors()) {
                 Node neighbor = edge.getNeighbor();
+                stats.relaxed();
+                if (isRestricted(neighbor)) {
+                    continue; // Not allowed for this vehicle profile
+                }
                 double originalTime = calculateTravelTime(edge, vehicle); // Calculate time based on road and vehicle type
 
                 // Adjust time
@@ -40,6 +48,7 @@ public class ShortestTimeFirst extends SearchAlgorithm {
                 // Check if road is closed
                 int estimatedVisitTime = currentVisitTime + (int) adjustedTime;
                 if (!neighbor.isOpenAt(estimatedVisitTime)) {
+                    stats.rejectedClosed();
                     continue;
                 }
 
@@ -48,8 +57,10 @@ public class ShortestTimeFirst extends SearchAlgorithm {
                 if (!distances.containsKey(neighbor) || newTime < distances.get(neighbor)) {
                     distances.put(neighbor, newTime);
                     predecessors.put(neighbor, currentNode);
+                    arrivalEdges.put(neighbor, edge);
                     nodeVisitTimes.put(neighbor, estimatedVisitTime); // Record visit time
                     pq.add(new PathNode(neighbor, newTime));
+                    stats.pushed();
                 }
             }
         }
@@ -59,6 +70,10 @@ public class ShortestTimeFirst extends SearchAlgorithm {
 
     // Calculate actual travel time on the road, depending on road and vehicle type
     public double calculateTravelTime(Edge edge, Vehicle vehicle) {
+        return travelTime(edge, vehicle);
+    }
+
+    static double travelTime(Edge edge, Vehicle vehicle) {
         double baseSpeed = 50.0; // Default speed 50 km/h
         Node neighbor = edge.getNeighbor();
         switch (neighbor.getRoadType()) {
@@ -72,21 +87,13 @@ public class ShortestTimeFirst extends SearchAlgorithm {
                 baseSpeed = 50.0;
                 break;
         }
-        if (vehicle.getVehicleType().equals("Heavy Vehicle")) {
+        if (vehicle != null && vehicle.getVehicleType().equals("Heavy Vehicle")) {
             baseSpeed *= 0.75; // Heavy vehicles are slower
         }
         return edge.getDistance() / baseSpeed; // Return time
     }
 
-    public PathResult reconstructPath(Map<Node, Node> predecessors) {
-        List<Node> path = new ArrayList<>();
-        Node current = endNode;
-
-        while (current != null) {
-            path.add(current);
-            current = predecessors.get(current);
-        }
-        Collections.reverse(path);
-        return new PathResult(path);
+    public PathResult reconstructPath(Map<Node, Node> predecessors, Map<Node, Edge> arrivalEdges) {
+        return compactResult(predecessors, arrivalEdges);
     }
 }
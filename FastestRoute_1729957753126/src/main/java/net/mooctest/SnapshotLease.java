@@ -0,0 +1,25 @@
+package net.mooctest;
+
+// Keeps a graph version alive for the duration of a search; use with try-with-resources
+public class SnapshotLease implements AutoCloseable {
+    private final VersionedGraph owner;
+    private final GraphSnapshot snapshot;
+    private boolean closed;
+
+    SnapshotLease(VersionedGraph owner, GraphSnapshot snapshot) {
+        this.owner = owner;
+        this.snapshot = snapshot;
+    }
+
+    public GraphSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            owner.release(snapshot);
+        }
+    }
+}
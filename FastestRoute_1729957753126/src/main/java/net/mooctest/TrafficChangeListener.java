@@ -0,0 +1,6 @@
+package net.mooctest;
+
+// Notified after each traffic batch is published, with the node ids whose multiplier changed
+public interface TrafficChangeListener {
+    void onTrafficChanged(TrafficMultipliers multipliers, int[] changedNodeIds);
+}
@@ -17,18 +17,26 @@ public class TrafficCondition {
     }
 
     public double adjustWeight(double originalWeight, int nodeId) {
-        String trafficStatus = getTrafficStatus(nodeId);
+        double multiplier = multiplierFor(getTrafficStatus(nodeId));
+        if (multiplier == Double.POSITIVE_INFINITY) {
+            return Double.MAX_VALUE; // Impassable if the road is closed
+        }
+        return originalWeight * multiplier;
+    }
+
+    // Weight multiplier of a traffic status; closed roads are infinite
+    public static double multiplierFor(String trafficStatus) {
         switch (trafficStatus) {
             case "Clear":
-                return originalWeight;
+                return 1.0;
             case "Congested":
-                return originalWeight * 2; // Double weight in case of congestion
+                return 2.0; // Double weight in case of congestion
             case "Closed":
-                return Double.MAX_VALUE; // Impassable if the road is closed
+                return Double.POSITIVE_INFINITY;
             case "Accident":
-                return originalWeight * 3; // Increase weight if there’s an accident
+                return 3.0; // Increase weight if there’s an accident
             default:
-                return originalWeight;
+                return 1.0;
         }
     }
 }
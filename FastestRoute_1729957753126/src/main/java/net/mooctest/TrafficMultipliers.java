@@ -0,0 +1,109 @@
+package net.mooctest;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Immutable version of the traffic state: one weight multiplier per node id (1.0 = clear, infinite = closed).
+// Ids in [0, DENSE_LIMIT) are kept in an array indexed by id; negative and very large ids go to a map, so a
+// single far-off id never sizes the array.
+public class TrafficMultipliers {
+    static final int DENSE_LIMIT = 1 << 20;
+
+    private final long version;
+    private final double[] multipliers;
+    private final Map<Integer, Double> sparse; // Ids outside the dense range that are not clear
+    private final TrafficCondition trafficCondition = new MultiplierTrafficCondition();
+
+    TrafficMultipliers(long version, double[] multipliers) {
+        this(version, multipliers, Collections.<Integer, Double>emptyMap());
+    }
+
+    TrafficMultipliers(long version, double[] multipliers, Map<Integer, Double> sparse) {
+        this.version = version;
+        this.multipliers = multipliers;
+        this.sparse = sparse;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public double getMultiplier(int nodeId) {
+        if (nodeId >= 0 && nodeId < multipliers.length) {
+            return multipliers[nodeId];
+        }
+        if (isDense(nodeId) || sparse.isEmpty()) {
+            return 1.0;
+        }
+        Double multiplier = sparse.get(nodeId);
+        return multiplier != null ? multiplier : 1.0;
+    }
+
+    static boolean isDense(int nodeId) {
+        return nodeId >= 0 && nodeId < DENSE_LIMIT;
+    }
+
+    public double adjustWeight(double originalWeight, int nodeId) {
+        double multiplier = getMultiplier(nodeId);
+        return multiplier == Double.POSITIVE_INFINITY ? Double.MAX_VALUE : originalWeight * multiplier;
+    }
+
+    // Status derived from the multiplier; statuses without a weight effect read back as "Clear"
+    public String getTrafficStatus(int nodeId) {
+        double multiplier = getMultiplier(nodeId);
+        if (multiplier == Double.POSITIVE_INFINITY) {
+            return "Closed";
+        } else if (multiplier == 3.0) {
+            return "Accident";
+        } else if (multiplier == 2.0) {
+            return "Congested";
+        }
+        return "Clear";
+    }
+
+    // TrafficCondition view pinned to this version, for the existing searches
+    public TrafficCondition asTrafficCondition() {
+        return trafficCondition;
+    }
+
+    // Copy of the dense array, grown to minLength but never past DENSE_LIMIT
+    double[] copyMultipliers(int minLength) {
+        double[] copy = new double[Math.max(Math.min(minLength, DENSE_LIMIT), multipliers.length)];
+        System.arraycopy(multipliers, 0, copy, 0, multipliers.length);
+        for (int i = multipliers.length; i < copy.length; i++) {
+            copy[i] = 1.0;
+        }
+        return copy;
+    }
+
+    // The map is never changed once a version is published; a new version that touches no sparse id shares it
+    Map<Integer, Double> getSparse() {
+        return sparse;
+    }
+
+    Map<Integer, Double> copySparse() {
+        return new HashMap<>(sparse);
+    }
+
+    private class MultiplierTrafficCondition extends TrafficCondition {
+        MultiplierTrafficCondition() {
+            super(Collections.<Integer, String>emptyMap());
+        }
+
+        @Override
+        public String getTrafficStatus(int nodeId) {
+            return TrafficMultipliers.this.getTrafficStatus(nodeId);
+        }
+
+        @Override
+        public void updateTrafficStatus(int nodeId, String status) {
+            throw new UnsupportedOperationException("Traffic updates go through the TrafficUpdatePipeline");
+        }
+
+        @Override
+        public double adjustWeight(double originalWeight, int nodeId) {
+            return TrafficMultipliers.this.adjustWeight(originalWeight, nodeId);
+        }
+    }
+}
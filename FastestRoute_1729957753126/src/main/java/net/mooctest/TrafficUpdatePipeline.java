@@ -0,0 +1,176 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Batched traffic ingestion. Producers only write into a per-node pending map, so a burst of updates for
+// the same node collapses into the last one. flush() applies the pending set to a copy of the multiplier
+// array, swaps it in atomically and tells subscribers which nodes changed. Searches take one version and
+// keep it for their whole run.
+public class TrafficUpdatePipeline {
+    private final ConcurrentHashMap<Integer, String> pending = new ConcurrentHashMap<>();
+    private final AtomicReference<TrafficMultipliers> current;
+    private final List<TrafficChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flusher;
+
+    public TrafficUpdatePipeline() {
+        this.current = new AtomicReference<>(new TrafficMultipliers(0, new double[0]));
+    }
+
+    public TrafficUpdatePipeline(Map<Integer, String> initialTrafficData) {
+        this();
+        for (Map.Entry<Integer, String> entry : initialTrafficData.entrySet()) {
+            submit(entry.getKey(), entry.getValue());
+        }
+        flush();
+    }
+
+    public void submit(int nodeId, String status) {
+        pending.put(nodeId, status);
+        submitted.incrementAndGet();
+    }
+
+    public void submitAll(Map<Integer, String> updates) {
+        for (Map.Entry<Integer, String> entry : updates.entrySet()) {
+            submit(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Latest published traffic version
+    public TrafficMultipliers current() {
+        return current.get();
+    }
+
+    public void subscribe(TrafficChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(TrafficChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // Publishes all pending updates as one version; returns the ids of nodes whose multiplier changed
+    public int[] flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return new int[0];
+            }
+            List<Integer> nodeIds = new ArrayList<>();
+            List<String> statuses = new ArrayList<>();
+            int maxDenseId = -1;
+            for (Integer nodeId : pending.keySet()) {
+                String status = pending.remove(nodeId); // Updates arriving after this go to the next batch
+                if (status != null) {
+                    nodeIds.add(nodeId);
+                    statuses.add(status);
+                    if (TrafficMultipliers.isDense(nodeId)) {
+                        maxDenseId = Math.max(maxDenseId, nodeId);
+                    }
+                }
+            }
+            applied.addAndGet(nodeIds.size());
+
+            TrafficMultipliers previous = current.get();
+            double[] multipliers = previous.copyMultipliers(maxDenseId + 1);
+            Map<Integer, Double> sparse = null; // Copied on the first update outside the dense range
+            int[] changed = new int[nodeIds.size()];
+            int changedCount = 0;
+            for (int i = 0; i < nodeIds.size(); i++) {
+                int nodeId = nodeIds.get(i);
+                double multiplier = TrafficCondition.multiplierFor(statuses.get(i));
+                if (multiplier == previous.getMultiplier(nodeId)) {
+                    continue;
+                }
+                if (TrafficMultipliers.isDense(nodeId)) {
+                    multipliers[nodeId] = multiplier;
+                } else {
+                    if (sparse == null) {
+                        sparse = previous.copySparse();
+                    }
+                    if (multiplier == 1.0) {
+                        sparse.remove(nodeId);
+                    } else {
+                        sparse.put(nodeId, multiplier);
+                    }
+                }
+                changed[changedCount++] = nodeId;
+            }
+            changed = Arrays.copyOf(changed, changedCount);
+            if (changedCount == 0) {
+                return changed;
+            }
+            Arrays.sort(changed);
+            TrafficMultipliers next = new TrafficMultipliers(previous.getVersion() + 1, multipliers,
+                    sparse != null ? sparse : previous.getSparse());
+            current.set(next);
+            for (TrafficChangeListener listener : listeners) {
+                try {
+                    listener.onTrafficChanged(next, changed);
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet(); // The version is published; other subscribers still hear of it
+                }
+            }
+            return changed;
+        }
+    }
+
+    // Flushes on a background thread at a fixed interval
+    public synchronized void start(long intervalMillis) {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "traffic-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // A task that throws is never run again, so a failed flush is counted and the next one still runs
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the background flusher and publishes what is still pending
+    public synchronized void stop() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    // Updates that survived coalescing and were applied
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    // Subscriber callbacks and background flushes that threw
+    public long getFailureCount() {
+        return failures.get();
+    }
+}
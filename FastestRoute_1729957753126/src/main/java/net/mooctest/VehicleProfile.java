@@ -0,0 +1,64 @@
+package net.mooctest;
+
+// Routing profile derived from a Vehicle: which node restrictions apply to it
+public class VehicleProfile {
+    public static final VehicleProfile STANDARD = new VehicleProfile("standard", false, false, false);
+    public static final VehicleProfile HEAVY = new VehicleProfile("heavy", true, false, false);
+    public static final VehicleProfile TOLL_FREE = new VehicleProfile("toll-free", false, true, false);
+    public static final VehicleProfile EMERGENCY = new VehicleProfile("emergency", false, false, true);
+
+    private String name;
+    private boolean heavyVehicle; // Avoids nodes restricted for heavy vehicles
+    private boolean avoidTolls;   // Avoids toll roads
+    private boolean emergency;    // Emergency vehicles keep their own closure rules in the searches
+
+    public VehicleProfile(String name, boolean heavyVehicle, boolean avoidTolls, boolean emergency) {
+        this.name = name;
+        this.heavyVehicle = heavyVehicle;
+        this.avoidTolls = avoidTolls;
+        this.emergency = emergency;
+    }
+
+    // Unregistered combination of flags, named after the flags it carries
+    public static VehicleProfile of(Vehicle vehicle) {
+        boolean heavy = "Heavy Vehicle".equals(vehicle.getVehicleType());
+        StringBuilder name = new StringBuilder(heavy ? "heavy" : "standard");
+        if (vehicle.requiresTollFreeRoute()) {
+            name.append("+toll-free");
+        }
+        if (vehicle.isEmergencyVehicle()) {
+            name.append("+emergency");
+        }
+        return new VehicleProfile(name.toString(), heavy, vehicle.requiresTollFreeRoute(), vehicle.isEmergencyVehicle());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHeavyVehicle() {
+        return heavyVehicle;
+    }
+
+    public boolean avoidsTolls() {
+        return avoidTolls;
+    }
+
+    public boolean isEmergency() {
+        return emergency;
+    }
+
+    public boolean hasRestrictions() {
+        return heavyVehicle || avoidTolls;
+    }
+
+    public boolean matches(Vehicle vehicle) {
+        return heavyVehicle == "Heavy Vehicle".equals(vehicle.getVehicleType())
+                && avoidTolls == vehicle.requiresTollFreeRoute()
+                && emergency == vehicle.isEmergencyVehicle();
+    }
+
+    public boolean restricts(Node node) {
+        return (avoidTolls && node.isTollRoad()) || (heavyVehicle && node.isRestrictedForHeavyVehicles());
+    }
+}
@@ -0,0 +1,78 @@
+package net.mooctest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Known vehicle profiles and their node restrictions, cached once per graph version
+public class VehicleProfileRegistry {
+    private static final VehicleProfileRegistry DEFAULT = createDefault();
+
+    private final Map<String, VehicleProfile> profiles = new LinkedHashMap<>();
+
+    public static VehicleProfileRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static VehicleProfileRegistry createDefault() {
+        VehicleProfileRegistry registry = new VehicleProfileRegistry();
+        registry.register(VehicleProfile.STANDARD);
+        registry.register(VehicleProfile.HEAVY);
+        registry.register(VehicleProfile.TOLL_FREE);
+        registry.register(VehicleProfile.EMERGENCY);
+        return registry;
+    }
+
+    public synchronized void register(VehicleProfile profile) {
+        profiles.put(profile.getName(), profile);
+    }
+
+    public synchronized VehicleProfile get(String name) {
+        return profiles.get(name);
+    }
+
+    public synchronized Collection<VehicleProfile> getProfiles() {
+        return new ArrayList<>(profiles.values());
+    }
+
+    // Registered profile matching the vehicle's flags, or an ad-hoc profile if none matches
+    public synchronized VehicleProfile resolve(Vehicle vehicle) {
+        for (VehicleProfile profile : profiles.values()) {
+            if (profile.matches(vehicle)) {
+                return profile;
+            }
+        }
+        return VehicleProfile.of(vehicle);
+    }
+
+    // Snapshot graphs build the restriction bitset once per version; mutable graphs check nodes as they are
+    // reached, so neither pays a node scan per search
+    public NodeRestrictions getRestrictions(Graph graph, VehicleProfile profile) {
+        if (!profile.hasRestrictions()) {
+            return NodeRestrictions.NONE;
+        }
+        GraphSnapshot snapshot = graph != null ? graph.getSnapshot() : null;
+        if (snapshot == null) {
+            return NodeRestrictions.of(profile);
+        }
+        return snapshot.getDerived(cacheKey(profile), s -> NodeRestrictions.of(profile, s));
+    }
+
+    // No vehicle means no profile, so nothing is restricted
+    public NodeRestrictions getRestrictions(Graph graph, Vehicle vehicle) {
+        return vehicle == null ? NodeRestrictions.NONE : getRestrictions(graph, resolve(vehicle));
+    }
+
+    // Builds the bitsets of all registered profiles for a new version before it is published
+    public void precompute(GraphSnapshot snapshot) {
+        for (VehicleProfile profile : getProfiles()) {
+            getRestrictions(snapshot.getGraph(), profile);
+        }
+    }
+
+    private static String cacheKey(VehicleProfile profile) {
+        return "restrictions:" + profile.getName()
+                + (profile.isHeavyVehicle() ? ":h" : "") + (profile.avoidsTolls() ? ":t" : "");
+    }
+}
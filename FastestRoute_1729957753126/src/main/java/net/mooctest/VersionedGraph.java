@@ -0,0 +1,85 @@
+package net.mooctest;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Copy-on-write graph: writers publish new immutable versions, readers lease the version they started on
+public class VersionedGraph {
+    private final AtomicReference<GraphSnapshot> current;
+    private final Set<GraphSnapshot> retained = ConcurrentHashMap.newKeySet(); // Superseded versions still in use
+    private final Object writeLock = new Object();
+    private volatile VehicleProfileRegistry profileRegistry; // Profiles precomputed for every new version
+
+    public VersionedGraph() {
+        this.current = new AtomicReference<>(GraphSnapshot.empty());
+    }
+
+    public VersionedGraph(Graph graph, Map<Integer, String> trafficData) {
+        this.current = new AtomicReference<>(GraphSnapshot.of(graph, trafficData));
+    }
+
+    // Latest published version, without registering a reader
+    public GraphSnapshot current() {
+        return current.get();
+    }
+
+    // Latest published version, kept alive until the lease is closed
+    public SnapshotLease acquire() {
+        while (true) {
+            GraphSnapshot snapshot = current.get();
+            if (snapshot.tryRetain()) {
+                return new SnapshotLease(this, snapshot);
+            }
+            // The version was superseded and reclaimed in between, retry with the newer one
+        }
+    }
+
+    // Precomputes the registry's restriction bitsets for the current and every later version
+    public void setProfileRegistry(VehicleProfileRegistry profileRegistry) {
+        this.profileRegistry = profileRegistry;
+        if (profileRegistry != null) {
+            profileRegistry.precompute(current.get());
+        }
+    }
+
+    public GraphUpdateBatch newBatch() {
+        return new GraphUpdateBatch(this);
+    }
+
+    GraphSnapshot commit(GraphUpdateBatch batch) {
+        if (batch.isEmpty()) {
+            return current.get();
+        }
+        synchronized (writeLock) {
+            GraphSnapshot previous = current.get();
+            GraphSnapshot next = batch.applyTo(previous, previous.getVersion() + 1);
+            VehicleProfileRegistry registry = profileRegistry;
+            if (registry != null) {
+                registry.precompute(next);
+            }
+            current.set(next);
+            previous.markSuperseded();
+            if (!previous.tryReclaim()) {
+                retained.add(previous);
+                // The last reader may have left between markSuperseded and add
+                if (previous.isReclaimed() || previous.tryReclaim()) {
+                    retained.remove(previous);
+                }
+            }
+            return next;
+        }
+    }
+
+    void release(GraphSnapshot snapshot) {
+        if (snapshot.release() && snapshot.tryReclaim()) {
+            retained.remove(snapshot);
+        }
+    }
+
+    // Number of superseded versions that are still referenced by in-flight searches
+    public int getRetainedVersionCount() {
+        return retained.size();
+    }
+}
@@ -2,6 +2,17 @@ package net.mooctest;
 
 import static org.junit.Assert.*;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import org.junit.Test;
 
 public class GraphTest {
@@ -13,4 +24,443 @@ public class GraphTest {
         
     }
 
+    @Test
+    public void testSnapshotIsolationAndReclaim() {
+        VersionedGraph versioned = new VersionedGraph();
+        versioned.newBatch()
+                .addNode(new Node(1, false, "Highway", false, false, false, 1.0, 0, 24))
+                .addNode(new Node(2, false, "Highway", false, false, false, 1.0, 0, 24))
+                .addEdge(1, 2, 5.0)
+                .commit();
+
+        SnapshotLease lease = versioned.acquire();
+        GraphSnapshot before = lease.getSnapshot();
+        versioned.newBatch()
+                .addNode(new Node(3, false, "Regular Road", false, false, false, 1.0, 0, 24))
+                .addEdge(2, 3, 4.0)
+                .updateTrafficStatus(2, "Congested")
+                .commit();
+
+        assertEquals(2, before.getNodeCount());
+        assertEquals(1, before.getEdgeCount());
+        assertEquals("Clear", before.getTrafficStatus(2));
+        assertEquals(1, versioned.getRetainedVersionCount());
+
+        GraphSnapshot after = versioned.current();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(2, after.getEdgeCount());
+        assertEquals("Congested", after.getTrafficStatus(2));
+        assertEquals(1, after.getNode(2).getNeighbors().size());
+
+        lease.close();
+        assertTrue(before.isReclaimed());
+        assertEquals(0, versioned.getRetainedVersionCount());
+    }
+
+    @Test
+    public void testVehicleProfileRestrictions() {
+        Graph graph = new Graph();
+        graph.addNode(new Node(1, false, "Highway", false, false, false, 1.0, 0, 24));
+        graph.addNode(new Node(2, false, "Toll Road", true, true, false, 1.0, 0, 24)); // Toll, closed to trucks
+        graph.addNode(new Node(3, false, "Regular Road", false, false, false, 1.0, 0, 24));
+        graph.addNode(new Node(4, false, "Highway", false, false, false, 1.0, 0, 24));
+        graph.addEdge(1, 2, 1.0);
+        graph.addEdge(2, 4, 1.0);
+        graph.addEdge(1, 3, 2.0);
+        graph.addEdge(3, 4, 2.0);
+        TrafficCondition traffic = new TrafficCondition(new HashMap<Integer, String>());
+        WeatherCondition weather = new WeatherCondition("Clear");
+
+        Vehicle car = new Vehicle("Standard Vehicle", 1000, false, 100, 100, 0.1, 0, false);
+        Vehicle tollFree = new Vehicle("Standard Vehicle", 1000, true, 100, 100, 0.1, 0, false);
+        Vehicle truck = new Vehicle("Heavy Vehicle", 10000, false, 100, 100, 0.1, 0, false);
+
+        assertEquals(2, new Dijkstra(graph, graph.getNode(1), graph.getNode(4), car, traffic, weather, 0,
+                new HashMap<Integer, GasStation>()).findPath().getPath().get(1).getNodeId());
+        assertEquals(3, new Dijkstra(graph, graph.getNode(1), graph.getNode(4), tollFree, traffic, weather, 0,
+                new HashMap<Integer, GasStation>()).findPath().getPath().get(1).getNodeId());
+        assertEquals(3, new Dijkstra(graph, graph.getNode(1), graph.getNode(4), truck, traffic, weather, 0,
+                new HashMap<Integer, GasStation>()).findPath().getPath().get(1).getNodeId());
+
+        // Restrictions are resolved when the search runs, so construction needs neither graph nor vehicle
+        new Dijkstra(null, graph.getNode(1), graph.getNode(4), null, traffic, weather, 0,
+                new HashMap<Integer, GasStation>());
+        new MultiStopRouteOptimizer(null, null, traffic, weather);
+        assertSame(NodeRestrictions.NONE, VehicleProfileRegistry.getDefault().getRestrictions(graph, (Vehicle) null));
+
+        // A sparse, very large id costs one bit in the snapshot's dense index space
+        graph.addNode(new Node(2000000000, false, "Regular Road", false, true, false, 1.0, 0, 24));
+        VersionedGraph versioned = new VersionedGraph(graph, new HashMap<Integer, String>());
+        versioned.setProfileRegistry(VehicleProfileRegistry.getDefault());
+        Graph snapshotGraph = versioned.current().getGraph();
+        NodeRestrictions heavy = VehicleProfileRegistry.getDefault().getRestrictions(snapshotGraph, VehicleProfile.HEAVY);
+        assertEquals(2, heavy.getRestrictedCount());
+        assertTrue(heavy.isRestricted(snapshotGraph.getNode(2)));
+        assertTrue(heavy.isRestricted(snapshotGraph.getNode(2000000000)));
+        assertFalse(heavy.isRestricted(snapshotGraph.getNode(3)));
+        assertSame(heavy, VehicleProfileRegistry.getDefault().getRestrictions(snapshotGraph, truck));
+        assertEquals(3, new Dijkstra(snapshotGraph, snapshotGraph.getNode(1), snapshotGraph.getNode(4), truck,
+                versioned.current().getTrafficCondition(), weather, 0, new HashMap<Integer, GasStation>())
+                .findPath().getPath().get(1).getNodeId());
+    }
+
+    @Test
+    public void testShardedRoutingMatchesSingleGraph() {
+        Graph graph = new Graph();
+        int size = 6;
+        for (int id = 1; id <= size * size; id++) {
+            graph.addNode(new Node(id, false, "Regular Road", false, false, false, 1.0, 0, Integer.MAX_VALUE));
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int id = row * size + col + 1;
+                if (col + 1 < size) {
+                    graph.addEdge(id, id + 1, 1 + (id * 7) % 5);
+                    graph.addEdge(id + 1, id, 1 + (id * 3) % 4);
+                }
+                if (row + 1 < size) {
+                    graph.addEdge(id, id + size, 1 + (id * 5) % 3);
+                    graph.addEdge(id + size, id, 1 + (id * 11) % 6);
+                }
+            }
+        }
+        GraphPartition partition = new GraphPartitioner().partition(graph, 4);
+        assertTrue(partition.getCutEdgeCount() < 40);
+        LocalShardTransport transport = new LocalShardTransport(true);
+        for (int shard = 0; shard < partition.getShardCount(); shard++) {
+            assertFalse(partition.getNodes(shard).isEmpty());
+            transport.register(new RouteShard(shard, graph, partition));
+        }
+        ShardedRouteCoordinator coordinator = new ShardedRouteCoordinator(partition, transport);
+
+        Vehicle car = new Vehicle("Standard Vehicle", 1000, false, 1e9, 1e9, 0.0, 0, false);
+        TrafficCondition traffic = new TrafficCondition(new HashMap<Integer, String>());
+        WeatherCondition weather = new WeatherCondition("Clear");
+        int[][] queries = {{1, 36}, {36, 1}, {6, 31}, {8, 9}, {13, 24}, {5, 5}};
+        for (int[] query : queries) {
+            PathResult expected = new Dijkstra(graph, graph.getNode(query[0]), graph.getNode(query[1]), car,
+                    traffic, weather, 0, new HashMap<Integer, GasStation>()).findPath();
+            ShardedRoute route = coordinator.findRoute(query[0], query[1]);
+            assertEquals(pathLength(expected.getPath()), route.getDistance(), 1e-9);
+            assertEquals(route.getDistance(), pathLength(route.toPathResult(graph).getPath()), 1e-9);
+            assertEquals(query[0], route.getNodeIds()[0]);
+            assertEquals(query[1], route.getNodeIds()[route.getNodeIds().length - 1]);
+        }
+    }
+
+    @Test
+    public void testSearchInstrumentation() {
+        Graph graph = new Graph();
+        graph.addNode(new Node(1, false, "Highway", false, false, false, 1.0, 0, 24));
+        graph.addNode(new Node(2, false, "Highway", false, false, true, 1.0, 0, 24));
+        graph.addNode(new Node(3, false, "Highway", false, false, false, 1.0, 0, 24));
+        graph.addEdge(1, 2, 1.0);
+        graph.addEdge(1, 3, 2.0);
+        Vehicle car = new Vehicle("Standard Vehicle", 1000, false, 100, 100, 0.1, 0, false);
+        Dijkstra dijkstra = new Dijkstra(graph, graph.getNode(1), graph.getNode(3), car,
+                new TrafficCondition(new HashMap<Integer, String>()), new WeatherCondition("Clear"), 0,
+                new HashMap<Integer, GasStation>());
+        RoutingMetrics metrics = new RoutingMetrics();
+        dijkstra.setMetrics(metrics);
+
+        assertNotNull(new RouteOptimizer(dijkstra).optimizeRoute());
+        SearchStats stats = dijkstra.getStats();
+        assertEquals(2, stats.getRelaxedEdges());
+        assertEquals(1, stats.getRejectedHighRisk());
+        assertEquals(2, stats.getHeapPushes());
+        assertEquals(2, stats.getHeapPops());
+        assertTrue(stats.getWallTimeNanos() > 0);
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        assertEquals(1, snapshot.getCounter("Dijkstra.queries"));
+        assertEquals(1, snapshot.getCounter("Dijkstra.rejectedHighRisk"));
+        assertEquals(2, snapshot.getHistogram("Dijkstra.relaxedEdges").getValueAtPercentile(99));
+
+        LockFreeHistogram histogram = new LockFreeHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value);
+        }
+        long p50 = histogram.snapshot().getValueAtPercentile(50);
+        assertTrue(Math.abs(p50 - 5000) <= 5000 * 0.02);
+        assertEquals(10000, histogram.snapshot().getMax());
+        int top = LockFreeHistogram.bucketIndex(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LockFreeHistogram.bucketUpperBound(top));
+        assertEquals(Long.MAX_VALUE, LockFreeHistogram.bucketUpperBound(top + 1)); // Unreachable buckets clamp too
+        assertTrue(LockFreeHistogram.bucketUpperBound(top - 1) > 0);
+    }
+
+    @Test(timeout = 10000)
+    public void testTrafficPipelineCoalescesUpdates() {
+        TrafficUpdatePipeline pipeline = new TrafficUpdatePipeline();
+        final List<int[]> published = new ArrayList<>();
+        pipeline.subscribe((multipliers, changedNodeIds) -> published.add(changedNodeIds));
+        TrafficMultipliers before = pipeline.current();
+
+        pipeline.submit(2, "Accident");
+        pipeline.submit(2, "Congested");
+        pipeline.submit(5, "Closed");
+        pipeline.submit(7, "Clear");
+        assertEquals(3, pipeline.getPendingCount());
+        assertArrayEquals(new int[]{2, 5}, pipeline.flush());
+        assertEquals(1, published.size());
+        assertEquals(4, pipeline.getSubmittedCount());
+        assertEquals(3, pipeline.getAppliedCount());
+
+        TrafficMultipliers after = pipeline.current();
+        assertEquals(before.getVersion() + 1, after.getVersion());
+        assertEquals(1.0, before.getMultiplier(2), 0.0);
+        assertEquals(2.0, after.getMultiplier(2), 0.0);
+        assertEquals("Closed", after.asTrafficCondition().getTrafficStatus(5));
+        assertEquals(Double.MAX_VALUE, after.asTrafficCondition().adjustWeight(4.0, 5), 0.0);
+        assertEquals(8.0, after.asTrafficCondition().adjustWeight(4.0, 2), 0.0);
+        assertEquals(0, pipeline.flush().length);
+
+        // Far-off and negative ids are kept aside instead of sizing the multiplier array
+        pipeline.submit(2000000000, "Accident");
+        pipeline.submit(-4, "Congested");
+        assertArrayEquals(new int[]{-4, 2000000000}, pipeline.flush());
+        assertEquals(3.0, pipeline.current().getMultiplier(2000000000), 0.0);
+        assertEquals(2.0, pipeline.current().getMultiplier(-4), 0.0);
+        assertEquals(2.0, pipeline.current().getMultiplier(2), 0.0);
+        pipeline.submit(-4, "Clear");
+        assertArrayEquals(new int[]{-4}, pipeline.flush());
+        assertEquals(1.0, pipeline.current().getMultiplier(-4), 0.0);
+
+        // A failing subscriber is counted and neither stops the others nor the background flusher
+        pipeline.subscribe((multipliers, changedNodeIds) -> {
+            throw new IllegalStateException("subscriber failure");
+        });
+        final List<int[]> later = new CopyOnWriteArrayList<>();
+        pipeline.subscribe((multipliers, changedNodeIds) -> later.add(changedNodeIds));
+        pipeline.start(5);
+        pipeline.submit(9, "Closed");
+        while (later.isEmpty()) {
+            Thread.yield();
+        }
+        pipeline.submit(10, "Closed");
+        while (later.size() < 2) {
+            Thread.yield();
+        }
+        pipeline.stop();
+        assertEquals(2, pipeline.getFailureCount());
+    }
+
+    @Test
+    public void testIncrementalFloydWarshallMatchesRebuild() {
+        Graph graph = new Graph();
+        for (int id = 1; id <= 5; id++) {
+            graph.addNode(new Node(id, false, "Regular Road", false, false, false, 1.0, 0, 24));
+        }
+        graph.addEdge(1, 2, 4.0);
+        graph.addEdge(2, 3, 4.0);
+        graph.addEdge(1, 4, 1.0);
+        graph.addEdge(4, 3, 2.0);
+        graph.addEdge(3, 5, 1.0);
+        IncrementalFloydWarshall apsp = new IncrementalFloydWarshall(graph);
+        Node n1 = graph.getNode(1);
+        Node n5 = graph.getNode(5);
+        assertEquals(4.0, apsp.getDistance(n1, n5), 1e-9);
+
+        apsp.updateEdge(4, 3, 10.0); // Increase on the shortest path
+        assertEquals(9.0, apsp.getDistance(n1, n5), 1e-9);
+        assertEquals(2, apsp.getShortestPath(n1, n5).get(1).getNodeId());
+
+        apsp.updateEdge(1, 3, 0.5);  // New, cheaper edge
+        assertEquals(1.5, apsp.getDistance(n1, n5), 1e-9);
+        assertEquals(3, apsp.getShortestPath(n1, n5).size());
+
+        TrafficUpdatePipeline pipeline = new TrafficUpdatePipeline();
+        pipeline.subscribe(apsp);
+        pipeline.submit(3, "Closed");
+        pipeline.flush();
+        assertEquals(Double.POSITIVE_INFINITY, apsp.getDistance(n1, n5), 0.0);
+        assertTrue(apsp.getShortestPath(n1, n5).isEmpty());
+
+        pipeline.submit(3, "Congested");
+        pipeline.flush();
+        assertEquals(2.0, apsp.getDistance(n1, n5), 1e-9);
+        assertEquals(4, apsp.getVersion());
+
+        // Built after node 4 was congested: starts from the current multipliers, not from clear roads
+        pipeline.submit(3, "Clear");
+        pipeline.submit(4, "Congested");
+        pipeline.flush();
+        IncrementalFloydWarshall late = IncrementalFloydWarshall.subscribedTo(graph, pipeline);
+        double congested = pipeline.current().getMultiplier(4);
+        assertTrue(congested > 1.0);
+        assertEquals(congested, late.getDistance(n1, graph.getNode(4)), 1e-9);
+        assertEquals(Math.min(8.0, congested + 2.0), late.getDistance(n1, graph.getNode(3)), 1e-9);
+        pipeline.submit(4, "Clear");
+        pipeline.flush();
+        assertEquals(1.0, late.getDistance(n1, graph.getNode(4)), 1e-9);
+    }
+
+    @Test
+    public void testMultiStopOptimizerOrdersStops() {
+        Graph graph = new Graph();
+        for (int id = 1; id <= 6; id++) {
+            graph.addNode(new Node(id, false, "Regular Road", false, false, false, 1.0, 0, 100));
+        }
+        for (int id = 1; id < 6; id++) {
+            graph.addEdge(id, id + 1, 1.0);
+            graph.addEdge(id + 1, id, 1.0);
+        }
+        MultiStopRouteOptimizer optimizer = new MultiStopRouteOptimizer(graph,
+                new Vehicle("Standard Vehicle", 1000, false, 100, 100, 0.1, 0, false),
+                new TrafficCondition(new HashMap<Integer, String>()), new WeatherCondition("Clear"));
+        optimizer.setThreads(2);
+        List<Node> stops = Arrays.asList(graph.getNode(5), graph.getNode(2), graph.getNode(4), graph.getNode(3));
+
+        MultiStopPlan plan = optimizer.optimize(graph.getNode(1), stops, graph.getNode(6), 0);
+        assertTrue(plan.isFeasible());
+        assertEquals(5.0, plan.getTotalCost(), 1e-9);
+        assertEquals(0, plan.getTimeWindowViolations());
+        assertEquals(Arrays.asList(graph.getNode(2), graph.getNode(3), graph.getNode(4), graph.getNode(5)), plan.getStopOrder());
+        assertEquals(6, plan.getPath().getPath().size());
+        assertEquals(6, plan.getPath().getPath().get(5).getNodeId());
+    }
+
+    @Test
+    public void testCompactRouteRoundTrip() {
+        Graph graph = new Graph();
+        graph.addNode(new Node(100, false, "Highway", false, false, false, 1.0, 0, 24));
+        graph.addNode(new Node(98, false, "Toll Road", true, false, false, 1.0, 0, 24));
+        graph.addNode(new Node(400, false, "Regular Road", false, false, false, 1.0, 0, 24));
+        graph.addEdge(100, 98, 9.0); // Parallel road the search does not take
+        graph.addEdge(100, 98, 8.0);
+        graph.addEdge(98, 400, 5.0);
+        Vehicle car = new Vehicle("Standard Vehicle", 1000, false, 100, 100, 0.5, 0, false);
+        PathResult result = new Dijkstra(graph, graph.getNode(100), graph.getNode(400), car,
+                new TrafficCondition(new HashMap<Integer, String>()), new WeatherCondition("Clear"), 0,
+                new HashMap<Integer, GasStation>()).findPath();
+
+        assertFalse(result.isMaterialized()); // Searches keep only the compact form
+        CompactRoute route = result.getCompactRoute();
+        assertEquals(13.0, route.getTotalDistance(), 1e-9);
+        assertEquals(6.5, route.getTotalFuel(), 1e-9);
+        assertEquals(8.0, route.getTollDistance(), 1e-9);
+        assertEquals(8.0 / 80.0 + 5.0 / 50.0, route.getTotalTime(), 1e-9);
+
+        ByteBuffer buffer = ByteBuffer.allocate(route.encodedSize());
+        route.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        PathResult restored = PathResult.fromCompact(CompactRoute.readFrom(buffer), graph);
+        assertFalse(restored.isMaterialized());
+        assertEquals(13.0, restored.getCompactRoute().getTotalDistance(), 1e-9);
+        assertEquals(result.getPath(), restored.getPath());
+        assertTrue(restored.isMaterialized());
+
+        // A search result keeps the nodes it searched: it needs no graph, and later replacements do not leak in
+        Node searchedStart = graph.getNode(100);
+        PathResult detached = new Dijkstra(null, searchedStart, graph.getNode(400), car,
+                new TrafficCondition(new HashMap<Integer, String>()), new WeatherCondition("Clear"), 0,
+                new HashMap<Integer, GasStation>()).findPath();
+        graph.addNode(new Node(100, false, "Highway", false, false, false, 1.0, 0, 24));
+        assertFalse(detached.isMaterialized());
+        assertSame(searchedStart, detached.getPath().get(0));
+        assertEquals(3, detached.getPath().size());
+    }
+
+    @Test
+    public void testRouteQueryServerAnswersPipelinedBatches() throws Exception {
+        VersionedGraph versioned = new VersionedGraph();
+        GraphUpdateBatch batch = versioned.newBatch();
+        for (int id = 1; id <= 7; id++) {
+            batch.addNode(new Node(id, false, "Highway", false, false, false, 1.0, 0, 24));
+        }
+        for (int id = 1; id < 6; id++) {
+            batch.addEdge(id, id + 1, 2.0).addEdge(id + 1, id, 2.0);
+        }
+        batch.commit(); // Node 7 stays unreachable
+
+        BatchRoutePlanner planner = new BatchRoutePlanner(versioned, new WeatherCondition("Clear"));
+        List<PathResult> planned = planner.plan(Arrays.asList(new RouteQuery(1, 6, VehicleProfile.STANDARD),
+                new RouteQuery(1, 3, VehicleProfile.STANDARD), new RouteQuery(1, 7, VehicleProfile.STANDARD)));
+        assertEquals(10.0, planned.get(0).getCompactRoute().getTotalDistance(), 1e-9);
+        assertFalse(planned.get(1).isMaterialized());
+        assertEquals(3, planned.get(1).getPath().size());
+        assertNull(planned.get(2));
+
+        RouteQueryServer server = new RouteQueryServer(planner, 0, 2, 64);
+        server.start();
+        try {
+            LoadReport report = new RouteLoadGenerator("127.0.0.1", server.getPort(), 3, 8, 200,
+                    new int[]{1, 2, 3, 4, 5, 6, 7}, 42L).run();
+            assertEquals(600, report.getCompleted());
+            assertTrue(report.getNoPath() > 0);
+            assertEquals(600, report.getLatency().getCount());
+            assertEquals(600, server.getQueryCount());
+
+            // 50 requests written at once arrive in one or a few reads and are answered in few batches
+            long batchesBefore = server.getBatchCount();
+            try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+                socket.setSoTimeout(5000);
+                ByteBuffer requests = ByteBuffer.allocate(50 * (4 + RouteQueryProtocol.REQUEST_BODY_SIZE));
+                for (int i = 0; i < 50; i++) {
+                    RouteQueryProtocol.writeRequest(requests, i, new RouteQuery(1, 2 + i % 5, VehicleProfile.STANDARD));
+                }
+                socket.getOutputStream().write(requests.array());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                for (int i = 0; i < 50; i++) {
+                    assertEquals(RouteQueryProtocol.STATUS_OK, readResponseStatus(in));
+                }
+            }
+            assertTrue(server.getBatchCount() - batchesBefore < 10);
+
+            // A header announcing a body larger than any request is rejected at once, not awaited
+            try (Socket socket = new Socket("127.0.0.1", server.getPort())) {
+                socket.setSoTimeout(5000);
+                new DataOutputStream(socket.getOutputStream()).writeInt(100000);
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        } finally {
+            server.stop();
+        }
+
+        // A batch whose planning fails is still answered, with an error for every query
+        BatchRoutePlanner failing = new BatchRoutePlanner(versioned, new WeatherCondition("Clear")) {
+            @Override
+            public List<PathResult> plan(List<RouteQuery> queries) {
+                throw new IllegalStateException("planner failure");
+            }
+        };
+        RouteQueryServer failingServer = new RouteQueryServer(failing, 0, 1, 64);
+        failingServer.start();
+        try (Socket socket = new Socket("127.0.0.1", failingServer.getPort())) {
+            socket.setSoTimeout(5000);
+            ByteBuffer requests = ByteBuffer.allocate(2 * (4 + RouteQueryProtocol.REQUEST_BODY_SIZE));
+            RouteQueryProtocol.writeRequest(requests, 1, new RouteQuery(1, 6, VehicleProfile.STANDARD));
+            RouteQueryProtocol.writeRequest(requests, 2, new RouteQuery(1, 3, VehicleProfile.STANDARD));
+            socket.getOutputStream().write(requests.array());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            assertEquals(RouteQueryProtocol.STATUS_ERROR, readResponseStatus(in));
+            assertEquals(RouteQueryProtocol.STATUS_ERROR, readResponseStatus(in));
+        } finally {
+            failingServer.stop();
+        }
+    }
+
+    // Reads one response frame and returns its status
+    private static byte readResponseStatus(DataInputStream in) throws IOException {
+        int bodySize = in.readInt();
+        in.readLong();
+        byte status = in.readByte();
+        in.readFully(new byte[bodySize - 9]);
+        return status;
+    }
+
+    private static double pathLength(List<Node> path) {
+        double length = 0;
+        for (int i = 1; i < path.size(); i++) {
+            double best = Double.MAX_VALUE;
+            for (Edge edge : path.get(i - 1).getNeighbors()) {
+                if (edge.getNeighbor() == path.get(i)) {
+                    best = Math.min(best, edge.getDistance());
+                }
+            }
+            length += best;
+        }
+        return length;
+    }
 }